@@ -0,0 +1,43 @@
+package com.fipe.api1;
+
+import com.fipe.api1.controller.AuthController;
+import com.fipe.api1.controller.FipeController;
+import com.fipe.api1.datasource.RoteadorDataSource;
+import com.fipe.api1.messaging.MarcaMessageProducer;
+import com.fipe.api1.repository.MarcaRepository;
+import com.fipe.api1.repository.ModeloRepository;
+import com.fipe.api1.service.BuscaService;
+import com.fipe.api1.service.CacheService;
+import com.fipe.api1.service.CargaInicialService;
+import com.fipe.api1.service.FipeIntegrationService;
+import com.fipe.api1.service.SaudeService;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * Classes lidas por reflexão em runtime, registradas para a imagem nativa (perfil maven native)
+ *
+ * O Quarkus já registra sozinho o que vê no build (tipos de retorno e parâmetros dos endpoints, entidades);
+ * ficam aqui os corpos devolvidos dentro de Response e os valores do cache no Redis (Jackson com mixin).
+ * DTOs, entidades e ganchos do Hibernate do shared estão em com.fipe.shared.ReflexaoNativa
+ */
+@RegisterForReflection(
+    targets = {
+        FipeController.ApiResponse.class, FipeController.HealthResponse.class, FipeController.MarcaResponse.class,
+        FipeController.MarcasPageResponse.class, FipeController.ModeloResponse.class, FipeController.ModelosPageResponse.class,
+        FipeController.BuscaResponse.class, FipeController.ItemLote.class, FipeController.LoteResponse.class,
+        FipeController.ErrorResponse.class,
+        AuthController.LoginResponse.class, AuthController.ErrorResponse.class,
+        MarcaRepository.PaginaMarcas.class, ModeloRepository.PaginaModelos.class,
+        BuscaService.Sugestao.class, CargaInicialService.Progresso.class, CargaInicialService.ProgressoTipo.class,
+        SaudeService.Verificacao.class, FipeIntegrationService.MarcasConhecidas.class, CacheService.CacheStats.class,
+        MarcaMessageProducer.ProducerStats.class, RoteadorDataSource.EstadoReplica.class
+    },
+    // Package-private: registradas pelo nome
+    classNames = {
+        "com.fipe.api1.service.CacheService$Entrada",
+        "com.fipe.api1.service.CacheService$MarcaCacheMixin"
+    })
+public final class ReflexaoNativa {
+
+    private ReflexaoNativa() {}
+}
@@ -2,11 +2,14 @@ package com.fipe.api1.client;
 
 import com.fipe.shared.dto.MarcaDTO;
 import com.fipe.shared.dto.ModeloDTO;
+import com.fipe.shared.metricas.ChamadaFipe;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HEAD;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 import org.eclipse.microprofile.faulttolerance.Retry;
 import org.eclipse.microprofile.faulttolerance.Timeout;
@@ -17,8 +20,11 @@ import java.util.List;
 /**
  * Cliente REST para integração com a API FIPE
  * Documentação: https://deividfortuna.github.io/fipe/
+ *
+ * As listas de marcas são chamadas por FipeClienteProtegido, que aplica circuit breaker, timeout e retry
  */
 @RegisterRestClient(configKey = "fipe-client")
+@ChamadaFipe
 @Path("/")
 @Produces(MediaType.APPLICATION_JSON)
 public interface FipeClient {
@@ -28,8 +34,6 @@ public interface FipeClient {
      */
     @GET
     @Path("/carros/marcas")
-    @Retry(maxRetries = 3, delay = 1000)
-    @Timeout(value = 30, unit = ChronoUnit.SECONDS)
     List<MarcaDTO> getMarcasCarros();
 
     /**
@@ -37,8 +41,6 @@ public interface FipeClient {
      */
     @GET
     @Path("/motos/marcas")
-    @Retry(maxRetries = 3, delay = 1000)
-    @Timeout(value = 30, unit = ChronoUnit.SECONDS)
     List<MarcaDTO> getMarcasMotos();
 
     /**
@@ -46,10 +48,16 @@ public interface FipeClient {
      */
     @GET
     @Path("/caminhoes/marcas")
-    @Retry(maxRetries = 3, delay = 1000)
-    @Timeout(value = 30, unit = ChronoUnit.SECONDS)
     List<MarcaDTO> getMarcasCaminhoes();
 
+    /**
+     * Verificação de disponibilidade: HEAD na lista de marcas, sem baixar o corpo e sem retry
+     */
+    @HEAD
+    @Path("/carros/marcas")
+    @Timeout(value = 5, unit = ChronoUnit.SECONDS)
+    Response verificarDisponibilidade();
+
     /**
      * Busca todos os modelos de uma marca de carro
      */
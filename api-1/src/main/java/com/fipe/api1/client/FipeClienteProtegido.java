@@ -0,0 +1,62 @@
+package com.fipe.api1.client;
+
+import com.fipe.shared.dto.MarcaDTO;
+import com.fipe.shared.entity.TipoVeiculo;
+import io.opentelemetry.instrumentation.annotations.SpanAttribute;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
+import io.smallrye.faulttolerance.api.CircuitBreakerMaintenance;
+import io.smallrye.faulttolerance.api.CircuitBreakerName;
+import io.smallrye.faulttolerance.api.CircuitBreakerState;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.faulttolerance.Bulkhead;
+import org.eclipse.microprofile.faulttolerance.CircuitBreaker;
+import org.eclipse.microprofile.faulttolerance.Retry;
+import org.eclipse.microprofile.faulttolerance.Timeout;
+import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Acesso às listas de marcas da API FIPE protegido por circuit breaker
+ *
+ * Com a API lenta ou fora, o circuito abre depois de poucas falhas e as chamadas seguintes falham
+ * na hora (CircuitBreakerOpenException) em vez de segurar threads em retries e timeouts longos;
+ * o bulkhead limita as chamadas simultâneas. Quem chama decide o que servir no lugar (última lista conhecida).
+ * Limites ajustáveis pela configuração do MicroProfile Fault Tolerance
+ * (ex.: com.fipe.api1.client.FipeClienteProtegido/buscarMarcas/Timeout/value).
+ */
+@ApplicationScoped
+public class FipeClienteProtegido {
+
+    public static final String CIRCUITO = "fipe-marcas";
+
+    @Inject
+    @RestClient
+    FipeClient fipeClient;
+
+    @Inject
+    CircuitBreakerMaintenance circuitBreakerMaintenance;
+
+    @Retry(maxRetries = 1, delay = 500, abortOn = {CircuitBreakerOpenException.class, BulkheadException.class})
+    @CircuitBreaker(requestVolumeThreshold = 4, failureRatio = 0.5, delay = 30, delayUnit = ChronoUnit.SECONDS,
+                    successThreshold = 1)
+    @CircuitBreakerName(CIRCUITO)
+    @Timeout(value = 10, unit = ChronoUnit.SECONDS)
+    @Bulkhead(3)
+    @WithSpan("fipe.marcas")
+    public List<MarcaDTO> buscarMarcas(@SpanAttribute("fipe.tipo") TipoVeiculo tipoVeiculo) {
+        return switch (tipoVeiculo) {
+            case CARROS -> fipeClient.getMarcasCarros();
+            case MOTOS -> fipeClient.getMarcasMotos();
+            case CAMINHOES -> fipeClient.getMarcasCaminhoes();
+        };
+    }
+
+    public CircuitBreakerState estadoCircuito() {
+        return circuitBreakerMaintenance.currentState(CIRCUITO);
+    }
+}
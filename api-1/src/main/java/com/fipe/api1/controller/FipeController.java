@@ -1,28 +1,67 @@
 package com.fipe.api1.controller;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fipe.api1.datasource.RoteadorDataSource;
+import com.fipe.api1.repository.MarcaRepository.PaginaMarcas;
+import com.fipe.api1.repository.ModeloRepository.ModeloAtualizado;
+import com.fipe.api1.repository.ModeloRepository.PaginaModelos;
+import com.fipe.api1.service.AquecimentoService;
+import com.fipe.api1.service.BuscaService;
+import com.fipe.api1.service.CacheService;
+import com.fipe.api1.service.CargaInicialService;
 import com.fipe.api1.service.FipeIntegrationService;
+import com.fipe.api1.service.SaudeService;
 import com.fipe.api1.service.VeiculoService;
+import com.fipe.shared.consulta.OrcamentoSql;
+import com.fipe.shared.dto.MarcaResumo;
+import com.fipe.shared.dto.ModeloResumo;
+import com.fipe.shared.dto.PageCursor;
 import com.fipe.shared.entity.Marca;
-import com.fipe.shared.entity.Modelo;
+import com.fipe.shared.entity.TipoVeiculo;
+import com.fipe.shared.formato.CatalogoProtobuf;
+import com.fipe.shared.formato.CodificadorCatalogo;
+import com.fipe.shared.formato.FormatoResposta;
+import io.smallrye.mutiny.Multi;
+import io.vertx.core.buffer.Buffer;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
+import jakarta.persistence.NonUniqueResultException;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.jwt.JsonWebToken;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.jboss.logging.Logger;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletionStage;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Controller REST para operações relacionadas aos dados FIPE
@@ -44,58 +83,112 @@ public class FipeController {
     @Inject
     JsonWebToken jwt;
 
+    @Inject
+    CacheService cacheService;
+
+    @Inject
+    BuscaService buscaService;
+
+    @Inject
+    AquecimentoService aquecimentoService;
+
+    @Inject
+    CargaInicialService cargaInicialService;
+
+    @Inject
+    SaudeService saudeService;
+
+    @Inject
+    RoteadorDataSource roteadorDataSource;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @ConfigProperty(name = "fipe.cache.rendered.gzip", defaultValue = "false")
+    boolean renderedGzip;
+
+    // Formatos das listagens (JSON, CBOR, Smile) com a configuração do ObjectMapper da aplicação
+    private CodificadorCatalogo codificador;
+
+    // Máximo de códigos por requisição nas buscas em lote
+    @ConfigProperty(name = "fipe.lote.maximo", defaultValue = "100")
+    int maximoLote;
+
+    @PostConstruct
+    void init() {
+        codificador = new CodificadorCatalogo(objectMapper);
+    }
+
     /**
      * 1.1 - Endpoint para acionar a carga inicial dos dados de veículos
+     * Responde de imediato com o id do job; o progresso fica em /carga-inicial/{id} e /carga-inicial/{id}/eventos
      */
     @POST
     @Path("/carga-inicial")
     @Operation(summary = "Executa carga inicial dos dados FIPE", 
                description = "Busca todas as marcas na API FIPE e envia para processamento assíncrono")
     @APIResponse(responseCode = "202", description = "Carga inicial iniciada com sucesso")
+    @APIResponse(responseCode = "409", description = "Já existe uma carga inicial em andamento")
     @APIResponse(responseCode = "500", description = "Erro interno do servidor")
     public Response executarCargaInicial() {
-        LOG.info("Iniciando carga inicial de dados FIPE");
-        
         try {
-            // Executar de forma síncrona para debug
-            int totalMarcasEnviadas = 0;
-            
-            // Buscar e processar marcas de carros
-            List<com.fipe.shared.dto.MarcaDTO> marcasCarros = fipeIntegrationService.buscarMarcasPorTipo("carros");
-            fipeIntegrationService.enviarMarcasParaFila(marcasCarros, "carros").toCompletableFuture().get();
-            totalMarcasEnviadas += marcasCarros.size();
-            LOG.infof("Enviadas %d marcas de carros para processamento", marcasCarros.size());
-            
-            // Buscar e processar marcas de motos
-            List<com.fipe.shared.dto.MarcaDTO> marcasMotos = fipeIntegrationService.buscarMarcasPorTipo("motos");
-            fipeIntegrationService.enviarMarcasParaFila(marcasMotos, "motos").toCompletableFuture().get();
-            totalMarcasEnviadas += marcasMotos.size();
-            LOG.infof("Enviadas %d marcas de motos para processamento", marcasMotos.size());
-            
-            // Buscar e processar marcas de caminhões
-            List<com.fipe.shared.dto.MarcaDTO> marcasCaminhoes = fipeIntegrationService.buscarMarcasPorTipo("caminhoes");
-            fipeIntegrationService.enviarMarcasParaFila(marcasCaminhoes, "caminhoes").toCompletableFuture().get();
-            totalMarcasEnviadas += marcasCaminhoes.size();
-            LOG.infof("Enviadas %d marcas de caminhões para processamento", marcasCaminhoes.size());
-            
-            String resultado = String.format(
-                "Carga inicial concluída com sucesso! Total de %d marcas enviadas para processamento (Carros: %d, Motos: %d, Caminhões: %d)",
-                totalMarcasEnviadas, marcasCarros.size(), marcasMotos.size(), marcasCaminhoes.size()
-            );
-            
-            LOG.info(resultado);
+            CargaInicialService.Progresso progresso = cargaInicialService.iniciar();
+            if (progresso == null) {
+                return Response.status(Response.Status.CONFLICT)
+                    .entity(new ErrorResponse("Já existe uma carga inicial em andamento"))
+                    .build();
+            }
             return Response.accepted()
-                .entity(new ApiResponse("success", resultado))
+                .location(java.net.URI.create("/api/v1/fipe/carga-inicial/" + progresso.id))
+                .entity(new ApiResponse("accepted", "Carga inicial iniciada", progresso))
                 .build();
-                
         } catch (Exception e) {
-            LOG.error("Erro durante carga inicial", e);
+            LOG.error("Erro ao iniciar carga inicial", e);
             return Response.serverError()
                 .entity(new ApiResponse("error", "Erro durante carga inicial: " + e.getMessage()))
                 .build();
         }
     }
 
+    /**
+     * Progresso atual de uma carga inicial
+     */
+    @GET
+    @Path("/carga-inicial/{id}")
+    @Operation(summary = "Progresso da carga inicial", 
+               description = "Retorna marcas encontradas, publicadas e processadas pelo job")
+    @APIResponse(responseCode = "200", description = "Progresso do job")
+    @APIResponse(responseCode = "404", description = "Job não encontrado")
+    public Response progressoCargaInicial(@PathParam("id") String id) {
+        CargaInicialService.Progresso progresso = cargaInicialService.progresso(id);
+        if (progresso == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity(new ErrorResponse("Carga inicial " + id + " não encontrada"))
+                .build();
+        }
+        return Response.ok(progresso).build();
+    }
+
+    /**
+     * Progresso da carga inicial por Server-Sent Events, no lugar de consultas periódicas
+     * Cada evento traz o retrato completo do job; o fluxo termina quando o job encerra
+     */
+    @GET
+    @Path("/carga-inicial/{id}/eventos")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Eventos de progresso da carga inicial", 
+               description = "Fluxo SSE com o progresso de publicação e processamento das marcas")
+    @APIResponse(responseCode = "200", description = "Fluxo de eventos")
+    @APIResponse(responseCode = "404", description = "Job não encontrado")
+    public Multi<CargaInicialService.Progresso> eventosCargaInicial(@PathParam("id") String id) {
+        Multi<CargaInicialService.Progresso> eventos = cargaInicialService.acompanhar(id);
+        if (eventos == null) {
+            throw new NotFoundException("Carga inicial " + id + " não encontrada");
+        }
+        return eventos;
+    }
+
     /**
      * Endpoint para adicionar uma marca individual
      */
@@ -111,6 +204,9 @@ public class FipeController {
         try {
             LOG.infof("Adicionando marca: %s - %s (%s)", request.codigo, request.nome, request.tipoVeiculo);
             
+            // Canonicalizar o tipo uma única vez, na borda da API
+            TipoVeiculo tipoVeiculo = TipoVeiculo.fromString(request.tipoVeiculo);
+            
             // Verificar se a marca já existe
             Marca marcaExistente = veiculoService.buscarMarcaPorCodigo(request.codigo);
             if (marcaExistente != null) {
@@ -125,14 +221,14 @@ public class FipeController {
             Marca novaMarca = new Marca();
             novaMarca.codigoFipe = request.codigo;
             novaMarca.nome = request.nome;
-            novaMarca.tipoVeiculo = request.tipoVeiculo;
+            novaMarca.tipoVeiculo = tipoVeiculo;
             novaMarca.dataCriacao = java.time.LocalDateTime.now();
             
             veiculoService.salvarMarca(novaMarca);
             LOG.infof("Marca %s salva no banco de dados", request.nome);
             
             // Enviar para a fila da API-2
-            return fipeIntegrationService.enviarMarcaIndividual(request.codigo, request.nome, request.tipoVeiculo)
+            return fipeIntegrationService.enviarMarcaIndividual(request.codigo, request.nome, tipoVeiculo)
                 .thenApply(resultado -> {
                     LOG.infof("Marca %s enviada para processamento na API-2", request.nome);
                     
@@ -155,6 +251,13 @@ public class FipeController {
                         .build();
                 });
                 
+        } catch (IllegalArgumentException e) {
+            LOG.warnf("Dados inválidos ao adicionar marca: %s", e.getMessage());
+            return java.util.concurrent.CompletableFuture.completedFuture(
+                Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse(e.getMessage()))
+                    .build()
+            );
         } catch (Exception e) {
             LOG.errorf("Erro ao adicionar marca: %s", e.getMessage());
             return java.util.concurrent.CompletableFuture.completedFuture(
@@ -170,44 +273,94 @@ public class FipeController {
      */
     @GET
     @Path("/marcas")
+    @Produces({MediaType.APPLICATION_JSON, "application/cbor", "application/x-jackson-smile", "application/x-protobuf"})
     @Operation(summary = "Buscar marcas", 
-               description = "Retorna todas as marcas de veículos armazenadas no banco")
+               description = "Retorna todas as marcas de veículos armazenadas no banco. "
+                   + "Aceita paginação por offset (page) ou por cursor (nextCursor da resposta anterior). "
+                   + "Além de JSON, responde em CBOR, Smile ou protobuf (proto/catalogo.proto) conforme o Accept")
     @APIResponse(responseCode = "200", description = "Marcas encontradas")
+    @APIResponse(responseCode = "304", description = "Catálogo não alterado desde o ETag informado")
+    @APIResponse(responseCode = "400", description = "Cursor, page ou size inválidos")
     // @RolesAllowed({"user", "admin", "fipe-access"}) // Temporariamente desabilitado para testes
-    public Response buscarMarcas(@QueryParam("tipoVeiculo") String tipoVeiculo,
+    // Cursor: versão + página + total; offset: versão + página com o total na mesma consulta
+    @OrcamentoSql(statements = 3)
+    public Response buscarMarcas(@QueryParam("tipoVeiculo") String tipoVeiculoParam,
                                 @QueryParam("page") @DefaultValue("0") int page,
-                                @QueryParam("size") @DefaultValue("50") int size) {
+                                @QueryParam("size") @DefaultValue("50") int size,
+                                @QueryParam("cursor") String cursor,
+                                @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+                                @Context HttpHeaders headers,
+                                @Context Request request) {
         try {
             // String username = jwt.getName(); // JWT temporariamente desabilitado
-            LOG.infof("Buscando marcas - Tipo: %s, Page: %d, Size: %d", tipoVeiculo, page, size);
+            LOG.infof("Buscando marcas - Tipo: %s, Page: %d, Size: %d, Cursor: %s", tipoVeiculoParam, page, size, cursor);
+            validarPaginacao(page, size);
             
-            List<Marca> marcas = veiculoService.buscarMarcas(tipoVeiculo, page, size);
-            long total = veiculoService.contarMarcas(tipoVeiculo);
+            // Canonicalizar o filtro uma única vez, na borda da API (vazio = todos os tipos)
+            TipoVeiculo tipoVeiculo = TipoVeiculo.fromFiltro(tipoVeiculoParam);
+            FormatoResposta formato = formato(headers);
+            if (formato == null) {
+                return formatoNaoSuportado();
+            }
+            if (cursor == null || cursor.isBlank()) {
+                aquecimentoService.registrarMarcas(tipoVeiculo, page, size);
+            }
             
-            // Converter para DTO
-            List<MarcaResponse> marcasResponse = marcas.stream()
-                .map(marca -> new MarcaResponse(
-                    marca.codigoFipe,
-                    marca.nome,
-                    marca.tipoVeiculo,
-                    marca.dataCriacao,
-                    marca.dataAtualizacao
-                ))
-                .collect(Collectors.toList());
+            // GET condicional: só a versão de dados é consultada antes de responder 304
+            long versao = veiculoService.versaoMarcas(tipoVeiculo);
+            EntityTag etag = etag("marcas-" + (tipoVeiculo == null ? "todos" : tipoVeiculo.getCodigo()), formato, versao);
+            Response.ResponseBuilder naoModificado = request.evaluatePreconditions(etag);
+            if (naoModificado != null) {
+                return naoModificado.build();
+            }
+            
+            // Corpo já renderizado nesta versão: servido sem consultar nem serializar
+            String variante = variante(formato, page, size, cursor);
+            Optional<byte[]> renderizado = cacheService.getRenderedMarcas(tipoVeiculo, variante, versao);
+            if (renderizado.isPresent()) {
+                return respostaRenderizada(renderizado.get(), formato, etag, acceptEncoding);
+            }
             
+            List<MarcaResumo> marcas;
+            boolean haMais;
+            long total;
+            if (cursor != null && !cursor.isBlank()) {
+                marcas = veiculoService.buscarMarcasAposCursor(tipoVeiculo, PageCursor.decode(cursor), size);
+                total = veiculoService.contarMarcas(tipoVeiculo);
+                haMais = marcas.size() > size;
+                marcas = haMais ? marcas.subList(0, size) : marcas;
+            } else {
+                // Página e total em uma única consulta
+                PaginaMarcas pagina = veiculoService.buscarMarcas(tipoVeiculo, page, size);
+                marcas = pagina.marcas;
+                total = pagina.total;
+                haMais = (long) (page + 1) * size < total;
+            }
+            
+            // Projeções já no formato da resposta (sem conversão de entidades)
             MarcasPageResponse response = new MarcasPageResponse(
-                marcasResponse,
+                marcas,
                 page,
                 size,
                 total,
                 (int) Math.ceil((double) total / size)
             );
+            response.nextCursor = proximoCursor(marcas, haMais, MarcaResumo::cursor);
             
-            return Response.ok(response).build();
+            byte[] corpo = renderizar(formato, response);
+            cacheService.putRenderedMarcas(tipoVeiculo, variante, versao, corpo);
+            return respostaRenderizada(corpo, formato, etag, acceptEncoding);
             
+        } catch (IllegalArgumentException e) {
+            LOG.warnf("Parâmetros inválidos ao buscar marcas: %s", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST)
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .entity(new ErrorResponse(e.getMessage()))
+                .build();
         } catch (Exception e) {
             LOG.error("Erro ao buscar marcas", e);
             return Response.serverError()
+                .type(MediaType.APPLICATION_JSON_TYPE)
                 .entity(new ErrorResponse("Erro ao buscar marcas: " + e.getMessage()))
                 .build();
         }
@@ -221,68 +374,175 @@ public class FipeController {
     @Operation(summary = "Buscar modelos por marca", 
                description = "Retorna códigos, modelos e observações dos veículos por marca")
     @APIResponse(responseCode = "200", description = "Modelos encontrados")
+    @Produces({MediaType.APPLICATION_JSON, "application/cbor", "application/x-jackson-smile", "application/x-protobuf"})
+    @APIResponse(responseCode = "304", description = "Modelos da marca não alterados desde o ETag informado")
+    @APIResponse(responseCode = "400", description = "Cursor, page ou size inválidos")
     @RolesAllowed({"user", "admin", "fipe-access"})
+    @OrcamentoSql(statements = 2)
     public Response buscarModelosPorMarca(@PathParam("codigoMarca") String codigoMarca,
                                          @QueryParam("page") @DefaultValue("0") int page,
-                                         @QueryParam("size") @DefaultValue("50") int size) {
+                                         @QueryParam("size") @DefaultValue("50") int size,
+                                         @QueryParam("cursor") String cursor,
+                                         @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+                                         @Context HttpHeaders headers,
+                                         @Context Request request) {
         try {
             String username = jwt.getName();
             LOG.infof("Usuário %s buscando modelos para marca: %s, Page: %d, Size: %d", username, codigoMarca, page, size);
+            validarPaginacao(page, size);
+            FormatoResposta formato = formato(headers);
+            if (formato == null) {
+                return formatoNaoSuportado();
+            }
+            if (cursor == null || cursor.isBlank()) {
+                aquecimentoService.registrarModelos(codigoMarca, page, size);
+            }
+            
+            // GET condicional: só a versão de dados é consultada antes de responder 304
+            long versao = veiculoService.versaoModelos(codigoMarca);
+            EntityTag etag = etag("modelos-" + codigoMarca, formato, versao);
+            Response.ResponseBuilder naoModificado = request.evaluatePreconditions(etag);
+            if (naoModificado != null) {
+                return naoModificado.build();
+            }
+            
+            // Corpo já renderizado nesta versão: servido sem consultar nem serializar
+            String variante = variante(formato, page, size, cursor);
+            Optional<byte[]> renderizado = cacheService.getRenderedModelos(codigoMarca, variante, versao);
+            if (renderizado.isPresent()) {
+                return respostaRenderizada(renderizado.get(), formato, etag, acceptEncoding);
+            }
             
-            // Verificar se a marca existe
-            Marca marca = veiculoService.buscarMarcaPorCodigo(codigoMarca);
-            if (marca == null) {
+            // Cabeçalho da marca, página e total em uma única consulta (null = marca inexistente)
+            boolean porCursor = cursor != null && !cursor.isBlank();
+            PaginaModelos pagina = porCursor
+                ? veiculoService.buscarModelosAposCursor(codigoMarca, PageCursor.decode(cursor), size)
+                : veiculoService.buscarModelosPorMarca(codigoMarca, page, size);
+            if (pagina == null) {
                 return Response.status(Response.Status.NOT_FOUND)
+                    .type(MediaType.APPLICATION_JSON_TYPE)
                     .entity(new ErrorResponse("Marca não encontrada: " + codigoMarca))
                     .build();
             }
             
-            List<Modelo> modelos = veiculoService.buscarModelosPorMarca(codigoMarca, page, size);
-            long total = veiculoService.contarModelosPorMarca(codigoMarca);
-            
-            // Converter para DTO
-            List<ModeloResponse> modelosResponse = modelos.stream()
-                .map(modelo -> new ModeloResponse(
-                    modelo.codigoFipe,
-                    modelo.nome,
-                    modelo.observacoes,
-                    modelo.marca.codigoFipe,
-                    modelo.marca.nome,
-                    modelo.dataCriacao,
-                    modelo.dataAtualizacao
-                ))
-                .collect(Collectors.toList());
+            List<ModeloResumo> modelos = pagina.modelos;
+            long total = pagina.total;
+            boolean haMais;
+            if (porCursor) {
+                haMais = modelos.size() > size;
+                modelos = haMais ? modelos.subList(0, size) : modelos;
+            } else {
+                haMais = (long) (page + 1) * size < total;
+            }
             
+            // Projeções já no formato da resposta (sem conversão de entidades)
             ModelosPageResponse response = new ModelosPageResponse(
-                modelosResponse,
-                marca.codigoFipe,
-                marca.nome,
+                modelos,
+                pagina.codigoMarca,
+                pagina.nomeMarca,
                 page,
                 size,
                 total,
                 (int) Math.ceil((double) total / size)
             );
+            response.nextCursor = proximoCursor(modelos, haMais, ModeloResumo::cursor);
             
-            return Response.ok(response).build();
+            byte[] corpo = renderizar(formato, response);
+            cacheService.putRenderedModelos(codigoMarca, variante, versao, corpo);
+            return respostaRenderizada(corpo, formato, etag, acceptEncoding);
             
+        } catch (IllegalArgumentException e) {
+            LOG.warnf("Parâmetros inválidos ao buscar modelos da marca %s: %s", codigoMarca, e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST)
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .entity(new ErrorResponse(e.getMessage()))
+                .build();
         } catch (Exception e) {
             LOG.errorf("Erro ao buscar modelos para marca %s: %s", codigoMarca, e.getMessage());
             return Response.serverError()
+                .type(MediaType.APPLICATION_JSON_TYPE)
                 .entity(new ErrorResponse("Erro ao buscar modelos: " + e.getMessage()))
                 .build();
         }
     }
 
+    /**
+     * Autocomplete sobre nomes de marcas e modelos, respondido pelo índice em memória
+     */
+    @GET
+    @Path("/busca")
+    @Operation(summary = "Autocomplete de marcas e modelos", 
+               description = "Busca por prefixo de palavras do nome, sem diferenciar acentos ou maiúsculas")
+    @APIResponse(responseCode = "200", description = "Sugestões encontradas")
+    @APIResponse(responseCode = "400", description = "Consulta vazia")
+    @RolesAllowed({"user", "admin", "fipe-access"})
+    // Só o índice em memória: cargas e atualizações rodam na thread do BuscaService
+    @OrcamentoSql(statements = 0)
+    public Response buscar(@QueryParam("q") String consulta,
+                           @QueryParam("limit") @DefaultValue("10") int limite) {
+        if (consulta == null || consulta.isBlank()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(new ErrorResponse("Parâmetro q é obrigatório"))
+                .build();
+        }
+        try {
+            int limiteEfetivo = Math.max(1, Math.min(limite, 50));
+            List<BuscaService.Sugestao> sugestoes = buscaService.buscar(consulta, limiteEfetivo);
+            return Response.ok(new BuscaResponse(consulta, sugestoes)).build();
+            
+        } catch (Exception e) {
+            LOG.errorf("Erro na busca por '%s': %s", consulta, e.getMessage());
+            return Response.serverError()
+                .entity(new ErrorResponse("Erro na busca: " + e.getMessage()))
+                .build();
+        }
+    }
+
+    /**
+     * Busca em lote de marcas por código, substituindo N chamadas individuais por uma
+     */
+    @POST
+    @Path("/marcas/lote")
+    @Operation(summary = "Buscar marcas em lote", 
+               description = "Retorna as marcas dos códigos informados, na ordem do pedido, indicando os não encontrados")
+    @APIResponse(responseCode = "200", description = "Resultado por código")
+    @APIResponse(responseCode = "400", description = "Lista de códigos vazia ou acima do limite")
+    @RolesAllowed({"user", "admin", "fipe-access"})
+    @OrcamentoSql(statements = 1)
+    public Response buscarMarcasEmLote(LoteRequest request) {
+        return buscarEmLote(request, "marcas", veiculoService::buscarMarcasPorCodigos);
+    }
+
+    /**
+     * Busca em lote de modelos por código, substituindo N chamadas individuais por uma
+     */
+    @POST
+    @Path("/modelos/lote")
+    @Operation(summary = "Buscar modelos em lote", 
+               description = "Retorna os modelos dos códigos informados, na ordem do pedido, indicando os não encontrados")
+    @APIResponse(responseCode = "200", description = "Resultado por código")
+    @APIResponse(responseCode = "400", description = "Lista de códigos vazia ou acima do limite")
+    @RolesAllowed({"user", "admin", "fipe-access"})
+    @OrcamentoSql(statements = 1)
+    public Response buscarModelosEmLote(LoteRequest request) {
+        return buscarEmLote(request, "modelos", veiculoService::buscarModelosPorCodigos);
+    }
+
     /**
      * 1.8 - Endpoint para salvar dados alterados do veículo
      */
     @PUT
     @Path("/modelos/{codigoModelo}")
     @Operation(summary = "Atualizar modelo", 
-               description = "Atualiza dados do modelo como nome e observações")
+               description = "Atualiza dados do modelo como nome e observações; com versao, só se o modelo ainda estiver nela. "
+                   + "O código do modelo se repete entre marcas: marca escolhe qual, e é obrigatória quando o código é ambíguo")
     @APIResponse(responseCode = "200", description = "Modelo atualizado com sucesso")
+    @APIResponse(responseCode = "404", description = "Modelo não encontrado")
+    @APIResponse(responseCode = "409", description = "Modelo alterado depois da versão informada, ou código em mais de uma marca sem marca informada")
     @RolesAllowed({"admin", "fipe-admin"})
+    @OrcamentoSql(statements = 2)
     public Response atualizarModelo(@PathParam("codigoModelo") String codigoModelo,
+                                   @QueryParam("marca") String codigoMarca,
                                    @Valid AtualizarModeloRequest request) {
         try {
             String username = jwt.getName();
@@ -295,35 +555,40 @@ public class FipeController {
                     .build();
             }
             
-            // Buscar modelo existente
-            Modelo modelo = veiculoService.buscarModeloPorCodigo(codigoModelo);
-            if (modelo == null) {
+            // Atualizar dados (UPDATE condicional que já devolve o modelo e a marca)
+            ModeloAtualizado modeloAtualizado = veiculoService.atualizarModelo(
+                codigoModelo,
+                codigoMarca,
+                request.nome,
+                request.observacoes,
+                request.versao
+            );
+            if (modeloAtualizado == null) {
                 return Response.status(Response.Status.NOT_FOUND)
                     .entity(new ErrorResponse("Modelo não encontrado: " + codigoModelo))
                     .build();
             }
             
-            // Atualizar dados
-            Modelo modeloAtualizado = veiculoService.atualizarModelo(
-                codigoModelo,
-                request.nome,
-                request.observacoes
-            );
-            
             // Converter para response
             ModeloResponse response = new ModeloResponse(
                 modeloAtualizado.codigoFipe,
                 modeloAtualizado.nome,
                 modeloAtualizado.observacoes,
-                modeloAtualizado.marca.codigoFipe,
-                modeloAtualizado.marca.nome,
+                modeloAtualizado.codigoMarca,
+                modeloAtualizado.nomeMarca,
                 modeloAtualizado.dataCriacao,
                 modeloAtualizado.dataAtualizacao
             );
+            response.versao = modeloAtualizado.versao;
             
             LOG.infof("Modelo %s atualizado com sucesso", codigoModelo);
             return Response.ok(response).build();
             
+        } catch (OptimisticLockException | NonUniqueResultException e) {
+            LOG.warnf("Conflito na atualização do modelo %s: %s", codigoModelo, e.getMessage());
+            return Response.status(Response.Status.CONFLICT)
+                .entity(new ErrorResponse(e.getMessage()))
+                .build();
         } catch (IllegalArgumentException e) {
             LOG.warnf("Dados inválidos para atualização do modelo %s: %s", codigoModelo, e.getMessage());
             return Response.status(Response.Status.BAD_REQUEST)
@@ -339,14 +604,59 @@ public class FipeController {
 
     /**
      * Endpoint para verificar status da API
+     * Responde com o último resultado das verificações em segundo plano, sem chamar as dependências
      */
     @GET
     @Path("/health")
     @Operation(summary = "Verifica saúde da API", description = "Endpoint para verificar se a API está funcionando")
     public Response health() {
-        boolean fipeDisponivel = fipeIntegrationService.verificarDisponibilidadeApi();
-        
-        return Response.ok(new HealthResponse("API-1 funcionando", fipeDisponivel)).build();
+        HealthResponse response = new HealthResponse("API-1 funcionando", saudeService.isDisponivel(SaudeService.FIPE));
+        response.pronta = saudeService.isPronto();
+        response.dependencias = saudeService.getResultados();
+        if (roteadorDataSource.isHabilitado()) {
+            response.replicas = roteadorDataSource.getEstado();
+        }
+        return Response.ok(response).build();
+    }
+
+    /**
+     * Liveness: só falha se o processo travou; quedas de dependências não reiniciam a instância
+     */
+    @GET
+    @Path("/health/live")
+    @Operation(summary = "Verifica se a API está viva", description = "Não depende de Redis, banco, RabbitMQ ou API FIPE")
+    @APIResponse(responseCode = "200", description = "Processo respondendo")
+    @APIResponse(responseCode = "503", description = "Verificações em segundo plano travadas")
+    public Response live() {
+        if (!saudeService.isVivo()) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(new ApiResponse("down", "Verificações de saúde sem progresso"))
+                .build();
+        }
+        return Response.ok(new ApiResponse("up", "API-1 viva")).build();
+    }
+
+    /**
+     * Prontidão para tráfego: 503 enquanto o aquecimento do cache da subida não termina
+     * ou quando uma dependência crítica (fipe.saude.criticas) está indisponível
+     */
+    @GET
+    @Path("/health/ready")
+    @Operation(summary = "Verifica prontidão da API", description = "Retorna 503 enquanto o cache é aquecido na subida ou sem dependências críticas")
+    @APIResponse(responseCode = "200", description = "Pronta para receber tráfego")
+    @APIResponse(responseCode = "503", description = "Aquecendo o cache ou dependência crítica indisponível")
+    public Response ready() {
+        if (!aquecimentoService.isPronto()) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(new ApiResponse("warming-up", "Aquecendo o cache de listagens"))
+                .build();
+        }
+        if (!saudeService.isPronto()) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(new ApiResponse("not-ready", "Dependência crítica indisponível", saudeService.getResultados()))
+                .build();
+        }
+        return Response.ok(new ApiResponse("ready", "API-1 pronta")).build();
     }
     
     /**
@@ -358,7 +668,7 @@ public class FipeController {
     public Response testarIntegracaoFipe() {
         try {
             LOG.info("Testando integração com API FIPE...");
-            List<com.fipe.shared.dto.MarcaDTO> marcas = fipeIntegrationService.buscarMarcasPorTipo("carros");
+            List<com.fipe.shared.dto.MarcaDTO> marcas = fipeIntegrationService.buscarMarcasPorTipo(TipoVeiculo.CARROS);
             LOG.infof("Sucesso! Encontradas %d marcas de carros", marcas.size());
             
             return Response.ok()
@@ -374,6 +684,161 @@ public class FipeController {
         }
     }
 
+    /**
+     * ETag fraco do escopo na versão de dados atual; a URL (filtros e página) já distingue o recurso
+     */
+    private static EntityTag etag(String escopo, FormatoResposta formato, long versao) {
+        return new EntityTag(escopo + sufixo(formato) + "-v" + versao, true);
+    }
+
+    /**
+     * Identifica a página renderizada: todos os parâmetros que aparecem no corpo da resposta
+     */
+    /**
+     * page a partir de 0 e size positivo; vale também com cursor, em que size é o limite da página
+     */
+    private static void validarPaginacao(int page, int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("page deve ser maior ou igual a 0");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("size deve ser maior que 0");
+        }
+    }
+
+    private String variante(FormatoResposta formato, int page, int size, String cursor) {
+        String variante = page + ":" + size + ":" + (cursor == null || cursor.isBlank() ? "-" : cursor) + sufixo(formato);
+        return renderedGzip ? variante + ":gz" : variante;
+    }
+
+    /**
+     * JSON mantém ETags e chaves de cache sem sufixo; os demais formatos são distinguidos pelo código
+     */
+    private static String sufixo(FormatoResposta formato) {
+        return formato == FormatoResposta.JSON ? "" : "-" + formato.getCodigo();
+    }
+
+    /**
+     * Formato pedido no Accept (na ordem de preferência do cliente), ou null se nenhum for suportado
+     */
+    private static FormatoResposta formato(HttpHeaders headers) {
+        List<String> aceitos = new ArrayList<>();
+        for (MediaType tipo : headers.getAcceptableMediaTypes()) {
+            aceitos.add(tipo.getType() + "/" + tipo.getSubtype());
+        }
+        return FormatoResposta.negociar(aceitos);
+    }
+
+    private static Response formatoNaoSuportado() {
+        return Response.status(Response.Status.NOT_ACCEPTABLE)
+            .type(MediaType.APPLICATION_JSON_TYPE)
+            .entity(new ErrorResponse("Formatos suportados: application/json, application/cbor, "
+                + "application/x-jackson-smile, application/x-protobuf"))
+            .build();
+    }
+
+    /**
+     * Serializa a resposta uma única vez no formato pedido, já comprimida se configurado,
+     * para ser reaproveitada do cache
+     */
+    private byte[] renderizar(FormatoResposta formato, Object resposta) throws IOException {
+        byte[] corpo = codificar(formato, resposta);
+        if (!renderedGzip) {
+            return corpo;
+        }
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(corpo.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(saida)) {
+            gzip.write(corpo);
+        }
+        return saida.toByteArray();
+    }
+
+    /**
+     * Protobuf segue o esquema publicado em shared (proto/catalogo.proto); os demais usam o Jackson
+     */
+    private byte[] codificar(FormatoResposta formato, Object resposta) throws IOException {
+        if (formato != FormatoResposta.PROTOBUF) {
+            return codificador.codificar(formato, resposta);
+        }
+        if (resposta instanceof MarcasPageResponse) {
+            MarcasPageResponse marcas = (MarcasPageResponse) resposta;
+            return CatalogoProtobuf.paginaMarcas(marcas.marcas, marcas.page, marcas.size, marcas.total,
+                marcas.totalPages, marcas.nextCursor);
+        }
+        ModelosPageResponse modelos = (ModelosPageResponse) resposta;
+        return CatalogoProtobuf.paginaModelos(modelos.modelos, modelos.codigoMarca, modelos.nomeMarca,
+            modelos.page, modelos.size, modelos.total, modelos.totalPages, modelos.nextCursor);
+    }
+
+    /**
+     * Escreve o corpo renderizado direto no buffer da resposta Vert.x, sem passar pelo Jackson
+     * Corpo comprimido segue como está se o cliente aceitar gzip; caso contrário é descomprimido
+     */
+    private Response respostaRenderizada(byte[] corpo, FormatoResposta formato, EntityTag etag,
+                                         String acceptEncoding) throws IOException {
+        Response.ResponseBuilder builder = Response.ok().type(formato.getMediaType()).tag(etag);
+        if (!renderedGzip) {
+            return builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT).entity(Buffer.buffer(corpo)).build();
+        }
+        builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").entity(Buffer.buffer(corpo)).build();
+        }
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(corpo))) {
+            return builder.entity(Buffer.buffer(gzip.readAllBytes())).build();
+        }
+    }
+
+    /**
+     * Cursor da próxima página a partir do último item retornado (null se não houver)
+     */
+    private static <T> String proximoCursor(List<T> pagina, boolean haMais, Function<T, PageCursor> chave) {
+        if (!haMais || pagina.isEmpty()) {
+            return null;
+        }
+        return chave.apply(pagina.get(pagina.size() - 1)).encode();
+    }
+
+    /**
+     * Valida o pedido, busca os códigos distintos de uma vez e monta a resposta na ordem do pedido
+     */
+    private Response buscarEmLote(LoteRequest request, String recurso,
+                                  Function<Collection<String>, Map<String, ?>> busca) {
+        try {
+            if (request == null || request.codigos == null || request.codigos.isEmpty()) {
+                throw new IllegalArgumentException("Informe ao menos um código");
+            }
+            if (request.codigos.size() > maximoLote) {
+                throw new IllegalArgumentException("Máximo de " + maximoLote + " códigos por requisição");
+            }
+            LinkedHashSet<String> distintos = new LinkedHashSet<>();
+            for (String codigo : request.codigos) {
+                if (codigo == null || codigo.isBlank()) {
+                    throw new IllegalArgumentException("Código vazio na lista");
+                }
+                distintos.add(codigo);
+            }
+
+            Map<String, ?> encontrados = busca.apply(distintos);
+            List<ItemLote> itens = new ArrayList<>(request.codigos.size());
+            for (String codigo : request.codigos) {
+                itens.add(new ItemLote(codigo, encontrados.get(codigo)));
+            }
+            LOG.debugf("Lote de %s: %d códigos, %d encontrados", recurso, distintos.size(), encontrados.size());
+            return Response.ok(new LoteResponse(itens)).build();
+            
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(new ErrorResponse(e.getMessage()))
+                .build();
+        } catch (Exception e) {
+            LOG.errorf("Erro na busca em lote de %s: %s", recurso, e.getMessage());
+            return Response.serverError()
+                .entity(new ErrorResponse("Erro na busca em lote: " + e.getMessage()))
+                .build();
+        }
+    }
+
     // Classes auxiliares para requests e responses
     public static class ApiResponse {
         public String status;
@@ -397,11 +862,16 @@ public class FipeController {
     public static class AtualizarModeloRequest {
         public String nome;
         public String observacoes;
+        // Versão lida pelo cliente (concorrência otimista); ausente, a edição não é condicionada
+        public Long versao;
     }
     
     public static class HealthResponse {
         public String status;
         public boolean fipeApiDisponivel;
+        public boolean pronta;
+        public Map<String, SaudeService.Verificacao> dependencias;
+        public Map<String, RoteadorDataSource.EstadoReplica> replicas;
         
         public HealthResponse() {}
         
@@ -414,13 +884,13 @@ public class FipeController {
     public static class MarcaResponse {
         public String codigo;
         public String nome;
-        public String tipoVeiculo;
+        public TipoVeiculo tipoVeiculo;
         public java.time.LocalDateTime dataCriacao;
         public java.time.LocalDateTime dataAtualizacao;
         
         public MarcaResponse() {}
         
-        public MarcaResponse(String codigo, String nome, String tipoVeiculo, java.time.LocalDateTime dataCriacao, java.time.LocalDateTime dataAtualizacao) {
+        public MarcaResponse(String codigo, String nome, TipoVeiculo tipoVeiculo, java.time.LocalDateTime dataCriacao, java.time.LocalDateTime dataAtualizacao) {
             this.codigo = codigo;
             this.nome = nome;
             this.tipoVeiculo = tipoVeiculo;
@@ -430,15 +900,16 @@ public class FipeController {
     }
     
     public static class MarcasPageResponse {
-        public List<MarcaResponse> marcas;
+        public List<MarcaResumo> marcas;
         public int page;
         public int size;
         public long total;
         public int totalPages;
+        public String nextCursor;
         
         public MarcasPageResponse() {}
         
-        public MarcasPageResponse(List<MarcaResponse> marcas, int page, int size, long total, int totalPages) {
+        public MarcasPageResponse(List<MarcaResumo> marcas, int page, int size, long total, int totalPages) {
             this.marcas = marcas;
             this.page = page;
             this.size = size;
@@ -455,6 +926,8 @@ public class FipeController {
         public String nomeMarca;
         public java.time.LocalDateTime dataCriacao;
         public java.time.LocalDateTime dataAtualizacao;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public Long versao;
         
         public ModeloResponse() {}
         
@@ -470,17 +943,18 @@ public class FipeController {
     }
     
     public static class ModelosPageResponse {
-        public List<ModeloResponse> modelos;
+        public List<ModeloResumo> modelos;
         public String codigoMarca;
         public String nomeMarca;
         public int page;
         public int size;
         public long total;
         public int totalPages;
+        public String nextCursor;
         
         public ModelosPageResponse() {}
         
-        public ModelosPageResponse(List<ModeloResponse> modelos, String codigoMarca, String nomeMarca, int page, int size, long total, int totalPages) {
+        public ModelosPageResponse(List<ModeloResumo> modelos, String codigoMarca, String nomeMarca, int page, int size, long total, int totalPages) {
             this.modelos = modelos;
             this.codigoMarca = codigoMarca;
             this.nomeMarca = nomeMarca;
@@ -491,6 +965,64 @@ public class FipeController {
         }
     }
     
+    public static class BuscaResponse {
+        public String q;
+        public List<BuscaService.Sugestao> sugestoes;
+
+        public BuscaResponse() {}
+
+        public BuscaResponse(String q, List<BuscaService.Sugestao> sugestoes) {
+            this.q = q;
+            this.sugestoes = sugestoes;
+        }
+    }
+
+    public static class LoteRequest {
+        public List<String> codigos;
+
+        public LoteRequest() {}
+
+        public LoteRequest(List<String> codigos) {
+            this.codigos = codigos;
+        }
+    }
+
+    /**
+     * Resultado de um código do lote; dado fica null quando não encontrado
+     */
+    public static class ItemLote {
+        public String codigo;
+        public boolean encontrado;
+        public Object dado;
+
+        public ItemLote() {}
+
+        public ItemLote(String codigo, Object dado) {
+            this.codigo = codigo;
+            this.encontrado = dado != null;
+            this.dado = dado;
+        }
+    }
+
+    public static class LoteResponse {
+        public List<ItemLote> itens;
+        public int encontrados;
+        public int naoEncontrados;
+
+        public LoteResponse() {}
+
+        public LoteResponse(List<ItemLote> itens) {
+            this.itens = itens;
+            for (ItemLote item : itens) {
+                if (item.encontrado) {
+                    encontrados++;
+                } else {
+                    naoEncontrados++;
+                }
+            }
+        }
+    }
+
     public static class ErrorResponse {
         public String error;
         public java.time.LocalDateTime timestamp;
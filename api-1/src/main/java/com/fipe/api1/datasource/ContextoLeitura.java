@@ -0,0 +1,33 @@
+package com.fipe.api1.datasource;
+
+import jakarta.enterprise.context.RequestScoped;
+
+/**
+ * Estado de roteamento da requisição atual
+ * Acesso por métodos: o bean é injetado como proxy e campos do proxy não chegam à instância da requisição
+ */
+@RequestScoped
+public class ContextoLeitura {
+
+    // A sessão escreveu há pouco (cookie ou registro local): leituras vão ao primário
+    private boolean primarioObrigatorio;
+
+    // Esta requisição escreveu
+    private boolean escreveu;
+
+    boolean isPrimarioObrigatorio() {
+        return primarioObrigatorio;
+    }
+
+    void setPrimarioObrigatorio(boolean primarioObrigatorio) {
+        this.primarioObrigatorio = primarioObrigatorio;
+    }
+
+    boolean isEscreveu() {
+        return escreveu;
+    }
+
+    void marcarEscrita() {
+        this.escreveu = true;
+    }
+}
@@ -0,0 +1,70 @@
+package com.fipe.api1.datasource;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.core.Cookie;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.NewCookie;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+import org.jboss.resteasy.reactive.server.ServerResponseFilter;
+
+import java.security.Principal;
+
+/**
+ * Leitura após escrita: quem escreveu continua lendo do primário durante fipe.datasource.leitura-apos-escrita
+ *
+ * A sessão é reconhecida pelo usuário autenticado (nesta instância) e por um cookie com o instante
+ * da escrita, que vale em qualquer instância atrás do balanceador
+ */
+public class FiltroLeituraAposEscrita {
+
+    static final String COOKIE_ESCRITA = "fipe-escrita";
+
+    @Inject
+    RoteadorDataSource roteador;
+
+    @Inject
+    ContextoLeitura contexto;
+
+    @ServerRequestFilter
+    public void antes(ContainerRequestContext requisicao) {
+        if (!roteador.isHabilitado()) {
+            return;
+        }
+        contexto.setPrimarioObrigatorio(roteador.escreveuRecentemente(sessao(requisicao))
+            || cookieRecente(requisicao.getCookies().get(COOKIE_ESCRITA)));
+    }
+
+    @ServerResponseFilter
+    public void depois(ContainerRequestContext requisicao, ContainerResponseContext resposta) {
+        if (!roteador.isHabilitado() || !contexto.isEscreveu()) {
+            return;
+        }
+        long agora = System.currentTimeMillis();
+        roteador.marcarEscrita(sessao(requisicao));
+        NewCookie cookie = new NewCookie.Builder(COOKIE_ESCRITA)
+            .value(Long.toString(agora))
+            .path("/")
+            .maxAge((int) Math.max(1, roteador.getJanelaEscrita().toSeconds()))
+            .httpOnly(true)
+            .build();
+        resposta.getHeaders().add(HttpHeaders.SET_COOKIE, cookie);
+    }
+
+    private boolean cookieRecente(Cookie cookie) {
+        if (cookie == null) {
+            return false;
+        }
+        try {
+            return roteador.dentroDaJanela(Long.parseLong(cookie.getValue()));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static String sessao(ContainerRequestContext requisicao) {
+        Principal usuario = requisicao.getSecurityContext().getUserPrincipal();
+        return usuario == null ? null : usuario.getName();
+    }
+}
@@ -0,0 +1,308 @@
+package com.fipe.api1.datasource;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.agroal.DataSource;
+import io.quarkus.arc.Arc;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.narayana.jta.QuarkusTransactionException;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.exception.JDBCConnectionException;
+import org.jboss.logging.Logger;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Roteamento das leituras entre o banco primário e as réplicas
+ *
+ * Primário e réplicas são datasources nomeados (quarkus.datasource."primario" e "replica"), usados como
+ * tenants do Hibernate com quarkus.hibernate-orm.multitenant=DATABASE, configurados só no perfil prod.
+ * O primário atende escritas e tudo o que não for marcado com @SomenteLeitura. Um método @SomenteLeitura
+ * fora de transação roda em uma transação própria na réplica escolhida em rodízio. O atraso de replicação de cada réplica é medido em segundo plano;
+ * acima de fipe.datasource.replica.lag-maximo ela sai do rodízio até o atraso cair para metade disso.
+ * Quem escreveu lê do primário por fipe.datasource.leitura-apos-escrita (ver FiltroLeituraAposEscrita).
+ * O que vai para o cache no Redis é lido do primário (noPrimario): o cache é compartilhado entre sessões e
+ * instâncias, e uma página lida de uma réplica atrasada esconderia a escrita de todos até o TTL.
+ */
+@ApplicationScoped
+public class RoteadorDataSource {
+
+    private static final Logger LOG = Logger.getLogger(RoteadorDataSource.class);
+
+    // Tenant do primário: com multitenancy DATABASE todo tenant é um datasource nomeado, então o primário
+    // tem um nome próprio (mesma URL do datasource padrão, que segue com Flyway e a verificação de saúde)
+    public static final String PRIMARIO = "primario";
+
+    // Atraso em segundos: zero se o servidor não está em recuperação ou já aplicou tudo o que recebeu
+    private static final String SQL_LAG = "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 "
+        + "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+        + "ELSE COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())), 0) END";
+
+    // Sessões lembradas para leitura após escrita, acima disso as vencidas são descartadas
+    private static final int MAX_SESSOES = 10_000;
+
+    @Inject
+    ContextoLeitura contexto;
+
+    @ConfigProperty(name = "fipe.datasource.roteamento.enabled", defaultValue = "false")
+    boolean habilitado;
+
+    // Nomes dos datasources de réplica (quarkus.datasource."<nome>".*)
+    @ConfigProperty(name = "fipe.datasource.replicas", defaultValue = "replica")
+    List<String> replicas;
+
+    @ConfigProperty(name = "fipe.datasource.leitura-apos-escrita", defaultValue = "PT5S")
+    Duration janelaEscrita;
+
+    @ConfigProperty(name = "fipe.datasource.replica.lag-maximo", defaultValue = "PT2S")
+    Duration lagMaximo;
+
+    @ConfigProperty(name = "fipe.datasource.replica.verificacao-intervalo", defaultValue = "PT5S")
+    Duration intervalo;
+
+    private final ThreadLocal<String> rota = new ThreadLocal<>();
+    private final Map<String, EstadoReplica> estados = new LinkedHashMap<>();
+    private final Map<String, Long> escritasPorSessao = new ConcurrentHashMap<>();
+    private final AtomicInteger proxima = new AtomicInteger();
+    private ScheduledExecutorService executor;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!habilitado) {
+            return;
+        }
+        for (String replica : replicas) {
+            estados.put(replica, new EstadoReplica());
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "replica-lag");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::medirLag, 0, intervalo.toMillis(), TimeUnit.MILLISECONDS);
+        LOG.infof("Roteamento de leituras habilitado: réplicas %s", replicas);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Datasource (tenant) da sessão aberta agora nesta thread
+     */
+    public String rotaAtual() {
+        String atual = rota.get();
+        return atual != null ? atual : PRIMARIO;
+    }
+
+    boolean emReplica() {
+        return rota.get() != null;
+    }
+
+    /**
+     * Próxima réplica no rodízio entre as que estão dentro do atraso máximo, ou null se nenhuma estiver
+     */
+    String escolherReplica() {
+        List<String> ativas = new ArrayList<>(estados.size());
+        for (Map.Entry<String, EstadoReplica> estado : estados.entrySet()) {
+            if (estado.getValue().ativa) {
+                ativas.add(estado.getKey());
+            }
+        }
+        if (ativas.isEmpty()) {
+            return null;
+        }
+        return ativas.get(Math.floorMod(proxima.getAndIncrement(), ativas.size()));
+    }
+
+    /**
+     * Executa a leitura em uma transação nova na réplica
+     * Falha de conexão tira a réplica do rodízio e a leitura é refeita no primário
+     */
+    Object naReplica(String replica, Callable<Object> leitura) throws Exception {
+        rota.set(replica);
+        try {
+            return QuarkusTransaction.requiringNew().call(leitura);
+        } catch (QuarkusTransactionException e) {
+            if (e.getCause() instanceof Exception causa) {
+                throw causa;
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            if (!falhaDeConexao(e)) {
+                throw e;
+            }
+            desativar(replica, e.getMessage());
+        } finally {
+            rota.remove();
+        }
+        return leitura.call();
+    }
+
+    /**
+     * Executa a leitura no primário, mesmo dentro de um método @SomenteLeitura já levado a uma réplica
+     * (transação nova, com a rota da réplica suspensa); usado pelos carregadores do cache compartilhado
+     */
+    public <T> T noPrimario(Supplier<T> leitura) {
+        if (!habilitado) {
+            return leitura.get();
+        }
+        String anterior = rota.get();
+        rota.remove();
+        try {
+            // Sem réplica em uso, junta-se à transação do primário (ou abre uma): @SomenteLeitura dentro dela não sai do primário
+            return anterior == null
+                ? QuarkusTransaction.joiningExisting().call(leitura::get)
+                : QuarkusTransaction.requiringNew().call(leitura::get);
+        } catch (QuarkusTransactionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        } finally {
+            if (anterior != null) {
+                rota.set(anterior);
+            }
+        }
+    }
+
+    /**
+     * Chamado pelas escritas: o restante da requisição e a sessão que escreveu passam a ler do primário
+     */
+    public void registrarEscrita() {
+        if (habilitado && Arc.container().requestContext().isActive()) {
+            contexto.marcarEscrita();
+        }
+    }
+
+    boolean primarioObrigatorio() {
+        return Arc.container().requestContext().isActive() && (contexto.isEscreveu() || contexto.isPrimarioObrigatorio());
+    }
+
+    void marcarEscrita(String sessao) {
+        if (sessao == null) {
+            return;
+        }
+        long agora = System.currentTimeMillis();
+        if (escritasPorSessao.size() >= MAX_SESSOES) {
+            escritasPorSessao.values().removeIf(instante -> agora - instante >= janelaEscrita.toMillis());
+        }
+        escritasPorSessao.put(sessao, agora);
+    }
+
+    boolean escreveuRecentemente(String sessao) {
+        Long instante = sessao == null ? null : escritasPorSessao.get(sessao);
+        return instante != null && dentroDaJanela(instante);
+    }
+
+    /**
+     * Instante (ms) de uma escrita ainda dentro da janela; instantes no futuro vêm de cookie forjado ou de
+     * relógio adiantado e são recusados, senão prenderiam a sessão no primário indefinidamente
+     */
+    boolean dentroDaJanela(long instante) {
+        long agora = System.currentTimeMillis();
+        return instante <= agora && agora - instante < janelaEscrita.toMillis();
+    }
+
+    Duration getJanelaEscrita() {
+        return janelaEscrita;
+    }
+
+    /**
+     * Estado de cada réplica (rodízio, último atraso medido)
+     */
+    public Map<String, EstadoReplica> getEstado() {
+        return Collections.unmodifiableMap(estados);
+    }
+
+    private void medirLag() {
+        for (Map.Entry<String, EstadoReplica> entrada : estados.entrySet()) {
+            String replica = entrada.getKey();
+            EstadoReplica estado = entrada.getValue();
+            try (Connection conexao = dataSource(replica).getConnection();
+                 Statement statement = conexao.createStatement()) {
+                statement.setQueryTimeout((int) Math.max(1, intervalo.toSeconds()));
+                double lag;
+                try (ResultSet resultado = statement.executeQuery(SQL_LAG)) {
+                    resultado.next();
+                    lag = resultado.getDouble(1);
+                }
+                estado.lagSegundos = lag;
+                estado.medidoEm = LocalDateTime.now();
+                estado.erro = null;
+                double maximo = lagMaximo.toMillis() / 1000.0;
+                if (estado.ativa && lag > maximo) {
+                    desativar(replica, String.format("atraso de %.1fs", lag));
+                } else if (!estado.ativa && lag <= maximo / 2) {
+                    estado.ativa = true;
+                    LOG.infof("Réplica %s de volta ao rodízio (atraso de %.1fs)", replica, lag);
+                }
+            } catch (Exception e) {
+                estado.medidoEm = LocalDateTime.now();
+                estado.erro = e.getMessage();
+                if (estado.ativa) {
+                    desativar(replica, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void desativar(String replica, String motivo) {
+        EstadoReplica estado = estados.get(replica);
+        if (estado != null && estado.ativa) {
+            estado.ativa = false;
+            LOG.warnf("Réplica %s fora do rodízio: %s", replica, motivo);
+        }
+    }
+
+    private static AgroalDataSource dataSource(String nome) {
+        return Arc.container().instance(AgroalDataSource.class, new DataSource.DataSourceLiteral(nome)).get();
+    }
+
+    private static boolean falhaDeConexao(Throwable erro) {
+        for (Throwable causa = erro; causa != null; causa = causa.getCause()) {
+            if (causa instanceof JDBCConnectionException) {
+                return true;
+            }
+            if (causa.getCause() == causa) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Situação de uma réplica; começa fora do rodízio até a primeira medição
+     */
+    public static class EstadoReplica {
+        public volatile boolean ativa;
+        public volatile Double lagSegundos;
+        public volatile LocalDateTime medidoEm;
+        public volatile String erro;
+    }
+}
@@ -0,0 +1,28 @@
+package com.fipe.api1.datasource;
+
+import io.quarkus.hibernate.orm.PersistenceUnitExtension;
+import io.quarkus.hibernate.orm.runtime.tenant.TenantResolver;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Tenant = datasource da sessão: o primário por padrão, a réplica escolhida dentro de um método @SomenteLeitura
+ * Só é consultado com quarkus.hibernate-orm.multitenant=DATABASE (perfil prod)
+ */
+@PersistenceUnitExtension
+@ApplicationScoped
+public class RoteamentoTenantResolver implements TenantResolver {
+
+    @Inject
+    RoteadorDataSource roteador;
+
+    @Override
+    public String getDefaultTenantId() {
+        return RoteadorDataSource.PRIMARIO;
+    }
+
+    @Override
+    public String resolveTenantId() {
+        return roteador.rotaAtual();
+    }
+}
@@ -0,0 +1,19 @@
+package com.fipe.api1.datasource;
+
+import jakarta.interceptor.InterceptorBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Método de leitura que pode ser atendido por uma réplica (ver RoteadorDataSource)
+ * Só para métodos que devolvem DTOs ou valores: a transação na réplica termina com o método,
+ * então entidades devolvidas ficariam desanexadas
+ */
+@InterceptorBinding
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SomenteLeitura {
+}
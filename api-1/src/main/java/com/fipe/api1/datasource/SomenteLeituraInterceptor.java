@@ -0,0 +1,43 @@
+package com.fipe.api1.datasource;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.SystemException;
+import jakarta.transaction.TransactionManager;
+
+/**
+ * Leva os métodos @SomenteLeitura para uma réplica quando possível
+ * Fica no primário dentro de uma transação já aberta (a leitura enxerga o que ela escreveu),
+ * logo após uma escrita da mesma sessão ou sem réplica dentro do atraso máximo
+ */
+@SomenteLeitura
+@Interceptor
+@Priority(Interceptor.Priority.PLATFORM_BEFORE + 300)
+public class SomenteLeituraInterceptor {
+
+    @Inject
+    RoteadorDataSource roteador;
+
+    @Inject
+    TransactionManager transactionManager;
+
+    @AroundInvoke
+    Object rotear(InvocationContext ctx) throws Exception {
+        if (!roteador.isHabilitado() || roteador.emReplica() || transacaoAtiva() || roteador.primarioObrigatorio()) {
+            return ctx.proceed();
+        }
+        String replica = roteador.escolherReplica();
+        if (replica == null) {
+            return ctx.proceed();
+        }
+        return roteador.naReplica(replica, ctx::proceed);
+    }
+
+    private boolean transacaoAtiva() throws SystemException {
+        return transactionManager.getStatus() != Status.STATUS_NO_TRANSACTION;
+    }
+}
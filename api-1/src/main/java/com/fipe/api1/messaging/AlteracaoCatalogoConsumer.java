@@ -0,0 +1,89 @@
+package com.fipe.api1.messaging;
+
+import com.fipe.api1.service.AquecimentoService;
+import com.fipe.api1.service.CacheService;
+import com.fipe.shared.entity.TipoVeiculo;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.reactive.messaging.Incoming;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Consumer do feed de alterações do catálogo publicado pelo api-2 (AlteracaoCatalogo)
+ *
+ * Invalida só as chaves afetadas: a marca (e as listas do seu tipo) quando ela foi inserida, os modelos
+ * citados e as listas de modelos da marca; depois recarrega as listagens populares da marca.
+ * A fila é compartilhada entre as instâncias porque o cache no Redis também é: basta uma invalidar.
+ *
+ * Se o Redis falhar a mensagem é rejeitada (nack) e volta pela fila de espera (dead-letter com TTL,
+ * ver catalogo-alteracoes-in no application.properties) até a invalidação passar; só payloads
+ * inválidos são descartados, já que nenhuma nova tentativa os corrigiria.
+ */
+@ApplicationScoped
+public class AlteracaoCatalogoConsumer {
+
+    private static final Logger LOG = Logger.getLogger(AlteracaoCatalogoConsumer.class);
+
+    @Inject
+    CacheService cacheService;
+
+    @Inject
+    AquecimentoService aquecimentoService;
+
+    @Incoming("catalogo-alteracoes-in")
+    public CompletionStage<Void> alteracao(Message<JsonObject> message) {
+        String codigoMarca;
+        TipoVeiculo tipoVeiculo;
+        boolean marcaAlterada;
+        List<String> modelos = new ArrayList<>();
+        try {
+            JsonObject payload = message.getPayload();
+            codigoMarca = payload.getString("codigoMarca");
+            tipoVeiculo = TipoVeiculo.fromString(payload.getString("tipoVeiculo"));
+            marcaAlterada = payload.getBoolean("marcaAlterada", false);
+            modelos.addAll(codigos(payload.getJsonArray("modelosAdicionados")));
+            modelos.addAll(codigos(payload.getJsonArray("modelosAlterados")));
+            if (codigoMarca == null) {
+                throw new IllegalArgumentException("codigoMarca ausente");
+            }
+        } catch (Exception e) {
+            LOG.errorf("Alteração de catálogo inválida descartada: %s", e.getMessage());
+            return message.ack();
+        }
+
+        LOG.infof("Alteração no catálogo da marca %s (%s): marca alterada=%s, %d modelos",
+                codigoMarca, tipoVeiculo, marcaAlterada, modelos.size());
+        boolean invalidado = true;
+        if (marcaAlterada) {
+            invalidado &= cacheService.invalidateMarca(codigoMarca, tipoVeiculo);
+        }
+        if (!modelos.isEmpty()) {
+            invalidado &= cacheService.invalidateModelos(modelos);
+            invalidado &= cacheService.invalidateModelosLists(codigoMarca);
+        }
+        if (!invalidado) {
+            // As invalidações são idempotentes: a nova tentativa repete todas
+            LOG.warnf("Invalidação da marca %s falhou, alteração devolvida para nova tentativa", codigoMarca);
+            return message.nack(new IllegalStateException("Falha ao invalidar o cache da marca " + codigoMarca));
+        }
+        aquecimentoService.aquecerMarca(codigoMarca, tipoVeiculo);
+        return message.ack();
+    }
+
+    private static List<String> codigos(JsonArray array) {
+        List<String> codigos = new ArrayList<>();
+        if (array != null) {
+            for (int i = 0; i < array.size(); i++) {
+                codigos.add(array.getString(i));
+            }
+        }
+        return codigos;
+    }
+}
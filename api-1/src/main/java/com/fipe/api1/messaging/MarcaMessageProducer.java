@@ -1,6 +1,12 @@
 package com.fipe.api1.messaging;
 
 import com.fipe.shared.dto.MarcaQueueMessage;
+import com.fipe.shared.entity.TipoVeiculo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.context.Context;
+import io.smallrye.reactive.messaging.TracingMetadata;
 import jakarta.enterprise.context.ApplicationScoped;
 import org.eclipse.microprofile.reactive.messaging.Channel;
 import org.eclipse.microprofile.reactive.messaging.Emitter;
@@ -9,11 +15,17 @@ import org.jboss.logging.Logger;
 
 import jakarta.inject.Inject;
 import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Producer responsável por enviar mensagens de marcas para a fila
  * Implementa o padrão de messaging assíncrono
+ *
+ * Toda publicação é medida: fipe.ingestao.publicacoes (por tipo) e fipe.ingestao.confirmacao,
+ * o tempo até o broker confirmar (ack) ou recusar (nack) a mensagem
  */
 @ApplicationScoped
 public class MarcaMessageProducer {
@@ -24,11 +36,18 @@ public class MarcaMessageProducer {
     @Channel("marcas-out")
     Emitter<MarcaQueueMessage> marcasEmitter;
 
+    @Inject
+    MeterRegistry registry;
+
+    private final AtomicLong enviadas = new AtomicLong();
+    private final AtomicLong confirmadas = new AtomicLong();
+    private final AtomicLong rejeitadas = new AtomicLong();
+
     /**
      * Envia uma marca para a fila de processamento
      * 1.3 - Implementa o envio de marcas para fila
      */
-    public CompletionStage<Void> enviarMarca(String codigoMarca, String nomeMarca, String tipoVeiculo) {
+    public CompletionStage<Void> enviarMarca(String codigoMarca, String nomeMarca, TipoVeiculo tipoVeiculo) {
         try {
             // Validar parâmetros
             validarParametros(codigoMarca, nomeMarca, tipoVeiculo);
@@ -44,24 +63,41 @@ public class MarcaMessageProducer {
                      codigoMarca, nomeMarca, tipoVeiculo);
             
             // Enviar mensagem
-            marcasEmitter.send(Message.of(mensagem));
+            marcasEmitter.send(mensagemMedida(mensagem, null));
             LOG.infof("Marca %s enviada para a fila", nomeMarca);
             
-            return java.util.concurrent.CompletableFuture.completedStage(null);
+            return CompletableFuture.completedStage(null);
                 
         } catch (Exception e) {
             LOG.errorf("Erro ao preparar envio da marca %s: %s", nomeMarca, e.getMessage());
-            return java.util.concurrent.CompletableFuture.failedStage(e);
+            return CompletableFuture.failedStage(e);
         }
     }
 
+    /**
+     * Envia uma marca e só completa quando o conector confirma a publicação (ack) ou falha (nack)
+     * Usado pela carga inicial para reportar o progresso real de publicação
+     */
+    public CompletionStage<Void> enviarMarcaConfirmada(String codigoMarca, String nomeMarca, TipoVeiculo tipoVeiculo) {
+        CompletableFuture<Void> confirmacao = new CompletableFuture<>();
+        try {
+            validarParametros(codigoMarca, nomeMarca, tipoVeiculo);
+            MarcaQueueMessage mensagem = new MarcaQueueMessage(codigoMarca, nomeMarca, tipoVeiculo);
+            marcasEmitter.send(mensagemMedida(mensagem, confirmacao));
+        } catch (Exception e) {
+            LOG.errorf("Erro ao enviar marca %s: %s", nomeMarca, e.getMessage());
+            confirmacao.completeExceptionally(e);
+        }
+        return confirmacao;
+    }
+
     /**
      * Envia múltiplas marcas para a fila
      */
-    public CompletionStage<Void> enviarMarcas(java.util.List<com.fipe.shared.dto.MarcaDTO> marcas, String tipoVeiculo) {
+    public CompletionStage<Void> enviarMarcas(java.util.List<com.fipe.shared.dto.MarcaDTO> marcas, TipoVeiculo tipoVeiculo) {
         if (marcas == null || marcas.isEmpty()) {
             LOG.warn("Lista de marcas vazia, nenhuma mensagem será enviada");
-            return java.util.concurrent.CompletableFuture.completedStage(null);
+            return CompletableFuture.completedStage(null);
         }
         
         LOG.infof("Enviando %d marcas do tipo %s para a fila", marcas.size(), tipoVeiculo);
@@ -72,8 +108,8 @@ public class MarcaMessageProducer {
             .collect(java.util.stream.Collectors.toList());
         
         // Aguardar todos os envios completarem
-        return java.util.concurrent.CompletableFuture.allOf(
-            envios.toArray(new java.util.concurrent.CompletableFuture[0])
+        return CompletableFuture.allOf(
+            envios.toArray(new CompletableFuture[0])
         ).thenRun(() -> {
             LOG.infof("Todas as %d marcas do tipo %s foram enviadas com sucesso", 
                      marcas.size(), tipoVeiculo);
@@ -87,7 +123,7 @@ public class MarcaMessageProducer {
     /**
      * Envia marca de forma síncrona (para casos específicos)
      */
-    public void enviarMarcaSync(String codigoMarca, String nomeMarca, String tipoVeiculo) {
+    public void enviarMarcaSync(String codigoMarca, String nomeMarca, TipoVeiculo tipoVeiculo) {
         try {
             validarParametros(codigoMarca, nomeMarca, tipoVeiculo);
             
@@ -100,7 +136,7 @@ public class MarcaMessageProducer {
             LOG.infof("Enviando marca sincronamente: %s - %s (%s)", 
                      codigoMarca, nomeMarca, tipoVeiculo);
             
-            marcasEmitter.send(mensagem);
+            marcasEmitter.send(mensagemMedida(mensagem, null));
             
             LOG.infof("Marca %s enviada sincronamente com sucesso", nomeMarca);
             
@@ -110,10 +146,52 @@ public class MarcaMessageProducer {
         }
     }
 
+    /**
+     * Mensagem que registra a publicação e, na confirmação do conector, a latência até o ack/nack
+     * Se houver, a confirmação recebida é completada junto; o span atual vira o pai do span de publicação
+     */
+    private Message<MarcaQueueMessage> mensagemMedida(MarcaQueueMessage mensagem, CompletableFuture<Void> confirmacao) {
+        Counter.builder("fipe.ingestao.publicacoes")
+            .description("Marcas publicadas na fila de processamento")
+            .tags("tipo", mensagem.tipoVeiculo.getCodigo())
+            .register(registry)
+            .increment();
+        enviadas.incrementAndGet();
+        long inicio = System.nanoTime();
+        // O conector publica dentro do contexto de tracing de quem enviou e o leva nos cabeçalhos AMQP
+        return Message.of(mensagem)
+            .addMetadata(TracingMetadata.withCurrent(Context.current()))
+            .withAck(() -> {
+                confirmadas.incrementAndGet();
+                registrarConfirmacao("ack", inicio);
+                if (confirmacao != null) {
+                    confirmacao.complete(null);
+                }
+                return CompletableFuture.completedFuture(null);
+            })
+            .withNack(erro -> {
+                rejeitadas.incrementAndGet();
+                registrarConfirmacao("nack", inicio);
+                if (confirmacao != null) {
+                    confirmacao.completeExceptionally(erro);
+                }
+                return CompletableFuture.completedFuture(null);
+            });
+    }
+
+    private void registrarConfirmacao(String resultado, long inicio) {
+        Timer.builder("fipe.ingestao.confirmacao")
+            .description("Tempo entre a publicação e a confirmação do broker")
+            .tags("resultado", resultado)
+            .publishPercentileHistogram()
+            .register(registry)
+            .record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+    }
+
     /**
      * Valida os parâmetros da mensagem
      */
-    private void validarParametros(String codigoMarca, String nomeMarca, String tipoVeiculo) {
+    private void validarParametros(String codigoMarca, String nomeMarca, TipoVeiculo tipoVeiculo) {
         if (codigoMarca == null || codigoMarca.trim().isEmpty()) {
             throw new IllegalArgumentException("Código da marca é obrigatório");
         }
@@ -122,15 +200,10 @@ public class MarcaMessageProducer {
             throw new IllegalArgumentException("Nome da marca é obrigatório");
         }
         
-        if (tipoVeiculo == null || tipoVeiculo.trim().isEmpty()) {
+        // Tipo já canonicalizado na borda da API; aqui só a presença é verificada
+        if (tipoVeiculo == null) {
             throw new IllegalArgumentException("Tipo de veículo é obrigatório");
         }
-        
-        // Validar tipos de veículo aceitos
-        String tipo = tipoVeiculo.toLowerCase();
-        if (!tipo.equals("carros") && !tipo.equals("motos") && !tipo.equals("caminhoes")) {
-            throw new IllegalArgumentException("Tipo de veículo inválido: " + tipoVeiculo);
-        }
     }
 
     /**
@@ -149,16 +222,24 @@ public class MarcaMessageProducer {
      * Obtém estatísticas do producer (se disponível)
      */
     public ProducerStats getStats() {
-        return new ProducerStats(
+        ProducerStats stats = new ProducerStats(
             isEmitterReady(),
             marcasEmitter != null ? !marcasEmitter.isCancelled() : false
         );
+        stats.enviadas = enviadas.get();
+        stats.confirmadas = confirmadas.get();
+        stats.rejeitadas = rejeitadas.get();
+        return stats;
     }
 
     // Classe auxiliar para estatísticas
     public static class ProducerStats {
         public boolean emitterReady;
         public boolean emitterActive;
+        // Totais desde o início; aguardando confirmação = enviadas - confirmadas - rejeitadas
+        public long enviadas;
+        public long confirmadas;
+        public long rejeitadas;
         
         public ProducerStats() {}
         
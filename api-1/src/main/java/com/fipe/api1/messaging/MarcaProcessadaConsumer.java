@@ -0,0 +1,43 @@
+package com.fipe.api1.messaging;
+
+import com.fipe.api1.service.CargaInicialService;
+import com.fipe.shared.entity.TipoVeiculo;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.reactive.messaging.Incoming;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Consumer dos avisos de marca processada publicados pelo api-2
+ * Cada instância tem a sua fila (ligada ao exchange marcas-processadas), então todas recebem o aviso
+ * Só acompanha a carga inicial; o cache é invalidado pelo feed de alterações (AlteracaoCatalogoConsumer)
+ */
+@ApplicationScoped
+public class MarcaProcessadaConsumer {
+
+    private static final Logger LOG = Logger.getLogger(MarcaProcessadaConsumer.class);
+
+    @Inject
+    CargaInicialService cargaInicialService;
+
+    @Incoming("marcas-processadas-in")
+    public CompletionStage<Void> marcaProcessada(Message<JsonObject> message) {
+        try {
+            JsonObject payload = message.getPayload();
+            String codigoMarca = payload.getString("codigoMarca");
+            TipoVeiculo tipoVeiculo = TipoVeiculo.fromString(payload.getString("tipoVeiculo"));
+            
+            LOG.infof("Marca %s (%s) processada pelo api-2", codigoMarca, tipoVeiculo);
+            cargaInicialService.marcaProcessada(codigoMarca, tipoVeiculo);
+            
+        } catch (Exception e) {
+            // Aviso é só otimização: mensagem inválida é descartada
+            LOG.warnf("Aviso de marca processada ignorado: %s", e.getMessage());
+        }
+        return message.ack();
+    }
+}
@@ -1,37 +1,127 @@
 package com.fipe.api1.repository;
 
+import com.fipe.shared.dto.MarcaResumo;
+import com.fipe.shared.dto.PageCursor;
+import com.fipe.shared.entity.Contador;
 import com.fipe.shared.entity.Marca;
+import com.fipe.shared.entity.TipoVeiculo;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @ApplicationScoped
 public class MarcaRepository implements PanacheRepository<Marca> {
 
-    public List<Marca> findByTipoVeiculo(String tipoVeiculo) {
-        if (tipoVeiculo == null || tipoVeiculo.trim().isEmpty()) {
-            return find("ORDER BY nome").list();
+    public List<Marca> findByTipoVeiculo(TipoVeiculo tipoVeiculo) {
+        if (tipoVeiculo == null) {
+            return find("ORDER BY nome, id").list();
         }
-        return find("LOWER(tipoVeiculo) = LOWER(?1) ORDER BY nome", tipoVeiculo).list();
+        return find("tipoVeiculo = ?1 ORDER BY nome, id", tipoVeiculo).list();
     }
 
-    public List<Marca> findByTipoVeiculo(String tipoVeiculo, int page, int size) {
-        if (tipoVeiculo == null || tipoVeiculo.trim().isEmpty()) {
-            return find("ORDER BY nome").page(page, size).list();
+    public List<Marca> findByTipoVeiculo(TipoVeiculo tipoVeiculo, int page, int size) {
+        if (tipoVeiculo == null) {
+            return find("ORDER BY nome, id").page(page, size).list();
         }
-        return find("LOWER(tipoVeiculo) = LOWER(?1) ORDER BY nome", tipoVeiculo).page(page, size).list();
+        return find("tipoVeiculo = ?1 ORDER BY nome, id", tipoVeiculo).page(page, size).list();
+    }
+
+    /**
+     * Página de marcas e total do filtro em uma única consulta
+     * O total é uma subconsulta escalar na tabela de contadores (sem contar as linhas do filtro)
+     * Projeção em tupla com as colunas da listagem; total fica null quando a página está além do fim
+     */
+    public PaginaMarcas findPaginaByTipoVeiculo(TipoVeiculo tipoVeiculo, int page, int size) {
+        String select = "SELECT m.id, m.codigoFipe, m.nome, m.tipoVeiculo, "
+            + "COALESCE((SELECT c.total FROM Contador c WHERE c.chave = ?1), 0) FROM Marca m ";
+        TypedQuery<Object[]> query;
+        if (tipoVeiculo == null) {
+            query = getEntityManager().createQuery(select + "ORDER BY m.nome, m.id", Object[].class);
+        } else {
+            query = getEntityManager().createQuery(
+                    select + "WHERE m.tipoVeiculo = ?2 ORDER BY m.nome, m.id", Object[].class)
+                .setParameter(2, tipoVeiculo);
+        }
+        query.setParameter(1, Contador.chaveTipo(tipoVeiculo));
+        List<Object[]> linhas = query.setFirstResult(page * size).setMaxResults(size).getResultList();
+        
+        List<MarcaResumo> marcas = new ArrayList<>(linhas.size());
+        for (Object[] linha : linhas) {
+            marcas.add(new MarcaResumo((Long) linha[0], (String) linha[1], (String) linha[2], (TipoVeiculo) linha[3]));
+        }
+        return new PaginaMarcas(marcas, linhas.isEmpty() ? null : (Long) linhas.get(0)[4]);
+    }
+
+    /**
+     * Paginação por chave: marcas após o cursor (nome, id), sem OFFSET
+     * (nome, id) > cursor como comparação de linha, para o banco iniciar a leitura do índice no cursor
+     * Projeção por construtor, apenas com as colunas da listagem
+     */
+    public List<MarcaResumo> findByTipoVeiculoAfter(TipoVeiculo tipoVeiculo, PageCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder(
+            "SELECT new com.fipe.shared.dto.MarcaResumo(m.id, m.codigoFipe, m.nome, m.tipoVeiculo) FROM Marca m WHERE 1 = 1");
+        if (tipoVeiculo != null) {
+            jpql.append(" AND m.tipoVeiculo = :tipo");
+        }
+        if (after != null) {
+            jpql.append(" AND (m.nome, m.id) > (:nome, :id)");
+        }
+        TypedQuery<MarcaResumo> query = getEntityManager()
+            .createQuery(jpql.append(" ORDER BY m.nome, m.id").toString(), MarcaResumo.class);
+        if (tipoVeiculo != null) {
+            query.setParameter("tipo", tipoVeiculo);
+        }
+        if (after != null) {
+            query.setParameter("nome", after.nome).setParameter("id", after.id);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Marcas com id maior que o informado, para carga incremental do índice de busca
+     */
+    public List<MarcaResumo> findResumosAposId(long id) {
+        return getEntityManager().createQuery(
+                "SELECT new com.fipe.shared.dto.MarcaResumo(m.id, m.codigoFipe, m.nome, m.tipoVeiculo) "
+                + "FROM Marca m WHERE m.id > ?1 ORDER BY m.id", MarcaResumo.class)
+            .setParameter(1, id)
+            .getResultList();
+    }
+
+    /**
+     * Todas as marcas na ordem das listagens (nome, id), para o snapshot do catálogo em memória
+     */
+    public List<MarcaResumo> listResumos() {
+        return getEntityManager().createQuery(
+                "SELECT new com.fipe.shared.dto.MarcaResumo(m.id, m.codigoFipe, m.nome, m.tipoVeiculo) "
+                + "FROM Marca m ORDER BY m.nome, m.id", MarcaResumo.class)
+            .getResultList();
+    }
+
+    /**
+     * Marcas com os códigos informados, em uma única consulta (IN), para a busca em lote
+     */
+    public List<MarcaResumo> findResumosByCodigos(Collection<String> codigos) {
+        return getEntityManager().createQuery(
+                "SELECT new com.fipe.shared.dto.MarcaResumo(m.id, m.codigoFipe, m.nome, m.tipoVeiculo) "
+                + "FROM Marca m WHERE m.codigoFipe IN ?1 ORDER BY m.id", MarcaResumo.class)
+            .setParameter(1, codigos)
+            .getResultList();
     }
 
     public List<Marca> findAll(int page, int size) {
-        return find("ORDER BY nome").page(page, size).list();
+        return find("ORDER BY nome, id").page(page, size).list();
     }
 
-    public long countByTipoVeiculo(String tipoVeiculo) {
-        if (tipoVeiculo == null || tipoVeiculo.trim().isEmpty()) {
+    public long countByTipoVeiculo(TipoVeiculo tipoVeiculo) {
+        if (tipoVeiculo == null) {
             return count();
         }
-        return count("LOWER(tipoVeiculo) = LOWER(?1)", tipoVeiculo);
+        return count("tipoVeiculo = ?1", tipoVeiculo);
     }
 
     public Optional<Marca> findByCodigoFipe(String codigoFipe) {
@@ -41,4 +131,19 @@ public class MarcaRepository implements PanacheRepository<Marca> {
     public boolean existsByCodigoFipe(String codigoFipe) {
         return count("codigoFipe", codigoFipe) > 0;
     }
+
+    /**
+     * Resultado de uma listagem de marcas: página e total do filtro
+     */
+    public static class PaginaMarcas {
+        public List<MarcaResumo> marcas;
+        public Long total;
+
+        public PaginaMarcas() {}
+
+        public PaginaMarcas(List<MarcaResumo> marcas, Long total) {
+            this.marcas = marcas;
+            this.total = total;
+        }
+    }
 }
\ No newline at end of file
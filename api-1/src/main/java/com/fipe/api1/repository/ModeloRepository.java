@@ -1,16 +1,143 @@
 package com.fipe.api1.repository;
 
+import com.fipe.shared.dto.ModeloResumo;
+import com.fipe.shared.dto.PageCursor;
+import com.fipe.shared.entity.Contador;
 import com.fipe.shared.entity.Modelo;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.TypedQuery;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.query.NativeQuery;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @ApplicationScoped
 public class ModeloRepository implements PanacheRepository<Modelo> {
 
-    public List<Modelo> findByMarcaCodigoFipe(String codigoMarca, int page, int size) {
-        return find("marca.codigoFipe = ?1 ORDER BY nome", codigoMarca).page(page, size).list();
+    // Colunas devolvidas pela edição: o modelo já atualizado e a sua marca
+    private static final String COLUNAS_ATUALIZADO = "mo.id AS id, mo.codigo_fipe AS codigo, mo.nome AS nome, "
+        + "mo.observacoes AS observacoes, mo.data_criacao AS data_criacao, mo.data_atualizacao AS data_atualizacao, "
+        + "mo.versao AS versao, ma.codigo_fipe AS codigo_marca, ma.nome AS nome_marca";
+
+    // Total de modelos da marca lido dos contadores (chave no parâmetro ?2), nunca contando as linhas
+    private static final String TOTAL_MARCA = "COALESCE((SELECT c.total FROM Contador c WHERE c.chave = ?2), 0) ";
+
+    @ConfigProperty(name = "quarkus.datasource.db-kind")
+    String dbKind;
+
+    /**
+     * Marca, página de modelos e total da marca em uma única consulta
+     * LEFT JOIN mantém a linha da marca mesmo sem modelos; o total é uma subconsulta escalar nos contadores
+     * Projeção em tupla: apenas as colunas exibidas na listagem, sem carregar entidades
+     * Retorna vazio se a marca não existir
+     */
+    public Optional<PaginaModelos> findPaginaByMarcaCodigoFipe(String codigoMarca, int page, int size) {
+        List<Object[]> linhas = getEntityManager().createQuery(
+                "SELECT ma.codigoFipe, ma.nome, mo.id, mo.codigoFipe, mo.nome, mo.observacoes, " + TOTAL_MARCA
+                + "FROM Marca ma LEFT JOIN Modelo mo ON mo.marca = ma "
+                + "WHERE ma.codigoFipe = ?1 ORDER BY mo.nome, mo.id", Object[].class)
+            .setParameter(1, codigoMarca)
+            .setParameter(2, Contador.chaveMarca(codigoMarca))
+            .setFirstResult(page * size)
+            .setMaxResults(size)
+            .getResultList();
+        
+        if (linhas.isEmpty()) {
+            // Página além do fim (ou marca inexistente): cabeçalho e total em uma consulta
+            return page == 0 ? Optional.empty() : findCabecalho(codigoMarca);
+        }
+        return Optional.of(toPagina(linhas, (Long) linhas.get(0)[6]));
+    }
+
+    /**
+     * Paginação por chave: marca e modelos após o cursor (nome, id) em uma única consulta, sem OFFSET
+     * O predicado do cursor, uma comparação de linha (nome, id), fica no ON para preservar a linha da marca;
+     * o total vem dos contadores na mesma consulta
+     */
+    public Optional<PaginaModelos> findPaginaByMarcaCodigoFipeAfter(String codigoMarca, PageCursor after, int limit) {
+        String select = "SELECT ma.codigoFipe, ma.nome, mo.id, mo.codigoFipe, mo.nome, mo.observacoes, " + TOTAL_MARCA
+            + "FROM Marca ma LEFT JOIN Modelo mo ON mo.marca = ma ";
+        TypedQuery<Object[]> query;
+        if (after == null) {
+            query = getEntityManager().createQuery(
+                    select + "WHERE ma.codigoFipe = ?1 ORDER BY mo.nome, mo.id", Object[].class);
+        } else {
+            query = getEntityManager().createQuery(
+                    select + "AND (mo.nome, mo.id) > (?3, ?4) "
+                    + "WHERE ma.codigoFipe = ?1 ORDER BY mo.nome, mo.id", Object[].class)
+                .setParameter(3, after.nome)
+                .setParameter(4, after.id);
+        }
+        List<Object[]> linhas = query
+            .setParameter(1, codigoMarca)
+            .setParameter(2, Contador.chaveMarca(codigoMarca))
+            .setMaxResults(limit)
+            .getResultList();
+        return linhas.isEmpty() ? Optional.empty() : Optional.of(toPagina(linhas, (Long) linhas.get(0)[6]));
+    }
+
+    private Optional<PaginaModelos> findCabecalho(String codigoMarca) {
+        List<Object[]> linhas = getEntityManager().createQuery(
+                "SELECT ma.codigoFipe, ma.nome, " + TOTAL_MARCA + "FROM Marca ma WHERE ma.codigoFipe = ?1", Object[].class)
+            .setParameter(1, codigoMarca)
+            .setParameter(2, Contador.chaveMarca(codigoMarca))
+            .getResultList();
+        if (linhas.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] linha = linhas.get(0);
+        return Optional.of(new PaginaModelos((String) linha[0], (String) linha[1], new ArrayList<>(), (Long) linha[2]));
+    }
+
+    private PaginaModelos toPagina(List<Object[]> linhas, Long total) {
+        String codigoMarca = (String) linhas.get(0)[0];
+        String nomeMarca = (String) linhas.get(0)[1];
+        List<ModeloResumo> modelos = new ArrayList<>(linhas.size());
+        for (Object[] linha : linhas) {
+            // Sem modelos, o LEFT JOIN traz uma única linha com as colunas do modelo nulas
+            if (linha[2] != null) {
+                modelos.add(new ModeloResumo((Long) linha[2], (String) linha[3], (String) linha[4],
+                    (String) linha[5], codigoMarca, nomeMarca));
+            }
+        }
+        return new PaginaModelos(codigoMarca, nomeMarca, modelos, total);
+    }
+
+    /**
+     * Modelos com id maior que o informado (com o nome da marca), para carga incremental do índice de busca
+     */
+    public List<ModeloResumo> findResumosAposId(long id) {
+        return getEntityManager().createQuery(
+                "SELECT new com.fipe.shared.dto.ModeloResumo(m.id, m.codigoFipe, m.nome, ma.codigoFipe, ma.nome) "
+                + "FROM Modelo m JOIN m.marca ma WHERE m.id > ?1 ORDER BY m.id", ModeloResumo.class)
+            .setParameter(1, id)
+            .getResultList();
+    }
+
+    /**
+     * Todos os modelos (com observações e marca) na ordem das listagens (nome, id), para o snapshot do catálogo
+     */
+    public List<ModeloResumo> listResumos() {
+        return getEntityManager().createQuery(
+                "SELECT new com.fipe.shared.dto.ModeloResumo(m.id, m.codigoFipe, m.nome, m.observacoes, ma.codigoFipe, ma.nome) "
+                + "FROM Modelo m JOIN m.marca ma ORDER BY m.nome, m.id", ModeloResumo.class)
+            .getResultList();
+    }
+
+    /**
+     * Modelos com os códigos informados, em uma única consulta (IN), para a busca em lote
+     * Ordenado por id: se um código se repetir, o primeiro de cada código é o de menor id
+     */
+    public List<ModeloResumo> findResumosByCodigos(Collection<String> codigos) {
+        return getEntityManager().createQuery(
+                "SELECT new com.fipe.shared.dto.ModeloResumo(m.id, m.codigoFipe, m.nome, m.observacoes, ma.codigoFipe, ma.nome) "
+                + "FROM Modelo m JOIN m.marca ma WHERE m.codigoFipe IN ?1 ORDER BY m.id", ModeloResumo.class)
+            .setParameter(1, codigos)
+            .getResultList();
     }
 
     public long countByMarcaCodigoFipe(String codigoMarca) {
@@ -28,4 +155,143 @@ public class ModeloRepository implements PanacheRepository<Modelo> {
     public boolean existsByCodigoFipe(String codigoFipe) {
         return count("codigoFipe", codigoFipe) > 0;
     }
-}
\ No newline at end of file
+
+    /**
+     * Quantos modelos têm o código FIPE (na marca, se informada): modelos.codigo_fipe não é único entre marcas
+     */
+    public long contarPorCodigo(String codigoFipe, String codigoMarca) {
+        if (codigoMarca == null) {
+            return count("codigoFipe", codigoFipe);
+        }
+        return count("codigoFipe = ?1 AND marca.codigoFipe = ?2", codigoFipe, codigoMarca);
+    }
+
+    /**
+     * Edição condicional em um único statement: nome e observações (os informados), data de atualização e versão + 1,
+     * só se o modelo ainda estiver na versão lida pelo cliente (versao null: sem condição); devolve o modelo
+     * atualizado com a marca, sem carregar entidades. Vazio se nenhuma linha mudou (inexistente ou versão diferente)
+     *
+     * Como o código FIPE do modelo se repete entre marcas, o UPDATE só vale se o código (restrito à marca,
+     * quando informada) identificar exatamente uma linha; com mais de uma, nada muda e o vazio é desambiguado
+     * por contarPorCodigo
+     *
+     * PostgreSQL: UPDATE ... FROM marcas ... RETURNING; H2 (dev/teste): SELECT sobre FINAL TABLE (UPDATE ...)
+     */
+    public Optional<ModeloAtualizado> atualizar(String codigoFipe, String codigoMarca, String nome, String observacoes,
+                                                Long versao) {
+        StringBuilder set = new StringBuilder("data_atualizacao = :agora, versao = versao + 1");
+        if (nome != null) {
+            set.append(", nome = :nome");
+        }
+        if (observacoes != null) {
+            set.append(", observacoes = :observacoes");
+        }
+
+        String daMarca = codigoMarca != null ? " AND %s.marca_id = (SELECT id FROM marcas WHERE codigo_fipe = :marca)" : "";
+        String unico = " AND (SELECT COUNT(*) FROM modelos unico WHERE unico.codigo_fipe = :codigo"
+            + String.format(daMarca, "unico") + ") = 1";
+
+        String sql;
+        if ("postgresql".equals(dbKind)) {
+            sql = "UPDATE modelos mo SET " + set + " FROM marcas ma WHERE ma.id = mo.marca_id "
+                + "AND mo.codigo_fipe = :codigo" + String.format(daMarca, "mo") + unico
+                + (versao != null ? " AND mo.versao = :versao" : "")
+                + " RETURNING " + COLUNAS_ATUALIZADO;
+        } else {
+            sql = "SELECT " + COLUNAS_ATUALIZADO + " FROM FINAL TABLE (UPDATE modelos alvo SET " + set
+                + " WHERE alvo.codigo_fipe = :codigo" + String.format(daMarca, "alvo") + unico
+                + (versao != null ? " AND alvo.versao = :versao" : "")
+                + ") mo JOIN marcas ma ON ma.id = mo.marca_id";
+        }
+
+        NativeQuery<Object[]> query = getEntityManager().createNativeQuery(sql, Object[].class)
+            .unwrap(NativeQuery.class)
+            .addSynchronizedEntityClass(Modelo.class)
+            .addScalar("id", Long.class)
+            .addScalar("codigo", String.class)
+            .addScalar("nome", String.class)
+            .addScalar("observacoes", String.class)
+            .addScalar("data_criacao", LocalDateTime.class)
+            .addScalar("data_atualizacao", LocalDateTime.class)
+            .addScalar("versao", Long.class)
+            .addScalar("codigo_marca", String.class)
+            .addScalar("nome_marca", String.class);
+        query.setParameter("codigo", codigoFipe);
+        query.setParameter("agora", LocalDateTime.now());
+        if (codigoMarca != null) {
+            query.setParameter("marca", codigoMarca);
+        }
+        if (nome != null) {
+            query.setParameter("nome", nome);
+        }
+        if (observacoes != null) {
+            query.setParameter("observacoes", observacoes);
+        }
+        if (versao != null) {
+            query.setParameter("versao", versao);
+        }
+
+        List<Object[]> linhas = query.getResultList();
+        if (linhas.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] linha = linhas.get(0);
+        return Optional.of(new ModeloAtualizado((Long) linha[0], (String) linha[1], (String) linha[2],
+            (String) linha[3], (LocalDateTime) linha[4], (LocalDateTime) linha[5], (Long) linha[6],
+            (String) linha[7], (String) linha[8]));
+    }
+
+    /**
+     * Resultado de uma listagem de modelos: cabeçalho da marca, página e total
+     * total é null quando não calculado pela consulta (paginação por cursor)
+     */
+    public static class PaginaModelos {
+        public String codigoMarca;
+        public String nomeMarca;
+        public List<ModeloResumo> modelos;
+        public Long total;
+
+        public PaginaModelos() {}
+
+        public PaginaModelos(String codigoMarca, String nomeMarca, List<ModeloResumo> modelos, Long total) {
+            this.codigoMarca = codigoMarca;
+            this.nomeMarca = nomeMarca;
+            this.modelos = modelos;
+            this.total = total;
+        }
+    }
+
+    /**
+     * Modelo como ficou após a edição, com a marca (devolvido pelo próprio UPDATE)
+     */
+    public static class ModeloAtualizado {
+        public Long id;
+        public String codigoFipe;
+        public String nome;
+        public String observacoes;
+        public LocalDateTime dataCriacao;
+        public LocalDateTime dataAtualizacao;
+        public Long versao;
+        public String codigoMarca;
+        public String nomeMarca;
+
+        public ModeloAtualizado() {}
+
+        public ModeloAtualizado(Long id, String codigoFipe, String nome, String observacoes, LocalDateTime dataCriacao,
+                                LocalDateTime dataAtualizacao, Long versao, String codigoMarca, String nomeMarca) {
+            this.id = id;
+            this.codigoFipe = codigoFipe;
+            this.nome = nome;
+            this.observacoes = observacoes;
+            this.dataCriacao = dataCriacao;
+            this.dataAtualizacao = dataAtualizacao;
+            this.versao = versao;
+            this.codigoMarca = codigoMarca;
+            this.nomeMarca = nomeMarca;
+        }
+
+        public ModeloResumo resumo() {
+            return new ModeloResumo(id, codigoFipe, nome, observacoes, codigoMarca, nomeMarca);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.fipe.api1.service;
+
+import com.fipe.shared.entity.TipoVeiculo;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.sortedset.SortedSetCommands;
+import io.quarkus.redis.datasource.sortedset.ZRangeArgs;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Redis;
+import io.vertx.mutiny.redis.client.Request;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aquecimento do cache de listagens
+ *
+ * As listagens pedidas são contadas em memória e somadas periodicamente a um sorted set no Redis,
+ * compartilhado entre as instâncias. As mais pedidas são recarregadas na subida (antes de a instância
+ * ficar pronta), depois de limparCaches e quando o api-2 publica uma alteração no catálogo de uma marca.
+ * A recarga roda em paralelo e com taxa limitada, para não trocar um pico de misses por um pico de carga.
+ */
+@ApplicationScoped
+public class AquecimentoService {
+
+    private static final Logger LOG = Logger.getLogger(AquecimentoService.class);
+
+    private static final String POPULARES_KEY = "aquecimento:populares";
+    private static final String MARCAS = "marcas";
+    private static final String MODELOS = "modelos";
+    private static final String TODOS = "todos";
+    private static final char SEPARADOR = '|';
+
+    @Inject
+    VeiculoService veiculoService;
+
+    @Inject
+    CacheService cacheService;
+
+    @Inject
+    RedisDataSource redisDataSource;
+
+    @Inject
+    Redis redis;
+
+    @ConfigProperty(name = "fipe.aquecimento.enabled", defaultValue = "true")
+    boolean habilitado;
+
+    // Quantas listagens mais pedidas são recarregadas (e mantidas no ranking)
+    @ConfigProperty(name = "fipe.aquecimento.maximo", defaultValue = "500")
+    int maximo;
+
+    @ConfigProperty(name = "fipe.aquecimento.paralelismo", defaultValue = "4")
+    int paralelismo;
+
+    // Recargas por segundo, somando todas as threads
+    @ConfigProperty(name = "fipe.aquecimento.taxa", defaultValue = "50")
+    int taxa;
+
+    // Limite de espera do aquecimento na subida; depois disso a instância fica pronta mesmo assim
+    @ConfigProperty(name = "fipe.aquecimento.timeout", defaultValue = "PT60S")
+    Duration timeout;
+
+    @ConfigProperty(name = "fipe.aquecimento.registro-intervalo", defaultValue = "PT30S")
+    Duration intervaloRegistro;
+
+    // Só páginas/tamanhos dentro destes limites entram no ranking; o resto não vale a pena aquecer
+    @ConfigProperty(name = "fipe.aquecimento.pagina-maxima", defaultValue = "10")
+    int paginaMaxima;
+
+    @ConfigProperty(name = "fipe.aquecimento.tamanho-maximo", defaultValue = "100")
+    int tamanhoMaximo;
+
+    // Teto de listagens distintas contadas entre duas gravações; acima disso as novas são descartadas
+    @ConfigProperty(name = "fipe.aquecimento.pedidos-maximo", defaultValue = "5000")
+    int pedidosMaximo;
+
+    private final ConcurrentHashMap<String, LongAdder> pedidos = new ConcurrentHashMap<>();
+    private final AtomicBoolean gravando = new AtomicBoolean();
+    private final AtomicLong proximoSlot = new AtomicLong();
+    private volatile long proximaGravacao;
+    private volatile boolean pronto;
+    private ExecutorService executor;
+
+    void onStart(@Observes StartupEvent event) {
+        proximaGravacao = System.nanoTime() + intervaloRegistro.toNanos();
+        if (!habilitado) {
+            pronto = true;
+            return;
+        }
+        executor = Executors.newFixedThreadPool(Math.max(1, paralelismo), tarefa -> {
+            Thread thread = new Thread(tarefa, "cache-aquecimento");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Na subida: a instância só fica pronta depois do aquecimento (ou do timeout)
+        CompletableFuture.supplyAsync(() -> lerPopulares(null, null), executor)
+            .thenCompose(this::aquecer)
+            .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+            .whenComplete((resultado, erro) -> {
+                if (erro instanceof TimeoutException) {
+                    LOG.warnf("Aquecimento do cache não terminou em %s; instância marcada como pronta", timeout);
+                } else if (erro != null) {
+                    LOG.warnf("Erro no aquecimento do cache: %s", erro.getMessage());
+                }
+                pronto = true;
+            });
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        gravarPedidos();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Pronta para receber tráfego: aquecimento da subida concluído (ou desabilitado)
+     */
+    public boolean isPronto() {
+        return pronto;
+    }
+
+    /**
+     * Conta um pedido de página de marcas (offset ou primeira página por cursor)
+     */
+    public void registrarMarcas(TipoVeiculo tipoVeiculo, int page, int size) {
+        if (!dentroDosLimites(page, size)) {
+            return;
+        }
+        registrar(MARCAS + SEPARADOR + (tipoVeiculo == null ? TODOS : tipoVeiculo.getCodigo())
+            + SEPARADOR + page + SEPARADOR + size);
+    }
+
+    /**
+     * Conta um pedido de página de modelos da marca
+     */
+    public void registrarModelos(String codigoMarca, int page, int size) {
+        if (!dentroDosLimites(page, size)) {
+            return;
+        }
+        registrar(MODELOS + SEPARADOR + codigoMarca + SEPARADOR + page + SEPARADOR + size);
+    }
+
+    private boolean dentroDosLimites(int page, int size) {
+        return page >= 0 && page < paginaMaxima && size > 0 && size <= tamanhoMaximo;
+    }
+
+    /**
+     * Recarrega as listagens populares de todas as marcas e tipos (após limparCaches)
+     */
+    public void aquecerEmSegundoPlano() {
+        if (executor == null) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> aquecer(lerPopulares(null, null)), executor);
+    }
+
+    /**
+     * Catálogo da marca alterado pelo api-2: recarrega as listagens populares da marca e do tipo
+     * A invalidação das chaves afetadas é feita antes, por AlteracaoCatalogoConsumer
+     */
+    public void aquecerMarca(String codigoMarca, TipoVeiculo tipoVeiculo) {
+        if (executor == null) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> aquecer(lerPopulares(codigoMarca, tipoVeiculo)), executor);
+    }
+
+    private void registrar(String consulta) {
+        if (executor == null) {
+            return;
+        }
+        LongAdder contador = pedidos.get(consulta);
+        if (contador == null) {
+            // Chaves vêm da requisição: sem teto, o mapa cresce com qualquer combinação enviada
+            if (pedidos.size() >= pedidosMaximo) {
+                return;
+            }
+            contador = pedidos.computeIfAbsent(consulta, chave -> new LongAdder());
+        }
+        contador.increment();
+        if (System.nanoTime() - proximaGravacao >= 0 && gravando.compareAndSet(false, true)) {
+            proximaGravacao = System.nanoTime() + intervaloRegistro.toNanos();
+            CompletableFuture.runAsync(() -> {
+                try {
+                    gravarPedidos();
+                } finally {
+                    gravando.set(false);
+                }
+            }, executor);
+        }
+    }
+
+    /**
+     * Soma as contagens locais ao ranking no Redis (ZINCRBY) e mantém só as mais pedidas
+     */
+    private void gravarPedidos() {
+        if (pedidos.isEmpty()) {
+            return;
+        }
+        try {
+            List<Request> pipeline = new ArrayList<>();
+            for (String consulta : new ArrayList<>(pedidos.keySet())) {
+                LongAdder contador = pedidos.remove(consulta);
+                if (contador != null) {
+                    pipeline.add(Request.cmd(Command.ZINCRBY).arg(POPULARES_KEY).arg(contador.sum()).arg(consulta));
+                }
+            }
+            pipeline.add(Request.cmd(Command.ZREMRANGEBYRANK).arg(POPULARES_KEY).arg(0).arg(-(maximo + 1)));
+            redis.batchAndAwait(pipeline);
+            LOG.debugf("Ranking de aquecimento atualizado com %d listagens", pipeline.size() - 1);
+        } catch (Exception e) {
+            LOG.warnf("Erro ao gravar ranking de aquecimento: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Listagens mais pedidas, da mais para a menos popular
+     * Com marca/tipo informados, só as afetadas por eles (modelos da marca, marcas do tipo e de todos)
+     */
+    private List<String> lerPopulares(String codigoMarca, TipoVeiculo tipoVeiculo) {
+        List<String> populares;
+        try {
+            SortedSetCommands<String, String> sortedSet = redisDataSource.sortedSet(String.class);
+            populares = sortedSet.zrange(POPULARES_KEY, 0, maximo - 1, new ZRangeArgs().rev());
+        } catch (Exception e) {
+            LOG.warnf("Erro ao ler ranking de aquecimento: %s", e.getMessage());
+            return List.of();
+        }
+        if (codigoMarca == null) {
+            return populares;
+        }
+        String modelos = MODELOS + SEPARADOR + codigoMarca + SEPARADOR;
+        String marcasTipo = MARCAS + SEPARADOR + tipoVeiculo.getCodigo() + SEPARADOR;
+        String marcasTodos = MARCAS + SEPARADOR + TODOS + SEPARADOR;
+        List<String> afetadas = new ArrayList<>();
+        for (String consulta : populares) {
+            if (consulta.startsWith(modelos) || consulta.startsWith(marcasTipo) || consulta.startsWith(marcasTodos)) {
+                afetadas.add(consulta);
+            }
+        }
+        return afetadas;
+    }
+
+    /**
+     * Recarrega as listagens em paralelo, respeitando a taxa configurada
+     */
+    private CompletableFuture<Void> aquecer(List<String> consultas) {
+        if (consultas.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long inicio = System.nanoTime();
+        List<CompletableFuture<Void>> recargas = new ArrayList<>(consultas.size());
+        for (String consulta : consultas) {
+            recargas.add(CompletableFuture.runAsync(() -> {
+                aguardarVez();
+                try {
+                    recarregar(consulta);
+                } catch (Exception e) {
+                    LOG.debugf("Falha ao aquecer %s: %s", consulta, e.getMessage());
+                }
+            }, executor));
+        }
+        return CompletableFuture.allOf(recargas.toArray(new CompletableFuture[0]))
+            .thenRun(() -> LOG.infof("Cache aquecido: %d listagens em %d ms",
+                consultas.size(), (System.nanoTime() - inicio) / 1_000_000));
+    }
+
+    /**
+     * Espaça as recargas em 1/taxa segundos, reservando o próximo intervalo livre
+     */
+    private void aguardarVez() {
+        long intervalo = TimeUnit.SECONDS.toNanos(1) / Math.max(1, taxa);
+        long agora = System.nanoTime();
+        long slot = proximoSlot.getAndAccumulate(agora, (anterior, atual) -> Math.max(anterior, atual) + intervalo);
+        long espera = Math.max(slot, agora) - agora;
+        if (espera > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(espera);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Refaz a leitura pelo VeiculoService, que carrega e grava o cache em um miss
+     */
+    @ActivateRequestContext
+    void recarregar(String consulta) {
+        String[] partes = consulta.split("\\" + SEPARADOR);
+        int page = Integer.parseInt(partes[2]);
+        int size = Integer.parseInt(partes[3]);
+        if (MARCAS.equals(partes[0])) {
+            TipoVeiculo tipoVeiculo = TODOS.equals(partes[1]) ? null : TipoVeiculo.fromString(partes[1]);
+            veiculoService.buscarMarcas(tipoVeiculo, page, size);
+            veiculoService.contarMarcas(tipoVeiculo);
+        } else {
+            veiculoService.buscarModelosPorMarca(partes[1], page, size);
+        }
+    }
+}
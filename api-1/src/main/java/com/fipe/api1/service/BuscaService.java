@@ -0,0 +1,245 @@
+package com.fipe.api1.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fipe.api1.repository.MarcaRepository;
+import com.fipe.api1.repository.ModeloRepository;
+import com.fipe.shared.dto.MarcaResumo;
+import com.fipe.shared.dto.ModeloResumo;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Serviço de autocomplete sobre nomes de marcas e modelos
+ * Responde a partir de um índice em memória; a requisição nunca consulta o banco
+ *
+ * Uma thread própria carrega o índice na subida, o atualiza de forma incremental (ids maiores que os já
+ * indexados) no máximo uma vez por intervalo e o recarrega por completo periodicamente, o que também cobre
+ * alterações feitas por outras instâncias. A busca só agenda essas atualizações; até a primeira carga
+ * terminar ela responde vazio, e se o banco falhar o índice atual continua servindo.
+ */
+@ApplicationScoped
+public class BuscaService {
+
+    private static final Logger LOG = Logger.getLogger(BuscaService.class);
+
+    static final String TIPO_MARCA = "marca";
+    static final String TIPO_MODELO = "modelo";
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^a-z0-9]+");
+
+    @Inject
+    MarcaRepository marcaRepository;
+
+    @Inject
+    ModeloRepository modeloRepository;
+
+    @ConfigProperty(name = "fipe.busca.atualizacao-intervalo", defaultValue = "PT10S")
+    Duration intervaloAtualizacao;
+
+    @ConfigProperty(name = "fipe.busca.recarga-intervalo", defaultValue = "PT30M")
+    Duration intervaloRecarga;
+
+    private final AtomicReference<IndiceNomes> indice = new AtomicReference<>(IndiceNomes.vazio());
+    private final AtomicBoolean atualizando = new AtomicBoolean();
+    private volatile long proximaAtualizacao;
+    private ExecutorService executor;
+
+    // Só a thread do índice lê e escreve estes campos
+    private boolean carregado;
+    private long ultimaRecarga;
+    private long maxMarcaId;
+    private long maxModeloId;
+
+    void onStart(@Observes StartupEvent event) {
+        executor = Executors.newSingleThreadExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "busca-indice");
+            thread.setDaemon(true);
+            return thread;
+        });
+        proximaAtualizacao = System.nanoTime();
+        agendarAtualizacao();
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Sugestões cujo nome contém, para cada termo da consulta, um termo iniciado por ele
+     * Só lê o índice; se o intervalo de atualização venceu, agenda a atualização sem esperar por ela
+     */
+    public List<Sugestao> buscar(String consulta, int limite) {
+        String normalizada = normalizar(consulta);
+        if (normalizada.isEmpty()) {
+            return List.of();
+        }
+        if (System.nanoTime() - proximaAtualizacao >= 0) {
+            agendarAtualizacao();
+        }
+        return indice.get().buscar(normalizada, limite);
+    }
+
+    /**
+     * Reindexa um modelo cujo nome foi alterado, sem aguardar a próxima atualização
+     * Roda na thread do índice, em ordem com as cargas
+     */
+    public void modeloAtualizado(ModeloResumo modelo) {
+        Sugestao sugestao = new Sugestao(TIPO_MODELO, modelo.codigo, modelo.nome, modelo.codigoMarca, modelo.nomeMarca);
+        if (executor == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                if (carregado) {
+                    indice.set(indice.get().com(List.of(sugestao), true));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.debugf("Reindexação do modelo %s descartada: %s", modelo.codigo, e.getMessage());
+        }
+    }
+
+    public int tamanhoIndice() {
+        return indice.get().tamanho();
+    }
+
+    /**
+     * Minúsculas, sem acentos e com qualquer pontuação virando um único espaço
+     */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String semAcento = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARADORES.matcher(semAcento.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private void agendarAtualizacao() {
+        if (executor == null || !atualizando.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    atualizar();
+                } catch (Exception e) {
+                    LOG.warnf("Erro ao atualizar índice de busca (mantido o atual): %s", e.getMessage());
+                } finally {
+                    proximaAtualizacao = System.nanoTime() + intervaloAtualizacao.toNanos();
+                    atualizando.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            atualizando.set(false);
+        }
+    }
+
+    /**
+     * Recarga completa na primeira vez e a cada fipe.busca.recarga-intervalo; nas demais, só os ids novos
+     */
+    @ActivateRequestContext
+    void atualizar() {
+        if (!carregado || System.nanoTime() - ultimaRecarga >= intervaloRecarga.toNanos()) {
+            recarregar();
+        } else {
+            carregarNovos();
+        }
+    }
+
+    private void recarregar() {
+        long inicio = System.nanoTime();
+        Leitura leitura = lerApos(0, 0);
+        indice.set(IndiceNomes.vazio().com(leitura.sugestoes, false));
+        // Marcas d'água só depois da troca: se a leitura falhar, índice e marcas anteriores seguem juntos
+        avancar(leitura);
+        carregado = true;
+        ultimaRecarga = System.nanoTime();
+        LOG.infof("Índice de busca carregado: %d nomes em %d ms", leitura.sugestoes.size(), (ultimaRecarga - inicio) / 1_000_000);
+    }
+
+    private void carregarNovos() {
+        Leitura leitura = lerApos(maxMarcaId, maxModeloId);
+        if (!leitura.sugestoes.isEmpty()) {
+            indice.set(indice.get().com(leitura.sugestoes, false));
+            LOG.infof("Índice de busca: %d nomes novos (total %d)", leitura.sugestoes.size(), indice.get().tamanho());
+        }
+        avancar(leitura);
+    }
+
+    private void avancar(Leitura leitura) {
+        maxMarcaId = leitura.maxMarcaId;
+        maxModeloId = leitura.maxModeloId;
+    }
+
+    private Leitura lerApos(long aposMarcaId, long aposModeloId) {
+        List<MarcaResumo> marcas = marcaRepository.findResumosAposId(aposMarcaId);
+        List<ModeloResumo> modelos = modeloRepository.findResumosAposId(aposModeloId);
+
+        Leitura leitura = new Leitura(marcas.size() + modelos.size(), aposMarcaId, aposModeloId);
+        for (MarcaResumo marca : marcas) {
+            leitura.sugestoes.add(new Sugestao(TIPO_MARCA, marca.codigo, marca.nome, null, null));
+            leitura.maxMarcaId = Math.max(leitura.maxMarcaId, marca.id);
+        }
+        for (ModeloResumo modelo : modelos) {
+            leitura.sugestoes.add(new Sugestao(TIPO_MODELO, modelo.codigo, modelo.nome, modelo.codigoMarca, modelo.nomeMarca));
+            leitura.maxModeloId = Math.max(leitura.maxModeloId, modelo.id);
+        }
+        return leitura;
+    }
+
+    /**
+     * Nomes lidos do banco e os maiores ids vistos, aplicados ao índice só depois da troca
+     */
+    private static final class Leitura {
+        final List<Sugestao> sugestoes;
+        long maxMarcaId;
+        long maxModeloId;
+
+        Leitura(int tamanho, long maxMarcaId, long maxModeloId) {
+            this.sugestoes = new ArrayList<>(tamanho);
+            this.maxMarcaId = maxMarcaId;
+            this.maxModeloId = maxModeloId;
+        }
+    }
+
+    /**
+     * Item de autocomplete: marca ou modelo (com a marca a que pertence)
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Sugestao {
+        public final String tipo;
+        public final String codigo;
+        public final String nome;
+        public final String codigoMarca;
+        public final String nomeMarca;
+
+        public Sugestao(String tipo, String codigo, String nome, String codigoMarca, String nomeMarca) {
+            this.tipo = tipo;
+            this.codigo = codigo;
+            this.nome = nome;
+            this.codigoMarca = codigoMarca;
+            this.nomeMarca = nomeMarca;
+        }
+    }
+}
@@ -1,48 +1,202 @@
 package com.fipe.api1.service;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fipe.api1.datasource.RoteadorDataSource;
+import com.fipe.api1.repository.MarcaRepository.PaginaMarcas;
+import com.fipe.api1.repository.ModeloRepository.PaginaModelos;
+import com.fipe.api1.service.FipeIntegrationService.MarcasConhecidas;
+import com.fipe.shared.dto.MarcaResumo;
+import com.fipe.shared.dto.ModeloResumo;
+import com.fipe.shared.dto.PageCursor;
 import com.fipe.shared.entity.Marca;
 import com.fipe.shared.entity.Modelo;
+import com.fipe.shared.entity.TipoVeiculo;
 import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.set.SetCommands;
 import io.quarkus.redis.datasource.value.ValueCommands;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Redis;
+import io.vertx.mutiny.redis.client.Request;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * Serviço de cache Redis para otimizar consultas frequentes
  * Implementa cache para marcas, modelos e estatísticas
+ *
+ * Listas paginadas são registradas em tags (sets Redis) para permitir
+ * invalidação exata das chaves afetadas, sem SCAN no keyspace
+ *
+ * Listas e totais são lidos por carregadores: em um miss, um único carregamento roda por chave
+ * (single-flight) e as demais chamadas aguardam o resultado. Cada entrada guarda quando fica velha
+ * e quanto custou carregá-la; perto do vencimento ela é renovada em segundo plano de forma
+ * probabilística (XFetch) e, depois dele, o valor velho continua servido durante a renovação
  */
 @ApplicationScoped
 public class CacheService {
 
     private static final Logger LOG = Logger.getLogger(CacheService.class);
     
-    // Configurações de TTL (Time To Live)
-    private static final Duration MARCA_TTL = Duration.ofHours(6);
-    private static final Duration MODELO_TTL = Duration.ofHours(4);
+    // Configurações de TTL (Time To Live); marcas, modelos e listas em fipe.cache.ttl.*
     private static final Duration STATS_TTL = Duration.ofMinutes(30);
-    private static final Duration LIST_TTL = Duration.ofHours(2);
+    // Última lista de marcas obtida da API FIPE: vale enquanto a API estiver fora
+    private static final Duration FIPE_MARCAS_TTL = Duration.ofDays(7);
     
     // Prefixos para chaves do cache
     private static final String MARCA_PREFIX = "marca:";
     private static final String MODELO_PREFIX = "modelo:";
-    private static final String MARCAS_LIST_PREFIX = "marcas:list:";
-    private static final String MODELOS_LIST_PREFIX = "modelos:list:";
+    private static final String MARCA_RESUMO_PREFIX = "marca:resumo:";
+    private static final String MODELO_RESUMO_PREFIX = "modelo:resumo:";
+    private static final String MARCAS_LIST_PREFIX = "marcas:pagina:";
+    private static final String MODELOS_LIST_PREFIX = "modelos:pagina:";
     private static final String STATS_PREFIX = "stats:";
+    private static final String MARCAS_TOTAL_PREFIX = "marcas:total:";
+    private static final String MODELOS_TOTAL_PREFIX = "modelos:total:";
+    private static final String RENDER_MARCAS_PREFIX = "render:marcas:";
+    private static final String RENDER_MODELOS_PREFIX = "render:modelos:";
+    private static final String FIPE_MARCAS_PREFIX = "fipe:marcas:";
+
+    // Tags (sets Redis com as chaves registradas em cada uma)
+    private static final String TAG_PREFIX = "tag:";
+    private static final String TAG_MARCAS = TAG_PREFIX + "marcas";
+    private static final String TAG_MODELOS = TAG_PREFIX + "modelos";
+    private static final String TAG_TIPO_PREFIX = TAG_PREFIX + "tipo:";
+    private static final String TAG_MARCA_PREFIX = TAG_PREFIX + "marca:";
+    private static final String TIPO_TODOS = "todos";
+
+    // Limite de argumentos por comando DEL/SREM dentro do pipeline
+    private static final int PIPELINE_CHUNK_SIZE = 500;
+
+    private static final TypeReference<List<MarcaResumo>> MARCAS_TYPE = new TypeReference<>() {};
+
+    // Renovações em segundo plano: poucas threads e fila limitada (renovação é melhor esforço)
+    private static final int RENOVACAO_THREADS = 2;
+    private static final int RENOVACAO_FILA = 256;
 
     @Inject
     RedisDataSource redisDataSource;
+
+    @Inject
+    Redis redis;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    RoteadorDataSource roteadorDataSource;
+
+    @ConfigProperty(name = "fipe.cache.enabled", defaultValue = "true")
+    boolean cacheEnabled;
+
+    @ConfigProperty(name = "fipe.cache.rendered.enabled", defaultValue = "true")
+    boolean renderedEnabled;
+
+    // Longos: as alterações do api-2 chegam pelo feed (AlteracaoCatalogoConsumer, com nova tentativa) e invalidam na hora
+    @ConfigProperty(name = "fipe.cache.ttl.marcas", defaultValue = "P2D")
+    Duration marcaTtl;
+
+    @ConfigProperty(name = "fipe.cache.ttl.modelos", defaultValue = "P2D")
+    Duration modeloTtl;
+
+    @ConfigProperty(name = "fipe.cache.ttl.listas", defaultValue = "P1D")
+    Duration listaTtl;
+
+    // Tempo em que o valor velho ainda pode ser servido enquanto é renovado
+    @ConfigProperty(name = "fipe.cache.stale-grace", defaultValue = "PT10M")
+    Duration staleGrace;
+
+    // Espera máxima pelo carregamento de outra chamada (single-flight); depois disso carrega sem aguardar
+    @ConfigProperty(name = "fipe.cache.carga.espera", defaultValue = "PT10S")
+    Duration esperaCarga;
+
+    // Peso da renovação antecipada (XFetch): 0 desliga, valores maiores antecipam mais
+    @ConfigProperty(name = "fipe.cache.renovacao.beta", defaultValue = "1.0")
+    double renovacaoBeta;
+
+    // Carregamentos em andamento por chave (single-flight)
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> carregamentos = new ConcurrentHashMap<>();
+    private ExecutorService renovacoes;
     
     private ValueCommands<String, String> valueCommands;
+    private ValueCommands<String, byte[]> bytesCommands;
+    private SetCommands<String, String> setCommands;
+    private ObjectMapper cacheMapper;
+    // Expiração das tags: a maior vida possível de uma chave registrada nelas
+    private Duration tagTtl;
 
     @PostConstruct
     public void init() {
         this.valueCommands = redisDataSource.value(String.class, String.class);
+        this.bytesCommands = redisDataSource.value(String.class, byte[].class);
+        this.setCommands = redisDataSource.set(String.class, String.class);
+        // Coleção LAZY e proxies do Hibernate não fazem parte do valor em cache
+        this.cacheMapper = objectMapper.copy().addMixIn(Marca.class, MarcaCacheMixin.class);
+        this.renovacoes = new ThreadPoolExecutor(RENOVACAO_THREADS, RENOVACAO_THREADS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(RENOVACAO_FILA), tarefa -> {
+                Thread thread = new Thread(tarefa, "cache-renovacao");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+        this.tagTtl = maior(marcaTtl, modeloTtl, listaTtl).plus(staleGrace);
+    }
+
+    private static Duration maior(Duration... ttls) {
+        Duration maior = Duration.ZERO;
+        for (Duration ttl : ttls) {
+            if (ttl.compareTo(maior) > 0) {
+                maior = ttl;
+            }
+        }
+        return maior;
+    }
+
+    @PreDestroy
+    void encerrar() {
+        renovacoes.shutdownNow();
+    }
+
+    // ========== LISTAS DA API FIPE ==========
+
+    /**
+     * Última lista de marcas do tipo obtida da API FIPE (compartilhada entre as instâncias)
+     */
+    public Optional<MarcasConhecidas> getMarcasFipe(TipoVeiculo tipoVeiculo) {
+        return get(FIPE_MARCAS_PREFIX + tipoVeiculo.getCodigo(), MarcasConhecidas.class);
+    }
+
+    /**
+     * Fora das tags: limparCaches não descarta a última lista conhecida
+     */
+    public void putMarcasFipe(TipoVeiculo tipoVeiculo, MarcasConhecidas marcas) {
+        put(FIPE_MARCAS_PREFIX + tipoVeiculo.getCodigo(), marcas, FIPE_MARCAS_TTL);
     }
 
     // ========== CACHE DE MARCAS ==========
@@ -51,80 +205,60 @@ public class CacheService {
      * Busca marca no cache por código
      */
     public Optional<Marca> getMarca(String codigoMarca) {
-        try {
-            String key = MARCA_PREFIX + codigoMarca;
-            String marcaJson = valueCommands.get(key);
-            
-            if (marcaJson != null) {
-                LOG.debugf("Cache HIT para marca: %s", codigoMarca);
-                // Aqui seria necessário deserializar o JSON para Marca
-                // Por simplicidade, retornando empty para implementar a lógica de fallback
-                return Optional.empty();
-            }
-            
-            LOG.debugf("Cache MISS para marca: %s", codigoMarca);
-            return Optional.empty();
-            
-        } catch (Exception e) {
-            LOG.warnf("Erro ao buscar marca no cache: %s", e.getMessage());
-            return Optional.empty();
-        }
+        return get(MARCA_PREFIX + codigoMarca, Marca.class);
     }
     
     /**
      * Armazena marca no cache
      */
     public void putMarca(String codigoMarca, Marca marca) {
-        try {
-            String key = MARCA_PREFIX + codigoMarca;
-            // Aqui seria necessário serializar a Marca para JSON
-            // Por simplicidade, armazenando apenas o nome
-            valueCommands.setex(key, MARCA_TTL.toSeconds(), marca.nome);
-            
-            LOG.debugf("Marca %s armazenada no cache", codigoMarca);
-            
-        } catch (Exception e) {
-            LOG.warnf("Erro ao armazenar marca no cache: %s", e.getMessage());
-        }
+        put(MARCA_PREFIX + codigoMarca, marca, marcaTtl,
+            TAG_MARCAS, TAG_MARCA_PREFIX + codigoMarca);
     }
     
     /**
-     * Busca lista de marcas no cache
+     * Página de marcas (com total) do cache, ou do carregador em um miss
+     * Registrada nas tags do tipo e de marcas
      */
-    public Optional<List<Marca>> getMarcasList(String tipoVeiculo, int page, int size) {
-        try {
-            String key = MARCAS_LIST_PREFIX + tipoVeiculo + ":" + page + ":" + size;
-            String cachedValue = valueCommands.get(key);
-            
-            if (cachedValue != null) {
-                LOG.debugf("Cache HIT para lista de marcas: %s", key);
-                // Por simplicidade, retornando empty - seria necessário deserializar JSON
-                return Optional.empty();
-            }
-            
-            LOG.debugf("Cache MISS para lista de marcas: %s", key);
-            return Optional.empty();
-            
-        } catch (Exception e) {
-            LOG.warnf("Erro ao buscar lista de marcas no cache: %s", e.getMessage());
-            return Optional.empty();
-        }
+    public PaginaMarcas getMarcasList(TipoVeiculo tipoVeiculo, int page, int size, Supplier<PaginaMarcas> carregador) {
+        return getOrLoad(marcasListKey(tipoVeiculo, page, size), tipo(PaginaMarcas.class), listaTtl, carregador,
+            TAG_MARCAS, TAG_TIPO_PREFIX + tipoTag(tipoVeiculo));
     }
-    
+
+    /**
+     * Página de marcas por cursor (seek), com as mesmas tags da paginação por offset
+     */
+    public List<MarcaResumo> getMarcasList(TipoVeiculo tipoVeiculo, PageCursor after, int limit,
+                                           Supplier<List<MarcaResumo>> carregador) {
+        return getOrLoad(marcasListKey(tipoVeiculo, after, limit), tipo(MARCAS_TYPE), listaTtl, carregador,
+            TAG_MARCAS, TAG_TIPO_PREFIX + tipoTag(tipoVeiculo));
+    }
+
+    /**
+     * Resumos de marcas por código em um único MGET; o mapa só contém os códigos encontrados
+     */
+    public Map<String, MarcaResumo> getMarcasResumo(Collection<String> codigos) {
+        return readMany(MARCA_RESUMO_PREFIX, codigos, MarcaResumo.class);
+    }
+
     /**
-     * Armazena lista de marcas no cache
+     * Armazena resumos de marcas em um único pipeline, com as tags de marcas e de cada marca
      */
-    public void putMarcasList(String tipoVeiculo, int page, int size, List<Marca> marcas) {
+    public void putMarcasResumo(Collection<MarcaResumo> marcas) {
+        if (!cacheEnabled || marcas.isEmpty()) {
+            return;
+        }
+        List<Request> pipeline = new ArrayList<>();
         try {
-            String key = MARCAS_LIST_PREFIX + tipoVeiculo + ":" + page + ":" + size;
-            // Por simplicidade, armazenando apenas o tamanho da lista
-            valueCommands.setex(key, LIST_TTL.toSeconds(), String.valueOf(marcas.size()));
-            
-            LOG.debugf("Lista de marcas armazenada no cache: %s", key);
-            
+            for (MarcaResumo marca : marcas) {
+                adicionarEscrita(pipeline, MARCA_RESUMO_PREFIX + marca.codigo, cacheMapper.writeValueAsBytes(marca),
+                    marcaTtl, TAG_MARCAS, TAG_MARCA_PREFIX + marca.codigo);
+            }
         } catch (Exception e) {
-            LOG.warnf("Erro ao armazenar lista de marcas no cache: %s", e.getMessage());
+            LOG.warnf("Erro ao serializar resumos de marcas: %s", e.getMessage());
+            return;
         }
+        writeMany(pipeline, marcas.size());
     }
 
     // ========== CACHE DE MODELOS ==========
@@ -133,76 +267,123 @@ public class CacheService {
      * Busca modelo no cache por código
      */
     public Optional<Modelo> getModelo(String codigoModelo) {
-        try {
-            String key = MODELO_PREFIX + codigoModelo;
-            String modeloJson = valueCommands.get(key);
-            
-            if (modeloJson != null) {
-                LOG.debugf("Cache HIT para modelo: %s", codigoModelo);
-                return Optional.empty(); // Implementar deserialização
-            }
-            
-            LOG.debugf("Cache MISS para modelo: %s", codigoModelo);
-            return Optional.empty();
-            
-        } catch (Exception e) {
-            LOG.warnf("Erro ao buscar modelo no cache: %s", e.getMessage());
-            return Optional.empty();
-        }
+        return get(MODELO_PREFIX + codigoModelo, Modelo.class);
     }
     
     /**
      * Armazena modelo no cache
      */
     public void putModelo(String codigoModelo, Modelo modelo) {
-        try {
-            String key = MODELO_PREFIX + codigoModelo;
-            valueCommands.setex(key, MODELO_TTL.toSeconds(), modelo.nome);
-            
-            LOG.debugf("Modelo %s armazenado no cache", codigoModelo);
-            
-        } catch (Exception e) {
-            LOG.warnf("Erro ao armazenar modelo no cache: %s", e.getMessage());
+        List<String> tags = new ArrayList<>(List.of(TAG_MODELOS));
+        if (modelo.marca != null) {
+            tags.add(TAG_MARCA_PREFIX + modelo.marca.codigoFipe);
         }
+        put(MODELO_PREFIX + codigoModelo, modelo, modeloTtl, tags.toArray(new String[0]));
     }
     
     /**
-     * Busca lista de modelos no cache
+     * Página de modelos (com cabeçalho da marca e total) do cache, ou do carregador em um miss
+     * Registrada nas tags da marca e de modelos; resultado null (marca inexistente) não é cacheado
+     */
+    public PaginaModelos getModelosList(String codigoMarca, int page, int size, Supplier<PaginaModelos> carregador) {
+        return getOrLoad(modelosListKey(codigoMarca, page, size), tipo(PaginaModelos.class), listaTtl, carregador,
+            TAG_MODELOS, TAG_MARCA_PREFIX + codigoMarca);
+    }
+
+    /**
+     * Página de modelos por cursor (seek), com as mesmas tags da paginação por offset
+     */
+    public PaginaModelos getModelosList(String codigoMarca, PageCursor after, int limit,
+                                        Supplier<PaginaModelos> carregador) {
+        return getOrLoad(modelosListKey(codigoMarca, after, limit), tipo(PaginaModelos.class), listaTtl, carregador,
+            TAG_MODELOS, TAG_MARCA_PREFIX + codigoMarca);
+    }
+
+    /**
+     * Resumos de modelos por código em um único MGET; o mapa só contém os códigos encontrados
+     */
+    public Map<String, ModeloResumo> getModelosResumo(Collection<String> codigos) {
+        return readMany(MODELO_RESUMO_PREFIX, codigos, ModeloResumo.class);
+    }
+
+    /**
+     * Armazena resumos de modelos em um único pipeline, com as tags de modelos e da marca de cada um
      */
-    public Optional<List<Modelo>> getModelosList(String codigoMarca, int page, int size) {
+    public void putModelosResumo(Collection<ModeloResumo> modelos) {
+        if (!cacheEnabled || modelos.isEmpty()) {
+            return;
+        }
+        List<Request> pipeline = new ArrayList<>();
         try {
-            String key = MODELOS_LIST_PREFIX + codigoMarca + ":" + page + ":" + size;
-            String cachedValue = valueCommands.get(key);
-            
-            if (cachedValue != null) {
-                LOG.debugf("Cache HIT para lista de modelos: %s", key);
-                // Por simplicidade, retornando empty - seria necessário deserializar JSON
-                return Optional.empty();
+            for (ModeloResumo modelo : modelos) {
+                adicionarEscrita(pipeline, MODELO_RESUMO_PREFIX + modelo.codigo, cacheMapper.writeValueAsBytes(modelo),
+                    modeloTtl, TAG_MODELOS, TAG_MARCA_PREFIX + modelo.codigoMarca);
             }
-            
-            LOG.debugf("Cache MISS para lista de modelos: %s", key);
-            return Optional.empty();
-            
         } catch (Exception e) {
-            LOG.warnf("Erro ao buscar lista de modelos no cache: %s", e.getMessage());
-            return Optional.empty();
+            LOG.warnf("Erro ao serializar resumos de modelos: %s", e.getMessage());
+            return;
         }
+        writeMany(pipeline, modelos.size());
     }
-    
+
     /**
-     * Armazena lista de modelos no cache
+     * Escrita direta após a edição de um modelo de código único: o resumo em cache passa a ser o valor novo
+     * (sem miss no próximo lote); a entidade antiga em modelo:<codigo> é descartada
      */
-    public void putModelosList(String codigoMarca, int page, int size, List<Modelo> modelos) {
-        try {
-            String key = MODELOS_LIST_PREFIX + codigoMarca + ":" + page + ":" + size;
-            // Por simplicidade, armazenando apenas o tamanho da lista
-            valueCommands.setex(key, LIST_TTL.toSeconds(), String.valueOf(modelos.size()));
-            
-            LOG.debugf("Lista de modelos armazenada no cache: %s", key);
-            
-        } catch (Exception e) {
-            LOG.warnf("Erro ao armazenar lista de modelos no cache: %s", e.getMessage());
-        }
+    public void putModeloAtualizado(ModeloResumo modelo) {
+        invalidateKeys(List.of(MODELO_PREFIX + modelo.codigo));
+        putModelosResumo(List.of(modelo));
+    }
+
+    // ========== CACHE DE TOTAIS ==========
+
+    /**
+     * Total de marcas (por tipo), com as mesmas tags e TTL das páginas do tipo
+     */
+    public long getTotalMarcas(TipoVeiculo tipoVeiculo, Supplier<Long> carregador) {
+        return getOrLoad(MARCAS_TOTAL_PREFIX + tipoTag(tipoVeiculo), tipo(Long.class), listaTtl, carregador,
+            TAG_MARCAS, TAG_TIPO_PREFIX + tipoTag(tipoVeiculo));
+    }
+
+    /**
+     * Total de modelos da marca, com as mesmas tags e TTL das páginas da marca
+     */
+    public long getTotalModelos(String codigoMarca, Supplier<Long> carregador) {
+        return getOrLoad(MODELOS_TOTAL_PREFIX + codigoMarca, tipo(Long.class), listaTtl, carregador,
+            TAG_MODELOS, TAG_MARCA_PREFIX + codigoMarca);
+    }
+
+    // ========== CACHE DE RESPOSTAS RENDERIZADAS ==========
+
+    /**
+     * Busca o corpo já serializado de uma página de marcas na versão de dados informada
+     * A versão faz parte da chave: quando muda, a página é renderizada de novo
+     */
+    public Optional<byte[]> getRenderedMarcas(TipoVeiculo tipoVeiculo, String variante, long versao) {
+        return getBytes(renderMarcasKey(tipoVeiculo, variante, versao));
+    }
+
+    /**
+     * Armazena o corpo serializado de uma página de marcas, com as tags das listas do tipo
+     */
+    public void putRenderedMarcas(TipoVeiculo tipoVeiculo, String variante, long versao, byte[] corpo) {
+        putBytes(renderMarcasKey(tipoVeiculo, variante, versao), corpo, listaTtl,
+            TAG_MARCAS, TAG_TIPO_PREFIX + tipoTag(tipoVeiculo));
+    }
+
+    /**
+     * Busca o corpo já serializado de uma página de modelos na versão de dados informada
+     */
+    public Optional<byte[]> getRenderedModelos(String codigoMarca, String variante, long versao) {
+        return getBytes(renderModelosKey(codigoMarca, variante, versao));
+    }
+
+    /**
+     * Armazena o corpo serializado de uma página de modelos, com as tags das listas da marca
+     */
+    public void putRenderedModelos(String codigoMarca, String variante, long versao, byte[] corpo) {
+        putBytes(renderModelosKey(codigoMarca, variante, versao), corpo, listaTtl,
+            TAG_MODELOS, TAG_MARCA_PREFIX + codigoMarca);
     }
 
     // ========== CACHE DE ESTATÍSTICAS ==========
@@ -211,6 +392,9 @@ public class CacheService {
      * Busca contagem no cache
      */
     public Optional<Long> getCount(String key) {
+        if (!cacheEnabled) {
+            return Optional.empty();
+        }
         try {
             String cacheKey = STATS_PREFIX + key;
             String countStr = valueCommands.get(cacheKey);
@@ -233,6 +417,9 @@ public class CacheService {
      * Armazena contagem no cache
      */
     public void putCount(String key, Long count) {
+        if (!cacheEnabled) {
+            return;
+        }
         try {
             String cacheKey = STATS_PREFIX + key;
             valueCommands.setex(cacheKey, STATS_TTL.toSeconds(), String.valueOf(count));
@@ -247,86 +434,399 @@ public class CacheService {
     // ========== INVALIDAÇÃO DE CACHE ==========
     
     /**
-     * Invalida cache de uma marca específica
+     * Invalida cache de uma marca específica e as listas do seu tipo
+     * As invalidações devolvem false se o Redis falhou (o feed de alterações tenta de novo)
      */
-    public void invalidateMarca(String codigoMarca) {
-        try {
-            String key = MARCA_PREFIX + codigoMarca;
-            redisDataSource.key().del(key);
-            
-            // Invalidar também listas que podem conter esta marca
-            invalidateMarcasLists();
-            
-            LOG.infof("Cache invalidado para marca: %s", codigoMarca);
-            
-        } catch (Exception e) {
-            LOG.warnf("Erro ao invalidar cache da marca: %s", e.getMessage());
-        }
+    public boolean invalidateMarca(String codigoMarca, TipoVeiculo tipoVeiculo) {
+        boolean chaves = invalidateKeys(List.of(MARCA_PREFIX + codigoMarca, MARCA_RESUMO_PREFIX + codigoMarca));
+        boolean listas = invalidateMarcasLists(tipoVeiculo);
+        LOG.infof("Cache invalidado para marca: %s", codigoMarca);
+        return chaves && listas;
     }
     
     /**
      * Invalida cache de um modelo específico
      */
     public void invalidateModelo(String codigoModelo) {
-        try {
-            String key = MODELO_PREFIX + codigoModelo;
-            redisDataSource.key().del(key);
-            
-            LOG.infof("Cache invalidado para modelo: %s", codigoModelo);
-            
-        } catch (Exception e) {
-            LOG.warnf("Erro ao invalidar cache do modelo: %s", e.getMessage());
-        }
+        invalidateKeys(List.of(MODELO_PREFIX + codigoModelo, MODELO_RESUMO_PREFIX + codigoModelo));
+        LOG.infof("Cache invalidado para modelo: %s", codigoModelo);
     }
     
+    /**
+     * Invalida os modelos informados (entidade e resumo), sem tocar nas demais chaves da marca
+     */
+    public boolean invalidateModelos(Collection<String> codigosModelo) {
+        if (codigosModelo.isEmpty()) {
+            return true;
+        }
+        List<String> keys = new ArrayList<>(codigosModelo.size() * 2);
+        for (String codigo : codigosModelo) {
+            keys.add(MODELO_PREFIX + codigo);
+            keys.add(MODELO_RESUMO_PREFIX + codigo);
+        }
+        boolean invalidado = true;
+        for (int inicio = 0; inicio < keys.size(); inicio += PIPELINE_CHUNK_SIZE) {
+            invalidado &= invalidateKeys(keys.subList(inicio, Math.min(keys.size(), inicio + PIPELINE_CHUNK_SIZE)));
+        }
+        LOG.infof("Cache invalidado para %d modelos", codigosModelo.size());
+        return invalidado;
+    }
+
     /**
      * Invalida todas as listas de marcas
      */
     public void invalidateMarcasLists() {
+        LOG.info("Invalidando listas de marcas do cache");
+        invalidateTags(TAG_MARCAS);
+    }
+
+    /**
+     * Invalida as listas de marcas de um tipo (e as listas sem filtro de tipo)
+     */
+    public boolean invalidateMarcasLists(TipoVeiculo tipoVeiculo) {
+        LOG.infof("Invalidando listas de marcas do tipo %s do cache", tipoVeiculo);
+        return invalidateTags(TAG_TIPO_PREFIX + tipoTag(tipoVeiculo), TAG_TIPO_PREFIX + TIPO_TODOS);
+    }
+    
+    /**
+     * Invalida todas as listas de modelos de uma marca
+     */
+    public boolean invalidateModelosLists(String codigoMarca) {
+        LOG.infof("Invalidando listas de modelos da marca %s do cache", codigoMarca);
+        return invalidateTags(TAG_MARCA_PREFIX + codigoMarca);
+    }
+    
+    /**
+     * Limpa todo o cache de marcas e modelos registrado em tags
+     */
+    public void clearAll() {
+        LOG.info("Limpando todo o cache Redis");
+        invalidateTags(TAG_MARCAS, TAG_MODELOS);
+    }
+
+    // ========== OPERAÇÕES INTERNAS ==========
+
+    /**
+     * Valor do cache ou do carregador, com single-flight por chave e renovação antes/depois do vencimento
+     */
+    private <T> T getOrLoad(String key, JavaType type, Duration ttl, Supplier<T> carregador, String... tags) {
+        Optional<Entrada<T>> cached = read(key,
+            json -> cacheMapper.readValue(json, cacheMapper.getTypeFactory().constructParametricType(Entrada.class, type)));
+        if (cached.isPresent() && cached.get().valor != null) {
+            Entrada<T> entrada = cached.get();
+            if (entrada.deveRenovar(System.currentTimeMillis(), renovacaoBeta)) {
+                renovarEmSegundoPlano(key, ttl, carregador, tags);
+            }
+            return entrada.valor;
+        }
+        return carregar(key, ttl, carregador, tags);
+    }
+
+    /**
+     * Executa o carregador uma única vez por chave; chamadas concorrentes aguardam o mesmo resultado
+     * O resultado é entregue a quem aguarda antes da gravação no Redis, e qualquer falha (inclusive Error)
+     * também; quem aguarda desiste depois de fipe.cache.carga.espera
+     */
+    private <T> T carregar(String key, Duration ttl, Supplier<T> carregador, String... tags) {
+        CompletableFuture<Object> proprio = new CompletableFuture<>();
+        CompletableFuture<Object> emAndamento = carregamentos.putIfAbsent(key, proprio);
+        if (emAndamento != null) {
+            LOG.debugf("Aguardando carregamento em andamento: %s", key);
+            return aguardar(key, emAndamento, carregador);
+        }
         try {
-            // Em uma implementação real, seria necessário usar SCAN para encontrar todas as chaves
-            LOG.info("Invalidando listas de marcas do cache");
+            long inicio = System.currentTimeMillis();
+            T valor;
+            try {
+                valor = lerParaCache(carregador);
+            } catch (Throwable e) {
+                proprio.completeExceptionally(e);
+                throw e;
+            }
+            proprio.complete(valor);
+            if (valor != null) {
+                long agora = System.currentTimeMillis();
+                put(key, new Entrada<>(valor, agora + ttl.toMillis(), agora - inicio), ttl.plus(staleGrace), tags);
+            }
+            return valor;
+        } finally {
+            carregamentos.remove(key, proprio);
+        }
+    }
+
+    /**
+     * Leitura do banco que vai para o cache: no primário, nunca em réplica (ver RoteadorDataSource.noPrimario)
+     * Com o cache desligado nada é gravado, e a leitura segue a rota atual
+     */
+    public <T> T lerParaCache(Supplier<T> leitura) {
+        return cacheEnabled ? roteadorDataSource.noPrimario(leitura) : leitura.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T aguardar(String key, CompletableFuture<Object> emAndamento, Supplier<T> carregador) {
+        try {
+            return (T) emAndamento.get(esperaCarga.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Carregamento travado ou lento: esta chamada segue sozinha, sem gravar no cache
+            LOG.warnf("Carregamento de %s passou de %s; carregando sem aguardar", key, esperaCarga);
+            return carregador.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException erro) {
+                throw erro;
+            }
+            if (e.getCause() instanceof Error erro) {
+                throw erro;
+            }
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    private <T> void renovarEmSegundoPlano(String key, Duration ttl, Supplier<T> carregador, String... tags) {
+        if (carregamentos.containsKey(key)) {
+            return;
+        }
+        LOG.debugf("Renovando em segundo plano: %s", key);
+        renovacoes.execute(() -> {
+            try {
+                carregarComContexto(key, ttl, carregador, tags);
+            } catch (Exception e) {
+                LOG.warnf("Erro ao renovar %s no cache: %s", key, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Carregamento fora de uma requisição: ativa o contexto de requisição para os repositórios
+     */
+    @ActivateRequestContext
+    <T> T carregarComContexto(String key, Duration ttl, Supplier<T> carregador, String... tags) {
+        return carregar(key, ttl, carregador, tags);
+    }
+
+    private JavaType tipo(Class<?> type) {
+        return cacheMapper.getTypeFactory().constructType(type);
+    }
+
+    private JavaType tipo(TypeReference<?> type) {
+        return cacheMapper.getTypeFactory().constructType(type);
+    }
+
+    private <T> Optional<T> get(String key, Class<T> type) {
+        return read(key, json -> cacheMapper.readValue(json, type));
+    }
+
+    private <T> Optional<T> read(String key, JsonReader<T> reader) {
+        if (!cacheEnabled) {
+            return Optional.empty();
+        }
+        try {
+            String json = valueCommands.get(key);
+            if (json == null) {
+                LOG.debugf("Cache MISS: %s", key);
+                return Optional.empty();
+            }
+            LOG.debugf("Cache HIT: %s", key);
+            return Optional.of(reader.read(json));
             
         } catch (Exception e) {
-            LOG.warn("Erro ao invalidar listas de marcas", e);
+            LOG.warnf("Erro ao buscar %s no cache: %s", key, e.getMessage());
+            return Optional.empty();
         }
     }
-    
+
     /**
-     * Invalida todas as listas de modelos de uma marca
+     * Lê várias chaves de mesmo prefixo em um único MGET, devolvendo só os códigos encontrados
      */
-    public void invalidateModelosLists(String codigoMarca) {
+    private <T> Map<String, T> readMany(String prefix, Collection<String> codigos, Class<T> type) {
+        Map<String, T> encontrados = new HashMap<>();
+        if (!cacheEnabled || codigos.isEmpty()) {
+            return encontrados;
+        }
+        try {
+            String[] keys = new String[codigos.size()];
+            int i = 0;
+            for (String codigo : codigos) {
+                keys[i++] = prefix + codigo;
+            }
+            Map<String, String> valores = valueCommands.mget(keys);
+            for (String codigo : codigos) {
+                String json = valores.get(prefix + codigo);
+                if (json != null) {
+                    encontrados.put(codigo, cacheMapper.readValue(json, type));
+                }
+            }
+            LOG.debugf("Cache MGET %s: %d de %d", prefix, encontrados.size(), codigos.size());
+        } catch (Exception e) {
+            LOG.warnf("Erro ao buscar %s* no cache: %s", prefix, e.getMessage());
+        }
+        return encontrados;
+    }
+
+    private Optional<byte[]> getBytes(String key) {
+        if (!cacheEnabled || !renderedEnabled) {
+            return Optional.empty();
+        }
         try {
-            LOG.infof("Invalidando listas de modelos da marca %s do cache", codigoMarca);
+            byte[] corpo = bytesCommands.get(key);
+            LOG.debugf("Cache %s: %s", corpo == null ? "MISS" : "HIT", key);
+            return Optional.ofNullable(corpo);
             
         } catch (Exception e) {
-            LOG.warnf("Erro ao invalidar listas de modelos da marca %s", codigoMarca, e);
+            LOG.warnf("Erro ao buscar %s no cache: %s", key, e.getMessage());
+            return Optional.empty();
         }
     }
-    
+
+    private void put(String key, Object value, Duration ttl, String... tags) {
+        if (!cacheEnabled) {
+            return;
+        }
+        try {
+            write(key, cacheMapper.writeValueAsBytes(value), ttl, tags);
+        } catch (Exception e) {
+            LOG.warnf("Erro ao armazenar %s no cache: %s", key, e.getMessage());
+        }
+    }
+
+    private void putBytes(String key, byte[] corpo, Duration ttl, String... tags) {
+        if (!cacheEnabled || !renderedEnabled) {
+            return;
+        }
+        try {
+            write(key, corpo, ttl, tags);
+        } catch (Exception e) {
+            LOG.warnf("Erro ao armazenar %s no cache: %s", key, e.getMessage());
+        }
+    }
+
     /**
-     * Limpa todo o cache
+     * Grava o valor e registra a chave nas tags em um único pipeline
      */
-    public void clearAll() {
+    private void write(String key, byte[] payload, Duration ttl, String... tags) {
+        List<Request> pipeline = new ArrayList<>();
+        adicionarEscrita(pipeline, key, payload, ttl, tags);
+        redis.batchAndAwait(pipeline);
+        
+        LOG.debugf("Chave armazenada no cache: %s (tags: %s)", key, String.join(",", tags));
+    }
+
+    /**
+     * Grava várias chaves (já montadas com adicionarEscrita) em um único pipeline
+     */
+    private void writeMany(List<Request> pipeline, int quantidade) {
         try {
-            // Em uma implementação real, seria necessário usar FLUSHDB ou SCAN + DEL
-            LOG.info("Limpando todo o cache Redis");
+            redis.batchAndAwait(pipeline);
+            LOG.debugf("%d chaves armazenadas no cache", quantidade);
+        } catch (Exception e) {
+            LOG.warnf("Erro ao armazenar %d chaves no cache: %s", quantidade, e.getMessage());
+        }
+    }
+
+    private void adicionarEscrita(List<Request> pipeline, String key, byte[] payload, Duration ttl, String... tags) {
+        pipeline.add(Request.cmd(Command.SETEX).arg(key).arg(ttl.toSeconds()).arg(payload));
+        for (String tag : tags) {
+            pipeline.add(Request.cmd(Command.SADD).arg(tag).arg(key));
+            // Uma tag reúne chaves de TTLs diferentes (marca e listas, modelos e listas): a expiração é sempre a
+            // maior vida possível de uma chave, nunca a desta, para que uma escrita curta não encurte a tag e
+            // deixe chaves ainda vivas fora da invalidação
+            pipeline.add(Request.cmd(Command.EXPIRE).arg(tag).arg(tagTtl.toSeconds()));
+        }
+    }
+
+    /**
+     * Remove exatamente as chaves registradas nas tags informadas
+     * SUNION resolve as chaves; DEL e SREM seguem em um único pipeline
+     */
+    private boolean invalidateTags(String... tags) {
+        if (!cacheEnabled) {
+            return true;
+        }
+        try {
+            Set<String> keys = setCommands.sunion(tags);
+            if (keys.isEmpty()) {
+                return true;
+            }
+            
+            List<String> members = new ArrayList<>(keys);
+            List<Request> pipeline = new ArrayList<>();
+            for (int i = 0; i < members.size(); i += PIPELINE_CHUNK_SIZE) {
+                List<String> chunk = members.subList(i, Math.min(i + PIPELINE_CHUNK_SIZE, members.size()));
+                Request del = Request.cmd(Command.DEL);
+                chunk.forEach(del::arg);
+                pipeline.add(del);
+                // SREM em vez de DEL na tag preserva chaves registradas após o SUNION
+                for (String tag : tags) {
+                    Request srem = Request.cmd(Command.SREM).arg(tag);
+                    chunk.forEach(srem::arg);
+                    pipeline.add(srem);
+                }
+            }
+            redis.batchAndAwait(pipeline);
+            
+            LOG.debugf("Invalidadas %d chaves das tags %s", members.size(), String.join(",", tags));
+            return true;
             
         } catch (Exception e) {
-            LOG.warn("Erro ao limpar cache", e);
+            LOG.warnf("Erro ao invalidar tags %s: %s", String.join(",", tags), e.getMessage());
+            return false;
         }
     }
+
+    private boolean invalidateKeys(List<String> keys) {
+        if (!cacheEnabled) {
+            return true;
+        }
+        try {
+            redisDataSource.key().del(keys.toArray(new String[0]));
+            return true;
+        } catch (Exception e) {
+            LOG.warnf("Erro ao invalidar chaves %s: %s", keys, e.getMessage());
+            return false;
+        }
+    }
+
+    private static String marcasListKey(TipoVeiculo tipoVeiculo, int page, int size) {
+        return MARCAS_LIST_PREFIX + tipoTag(tipoVeiculo) + ":" + page + ":" + size;
+    }
+
+    private static String marcasListKey(TipoVeiculo tipoVeiculo, PageCursor after, int limit) {
+        return MARCAS_LIST_PREFIX + tipoTag(tipoVeiculo) + ":seek:" + seekKey(after) + ":" + limit;
+    }
+
+    private static String modelosListKey(String codigoMarca, int page, int size) {
+        return MODELOS_LIST_PREFIX + codigoMarca + ":" + page + ":" + size;
+    }
+
+    private static String modelosListKey(String codigoMarca, PageCursor after, int limit) {
+        return MODELOS_LIST_PREFIX + codigoMarca + ":seek:" + seekKey(after) + ":" + limit;
+    }
+
+    private static String renderMarcasKey(TipoVeiculo tipoVeiculo, String variante, long versao) {
+        return RENDER_MARCAS_PREFIX + tipoTag(tipoVeiculo) + ":v" + versao + ":" + variante;
+    }
+
+    private static String renderModelosKey(String codigoMarca, String variante, long versao) {
+        return RENDER_MODELOS_PREFIX + codigoMarca + ":v" + versao + ":" + variante;
+    }
+
+    private static String seekKey(PageCursor after) {
+        return after == null ? "inicio" : after.encode();
+    }
+
+    private static String tipoTag(TipoVeiculo tipoVeiculo) {
+        return tipoVeiculo == null ? TIPO_TODOS : tipoVeiculo.getCodigo();
+    }
     
     /**
      * Verifica se o Redis está disponível
      */
     public boolean isRedisAvailable() {
         try {
-            valueCommands.set("health-check", "ok");
-            String result = valueCommands.get("health-check");
-            redisDataSource.key().del("health-check");
-            
-            return "ok".equals(result);
+            String result = redis.send(Request.cmd(Command.PING)).await().atMost(Duration.ofSeconds(2)).toString();
+            return "PONG".equalsIgnoreCase(result);
             
         } catch (Exception e) {
             LOG.warn("Redis não está disponível", e);
@@ -344,6 +844,47 @@ public class CacheService {
         );
     }
     
+    /**
+     * Valor em cache com o instante em que fica velho e o custo (ms) do último carregamento
+     * A chave no Redis vive além de expiraEm (stale-grace) para servir o valor velho durante a renovação
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class Entrada<T> {
+        public T valor;
+        public long expiraEm;
+        public long custo;
+
+        public Entrada() {}
+
+        Entrada(T valor, long expiraEm, long custo) {
+            this.valor = valor;
+            this.expiraEm = expiraEm;
+            this.custo = custo;
+        }
+
+        /**
+         * Vencida, ou sorteada para renovação antecipada: quanto mais perto do vencimento e mais cara
+         * de carregar, maior a chance (agora - custo * beta * ln(rand) >= expiraEm)
+         */
+        boolean deveRenovar(long agora, double beta) {
+            if (agora >= expiraEm) {
+                return true;
+            }
+            return beta > 0 && agora - custo * beta * Math.log(ThreadLocalRandom.current().nextDouble()) >= expiraEm;
+        }
+    }
+
+    @FunctionalInterface
+    private interface JsonReader<T> {
+        T read(String json) throws Exception;
+    }
+
+    /**
+     * Ignora a coleção LAZY de modelos e os atributos de proxy do Hibernate
+     */
+    @JsonIgnoreProperties(value = {"modelos", "hibernateLazyInitializer", "handler"}, ignoreUnknown = true)
+    abstract static class MarcaCacheMixin {}
+    
     // Classe auxiliar para estatísticas
     public static class CacheStats {
         public boolean redisAvailable;
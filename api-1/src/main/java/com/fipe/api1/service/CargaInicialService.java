@@ -0,0 +1,415 @@
+package com.fipe.api1.service;
+
+import com.fipe.api1.messaging.MarcaMessageProducer;
+import com.fipe.shared.dto.MarcaDTO;
+import com.fipe.shared.entity.TipoVeiculo;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carga inicial como job assíncrono
+ *
+ * As listas de marcas dos três tipos são buscadas em paralelo na API FIPE e cada marca é publicada na fila
+ * sem bloquear a requisição; o progresso de publicação vem da confirmação do conector e o de processamento
+ * dos avisos de marca processada do api-2. Interessados acompanham o job por SSE: cada mudança emite um
+ * retrato do progresso, com um retrato periódico entre elas para manter a conexão viva.
+ * Os jobs ficam só na memória da instância que os criou.
+ */
+@ApplicationScoped
+public class CargaInicialService {
+
+    private static final Logger LOG = Logger.getLogger(CargaInicialService.class);
+
+    // Jobs encerrados mantidos para consulta
+    private static final int MAX_JOBS_ENCERRADOS = 20;
+    private static final int MAX_ERROS = 50;
+
+    public enum Status {
+        BUSCANDO, PUBLICANDO, PROCESSANDO, CONCLUIDA, FALHOU, EXPIRADA
+    }
+
+    @Inject
+    FipeIntegrationService fipeIntegrationService;
+
+    @Inject
+    MarcaMessageProducer marcaMessageProducer;
+
+    @Inject
+    Tracer tracer;
+
+    // Limite para o job inteiro (busca, publicação e processamento pelo api-2)
+    @ConfigProperty(name = "fipe.carga.timeout", defaultValue = "PT30M")
+    Duration timeout;
+
+    @ConfigProperty(name = "fipe.carga.sse-intervalo", defaultValue = "PT15S")
+    Duration intervaloSse;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private ScheduledExecutorService executor;
+
+    void onStart(@Observes StartupEvent event) {
+        executor = Executors.newScheduledThreadPool(TipoVeiculo.values().length, tarefa -> {
+            Thread thread = new Thread(tarefa, "carga-inicial");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::emitirRetratos,
+            intervaloSse.toMillis(), intervaloSse.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Inicia um job e retorna seu progresso inicial; se já houver um em andamento, retorna null
+     */
+    public synchronized Progresso iniciar() {
+        for (Job job : jobs.values()) {
+            if (!job.encerrado()) {
+                return null;
+            }
+        }
+        Job job = new Job(UUID.randomUUID().toString());
+        jobs.put(job.id, job);
+        descartarAntigos();
+        LOG.infof("Carga inicial %s iniciada", job.id);
+
+        // Os spans de cada tipo ficam no trace da requisição que iniciou o job
+        Context origem = Context.current();
+        List<CompletableFuture<Void>> tipos = new ArrayList<>();
+        for (TipoVeiculo tipo : TipoVeiculo.values()) {
+            tipos.add(CompletableFuture
+                .supplyAsync(origem.wrapSupplier(() -> buscarEPublicar(job, tipo)), executor)
+                .thenCompose(publicacao -> publicacao)
+                .exceptionally(erro -> {
+                    job.buscaFalhou(tipo, erro);
+                    return null;
+                }));
+        }
+        CompletableFuture.allOf(tipos.toArray(new CompletableFuture[0])).thenRun(job::publicacaoEncerrada);
+        executor.schedule(job::expirar, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        return job.progresso();
+    }
+
+    public Progresso progresso(String id) {
+        Job job = jobs.get(id);
+        return job == null ? null : job.progresso();
+    }
+
+    /**
+     * Progresso do job por SSE, a partir do estado atual; termina quando o job encerra
+     * Retorna null se o job não existir
+     */
+    public Multi<Progresso> acompanhar(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return null;
+        }
+        return Multi.createFrom().emitter(emitter -> {
+            job.assinar(emitter);
+            emitter.onTermination(() -> job.cancelar(emitter));
+        });
+    }
+
+    /**
+     * Aviso do api-2: conta a marca como processada nos jobs que a publicaram
+     */
+    public void marcaProcessada(String codigoMarca, TipoVeiculo tipoVeiculo) {
+        for (Job job : jobs.values()) {
+            job.processada(tipoVeiculo, codigoMarca);
+        }
+    }
+
+    /**
+     * Busca e publicação de um tipo sob um span que termina quando a última marca é confirmada;
+     * as publicações (e, pelo cabeçalho AMQP, o processamento no api-2) ficam abaixo dele
+     */
+    private CompletableFuture<Void> buscarEPublicar(Job job, TipoVeiculo tipo) {
+        Span span = tracer.spanBuilder("carga-inicial " + tipo.getCodigo())
+            .setAttribute("fipe.carga.id", job.id)
+            .setAttribute("fipe.tipo", tipo.getCodigo())
+            .startSpan();
+        try (Scope escopo = span.makeCurrent()) {
+            List<MarcaDTO> marcas = fipeIntegrationService.buscarMarcasPorTipo(tipo);
+            span.setAttribute("fipe.marcas", marcas.size());
+            return publicar(job, tipo, marcas).whenComplete((ok, erro) -> span.end());
+        } catch (RuntimeException e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            span.end();
+            throw e;
+        }
+    }
+
+    private CompletableFuture<Void> publicar(Job job, TipoVeiculo tipo, List<MarcaDTO> marcas) {
+        job.encontradas(tipo, marcas);
+        List<CompletableFuture<Void>> envios = new ArrayList<>(marcas.size());
+        for (MarcaDTO marca : marcas) {
+            envios.add(marcaMessageProducer.enviarMarcaConfirmada(marca.codigo, marca.nome, tipo)
+                .toCompletableFuture()
+                .handle((ok, erro) -> {
+                    if (erro == null) {
+                        job.publicada(tipo);
+                    } else {
+                        job.envioFalhou(tipo, marca.codigo, erro);
+                    }
+                    return null;
+                }));
+        }
+        return CompletableFuture.allOf(envios.toArray(new CompletableFuture[0]));
+    }
+
+    private void emitirRetratos() {
+        for (Job job : jobs.values()) {
+            job.emitirRetrato();
+        }
+    }
+
+    private void descartarAntigos() {
+        long encerrados = jobs.values().stream().filter(Job::encerrado).count();
+        Iterator<Job> iterator = jobs.values().stream()
+            .filter(Job::encerrado)
+            .sorted((a, b) -> a.iniciadaEm.compareTo(b.iniciadaEm))
+            .iterator();
+        while (encerrados > MAX_JOBS_ENCERRADOS && iterator.hasNext()) {
+            jobs.remove(iterator.next().id);
+            encerrados--;
+        }
+    }
+
+    private static String chave(TipoVeiculo tipo, String codigoMarca) {
+        return tipo.getCodigo() + "|" + codigoMarca;
+    }
+
+    /**
+     * Estado de um job; alterações e emissões são serializadas no próprio objeto
+     */
+    private static final class Job {
+        final String id;
+        final LocalDateTime iniciadaEm = LocalDateTime.now();
+        final Map<TipoVeiculo, ProgressoTipo> porTipo = new EnumMap<>(TipoVeiculo.class);
+        final Set<String> pendentes = ConcurrentHashMap.newKeySet();
+        final List<String> erros = new ArrayList<>();
+        final List<MultiEmitter<? super Progresso>> assinantes = new CopyOnWriteArrayList<>();
+        int buscasPendentes = TipoVeiculo.values().length;
+        boolean publicacaoEncerrada;
+        Status terminal;
+        LocalDateTime encerradaEm;
+
+        Job(String id) {
+            this.id = id;
+            for (TipoVeiculo tipo : TipoVeiculo.values()) {
+                porTipo.put(tipo, new ProgressoTipo());
+            }
+        }
+
+        synchronized boolean encerrado() {
+            return terminal != null;
+        }
+
+        synchronized void encontradas(TipoVeiculo tipo, List<MarcaDTO> marcas) {
+            // Pendentes registradas antes do envio: o aviso de processamento pode chegar antes da confirmação
+            for (MarcaDTO marca : marcas) {
+                pendentes.add(chave(tipo, marca.codigo));
+            }
+            porTipo.get(tipo).encontradas = marcas.size();
+            buscasPendentes--;
+            notificar();
+        }
+
+        synchronized void buscaFalhou(TipoVeiculo tipo, Throwable erro) {
+            buscasPendentes--;
+            registrarErro("Falha ao buscar marcas de " + tipo.getCodigo() + ": " + causa(erro));
+            notificar();
+        }
+
+        synchronized void publicada(TipoVeiculo tipo) {
+            porTipo.get(tipo).publicadas++;
+            notificar();
+        }
+
+        synchronized void envioFalhou(TipoVeiculo tipo, String codigoMarca, Throwable erro) {
+            pendentes.remove(chave(tipo, codigoMarca));
+            porTipo.get(tipo).falhas++;
+            registrarErro("Falha ao publicar marca " + codigoMarca + " (" + tipo.getCodigo() + "): " + causa(erro));
+            verificarConclusao();
+            notificar();
+        }
+
+        synchronized void publicacaoEncerrada() {
+            publicacaoEncerrada = true;
+            verificarConclusao();
+            notificar();
+        }
+
+        synchronized void processada(TipoVeiculo tipo, String codigoMarca) {
+            if (terminal != null || !pendentes.remove(chave(tipo, codigoMarca))) {
+                return;
+            }
+            porTipo.get(tipo).processadas++;
+            verificarConclusao();
+            notificar();
+        }
+
+        synchronized void expirar() {
+            if (terminal == null) {
+                registrarErro("Tempo limite atingido com " + pendentes.size() + " marcas não processadas");
+                encerrar(Status.EXPIRADA);
+                notificar();
+            }
+        }
+
+        synchronized void assinar(MultiEmitter<? super Progresso> emitter) {
+            emitter.emit(progresso());
+            if (terminal != null) {
+                emitter.complete();
+            } else {
+                assinantes.add(emitter);
+            }
+        }
+
+        void cancelar(MultiEmitter<? super Progresso> emitter) {
+            assinantes.remove(emitter);
+        }
+
+        synchronized void emitirRetrato() {
+            if (terminal == null && !assinantes.isEmpty()) {
+                notificar();
+            }
+        }
+
+        private void verificarConclusao() {
+            if (terminal != null || !publicacaoEncerrada || !pendentes.isEmpty()) {
+                return;
+            }
+            int publicadas = 0;
+            for (ProgressoTipo tipo : porTipo.values()) {
+                publicadas += tipo.publicadas;
+            }
+            encerrar(publicadas == 0 ? Status.FALHOU : Status.CONCLUIDA);
+        }
+
+        private void encerrar(Status status) {
+            terminal = status;
+            encerradaEm = LocalDateTime.now();
+            LOG.infof("Carga inicial %s encerrada: %s", id, status);
+        }
+
+        private void notificar() {
+            if (assinantes.isEmpty()) {
+                return;
+            }
+            Progresso progresso = progresso();
+            for (MultiEmitter<? super Progresso> emitter : assinantes) {
+                emitter.emit(progresso);
+                if (terminal != null) {
+                    emitter.complete();
+                }
+            }
+            if (terminal != null) {
+                assinantes.clear();
+            }
+        }
+
+        private void registrarErro(String erro) {
+            LOG.warnf("Carga inicial %s: %s", id, erro);
+            if (erros.size() < MAX_ERROS) {
+                erros.add(erro);
+            }
+        }
+
+        synchronized Progresso progresso() {
+            Progresso progresso = new Progresso();
+            progresso.id = id;
+            progresso.status = terminal != null ? terminal
+                : buscasPendentes > 0 ? Status.BUSCANDO
+                : !publicacaoEncerrada ? Status.PUBLICANDO
+                : Status.PROCESSANDO;
+            progresso.iniciadaEm = iniciadaEm;
+            progresso.encerradaEm = encerradaEm;
+            progresso.porTipo = new LinkedHashMap<>();
+            for (Map.Entry<TipoVeiculo, ProgressoTipo> tipo : porTipo.entrySet()) {
+                ProgressoTipo copia = tipo.getValue().copia();
+                progresso.porTipo.put(tipo.getKey().getCodigo(), copia);
+                progresso.encontradas += copia.encontradas;
+                progresso.publicadas += copia.publicadas;
+                progresso.processadas += copia.processadas;
+                progresso.falhas += copia.falhas;
+            }
+            progresso.erros = List.copyOf(erros);
+            return progresso;
+        }
+
+        private static String causa(Throwable erro) {
+            Throwable causa = erro;
+            while (causa.getCause() != null && causa != causa.getCause()) {
+                causa = causa.getCause();
+            }
+            return causa.getMessage();
+        }
+    }
+
+    /**
+     * Retrato do progresso de um job (totais e por tipo de veículo)
+     */
+    public static class Progresso {
+        public String id;
+        public Status status;
+        public LocalDateTime iniciadaEm;
+        public LocalDateTime encerradaEm;
+        public int encontradas;
+        public int publicadas;
+        public int processadas;
+        public int falhas;
+        public Map<String, ProgressoTipo> porTipo;
+        public List<String> erros;
+    }
+
+    public static class ProgressoTipo {
+        public int encontradas;
+        public int publicadas;
+        public int processadas;
+        public int falhas;
+
+        ProgressoTipo copia() {
+            ProgressoTipo copia = new ProgressoTipo();
+            copia.encontradas = encontradas;
+            copia.publicadas = publicadas;
+            copia.processadas = processadas;
+            copia.falhas = falhas;
+            return copia;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.fipe.api1.service;
+
+import com.fipe.api1.repository.MarcaRepository;
+import com.fipe.api1.repository.ModeloRepository;
+import com.fipe.shared.dto.MarcaResumo;
+import com.fipe.shared.dto.ModeloResumo;
+import com.fipe.shared.repository.ContadorRepository;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Modo opcional de leitura a partir de um snapshot do catálogo em memória (fipe.catalogo.memoria.enabled)
+ *
+ * O snapshot é publicado por troca atômica de referência: leitores nunca bloqueiam nem tocam o banco.
+ * Uma thread própria confere a soma das versões de dados no máximo uma vez por intervalo e só recarrega
+ * quando ela muda (escritas locais e a ingestão do api-2 incrementam as versões). Se o banco estiver
+ * indisponível, o snapshot atual continua servindo.
+ */
+@ApplicationScoped
+public class CatalogoService {
+
+    private static final Logger LOG = Logger.getLogger(CatalogoService.class);
+
+    @Inject
+    MarcaRepository marcaRepository;
+
+    @Inject
+    ModeloRepository modeloRepository;
+
+    @Inject
+    ContadorRepository contadorRepository;
+
+    @ConfigProperty(name = "fipe.catalogo.memoria.enabled", defaultValue = "false")
+    boolean habilitado;
+
+    @ConfigProperty(name = "fipe.catalogo.verificacao-intervalo", defaultValue = "PT5S")
+    Duration intervaloVerificacao;
+
+    private final AtomicReference<CatalogoSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicBoolean verificando = new AtomicBoolean();
+    private volatile long proximaVerificacao;
+    private ExecutorService executor;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!habilitado) {
+            return;
+        }
+        executor = Executors.newSingleThreadExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "catalogo-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Primeira carga em segundo plano; até terminar, as leituras seguem pelo banco
+        proximaVerificacao = System.nanoTime();
+        agendarVerificacao();
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Snapshot corrente, ou null se o modo estiver desligado ou a primeira carga ainda não terminou
+     * Agenda a verificação de versão quando o intervalo venceu, sem esperar por ela
+     */
+    CatalogoSnapshot atual() {
+        if (!habilitado) {
+            return null;
+        }
+        if (System.nanoTime() - proximaVerificacao >= 0) {
+            agendarVerificacao();
+        }
+        return snapshot.get();
+    }
+
+    /**
+     * Antecipa a próxima verificação (após escritas locais)
+     */
+    public void solicitarVerificacao() {
+        proximaVerificacao = System.nanoTime();
+    }
+
+    public boolean isCarregado() {
+        return snapshot.get() != null;
+    }
+
+    private void agendarVerificacao() {
+        if (executor == null || !verificando.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    verificar();
+                } catch (Exception e) {
+                    LOG.warnf("Erro ao atualizar snapshot do catálogo (mantido o atual): %s", e.getMessage());
+                } finally {
+                    proximaVerificacao = System.nanoTime() + intervaloVerificacao.toNanos();
+                    verificando.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            verificando.set(false);
+        }
+    }
+
+    /**
+     * Recarrega o catálogo se a soma das versões mudou desde o snapshot atual
+     * As versões são lidas antes dos dados: uma escrita concorrente deixa o snapshot com versão menor
+     * e ele é recarregado na verificação seguinte
+     */
+    @ActivateRequestContext
+    void verificar() {
+        CatalogoSnapshot atual = snapshot.get();
+        if (atual != null && atual.versaoGlobal == contadorRepository.somaVersoes()) {
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        Map<String, Long> versoes = contadorRepository.findVersoes();
+        List<MarcaResumo> marcas = marcaRepository.listResumos();
+        List<ModeloResumo> modelos = modeloRepository.listResumos();
+        CatalogoSnapshot novo = CatalogoSnapshot.construir(marcas, modelos, versoes);
+        snapshot.set(novo);
+        LOG.infof("Snapshot do catálogo publicado: %d marcas, %d modelos (versão %d) em %d ms",
+            novo.quantidadeMarcas(), novo.quantidadeModelos(), novo.versaoGlobal,
+            (System.nanoTime() - inicio) / 1_000_000);
+    }
+}
@@ -0,0 +1,382 @@
+package com.fipe.api1.service;
+
+import com.fipe.api1.repository.MarcaRepository.PaginaMarcas;
+import com.fipe.api1.repository.ModeloRepository.PaginaModelos;
+import com.fipe.shared.dto.MarcaResumo;
+import com.fipe.shared.dto.ModeloResumo;
+import com.fipe.shared.dto.PageCursor;
+import com.fipe.shared.entity.Contador;
+import com.fipe.shared.entity.TipoVeiculo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cópia imutável e colunar do catálogo (marcas e modelos) para servir leituras sem banco nem Redis
+ *
+ * Marcas ficam em arrays paralelos na ordem das listagens (nome, id), com o tipo codificado em dicionário
+ * (ordinal de TipoVeiculo) e a lista de posições por tipo. Modelos ficam agrupados por marca, cada grupo
+ * na ordem (nome, id), com uma tabela de offsets marca -> modelos. Ids e códigos ordenados (de marcas e de
+ * modelos), com a posição correspondente, resolvem cursores e buscas por código com busca binária.
+ */
+final class CatalogoSnapshot {
+
+    private static final TipoVeiculo[] TIPOS = TipoVeiculo.values();
+
+    // Marcas, na ordem das listagens
+    private final long[] marcaIds;
+    private final String[] marcaCodigos;
+    private final String[] marcaNomes;
+    private final byte[] marcaTipos;
+    private final long[] marcaVersoes;
+    private final int[][] marcasPorTipo;
+    private final long[] versoesTipo;
+    private final long versaoTodos;
+
+    // Índices de busca das marcas
+    private final long[] marcaIdsOrdenados;
+    private final int[] marcaPosicoesPorId;
+    private final String[] marcaCodigosOrdenados;
+    private final int[] marcaPosicoesPorCodigo;
+
+    // Modelos, agrupados por marca: os da marca i ocupam [inicioModelos[i], inicioModelos[i + 1])
+    private final int[] inicioModelos;
+    private final long[] modeloIds;
+    private final String[] modeloCodigos;
+    private final String[] modeloNomes;
+    private final String[] modeloObservacoes;
+    private final long[] modeloIdsOrdenados;
+    private final int[] modeloPosicoesPorId;
+    private final String[] modeloCodigosOrdenados;
+    private final int[] modeloPosicoesPorCodigo;
+
+    final long versaoGlobal;
+
+    private CatalogoSnapshot(List<MarcaResumo> marcas, List<ModeloResumo> modelos, Map<String, Long> versoes) {
+        int totalMarcas = marcas.size();
+        marcaIds = new long[totalMarcas];
+        marcaCodigos = new String[totalMarcas];
+        marcaNomes = new String[totalMarcas];
+        marcaTipos = new byte[totalMarcas];
+        marcaVersoes = new long[totalMarcas];
+        int[] quantidadePorTipo = new int[TIPOS.length];
+        for (int i = 0; i < totalMarcas; i++) {
+            MarcaResumo marca = marcas.get(i);
+            marcaIds[i] = marca.id;
+            marcaCodigos[i] = marca.codigo;
+            marcaNomes[i] = marca.nome;
+            marcaTipos[i] = (byte) marca.tipoVeiculo.ordinal();
+            marcaVersoes[i] = versoes.getOrDefault(Contador.versaoMarca(marca.codigo), 0L);
+            quantidadePorTipo[marcaTipos[i]]++;
+        }
+
+        marcasPorTipo = new int[TIPOS.length][];
+        versoesTipo = new long[TIPOS.length];
+        for (TipoVeiculo tipo : TIPOS) {
+            marcasPorTipo[tipo.ordinal()] = new int[quantidadePorTipo[tipo.ordinal()]];
+            versoesTipo[tipo.ordinal()] = versoes.getOrDefault(Contador.versaoTipo(tipo), 0L);
+        }
+        int[] preenchidosPorTipo = new int[TIPOS.length];
+        for (int i = 0; i < totalMarcas; i++) {
+            marcasPorTipo[marcaTipos[i]][preenchidosPorTipo[marcaTipos[i]]++] = i;
+        }
+        versaoTodos = versoes.getOrDefault(Contador.versaoTipo(null), 0L);
+
+        marcaIdsOrdenados = marcaIds.clone();
+        marcaPosicoesPorId = ordenarPorId(marcaIdsOrdenados);
+        marcaCodigosOrdenados = new String[totalMarcas];
+        marcaPosicoesPorCodigo = ordenarPorCodigo(marcaCodigos, marcaIds, marcaCodigosOrdenados);
+
+        // Distribui os modelos (já em ordem de nome, id) pelos grupos das marcas, preservando a ordem
+        int[] marcaDoModelo = new int[modelos.size()];
+        inicioModelos = new int[totalMarcas + 1];
+        int descartados = 0;
+        for (int i = 0; i < modelos.size(); i++) {
+            int marca = posicaoMarca(modelos.get(i).codigoMarca);
+            marcaDoModelo[i] = marca;
+            if (marca < 0) {
+                descartados++;
+            } else {
+                inicioModelos[marca + 1]++;
+            }
+        }
+        for (int i = 0; i < totalMarcas; i++) {
+            inicioModelos[i + 1] += inicioModelos[i];
+        }
+        int totalModelos = modelos.size() - descartados;
+        modeloIds = new long[totalModelos];
+        modeloCodigos = new String[totalModelos];
+        modeloNomes = new String[totalModelos];
+        modeloObservacoes = new String[totalModelos];
+        int[] preenchidos = Arrays.copyOf(inicioModelos, totalMarcas);
+        for (int i = 0; i < modelos.size(); i++) {
+            if (marcaDoModelo[i] < 0) {
+                continue;
+            }
+            ModeloResumo modelo = modelos.get(i);
+            int destino = preenchidos[marcaDoModelo[i]]++;
+            modeloIds[destino] = modelo.id;
+            modeloCodigos[destino] = modelo.codigo;
+            modeloNomes[destino] = modelo.nome;
+            modeloObservacoes[destino] = modelo.observacoes;
+        }
+        modeloIdsOrdenados = modeloIds.clone();
+        modeloPosicoesPorId = ordenarPorId(modeloIdsOrdenados);
+        modeloCodigosOrdenados = new String[totalModelos];
+        modeloPosicoesPorCodigo = ordenarPorCodigo(modeloCodigos, modeloIds, modeloCodigosOrdenados);
+
+        long soma = 0;
+        for (long versao : versoes.values()) {
+            soma += versao;
+        }
+        versaoGlobal = soma;
+    }
+
+    /**
+     * Monta o snapshot a partir das listas completas, ambas na ordem (nome, id) das listagens
+     * versoes são os contadores "versao:*" lidos antes dos dados; a soma deles identifica o snapshot
+     */
+    static CatalogoSnapshot construir(List<MarcaResumo> marcas, List<ModeloResumo> modelos, Map<String, Long> versoes) {
+        return new CatalogoSnapshot(marcas, modelos, versoes);
+    }
+
+    int quantidadeMarcas() {
+        return marcaIds.length;
+    }
+
+    int quantidadeModelos() {
+        return modeloIds.length;
+    }
+
+    PaginaMarcas paginaMarcas(TipoVeiculo tipoVeiculo, int page, int size) {
+        int[] posicoes = tipoVeiculo == null ? null : marcasPorTipo[tipoVeiculo.ordinal()];
+        int total = posicoes == null ? marcaIds.length : posicoes.length;
+        // Intervalo limitado a [0, total]: página negativa fica vazia em vez de ler fora do array
+        long deslocamento = (long) page * size;
+        long inicio = Math.min(total, Math.max(0, deslocamento));
+        List<MarcaResumo> marcas = new ArrayList<>();
+        for (long i = inicio; i < Math.min(total, deslocamento + size); i++) {
+            marcas.add(marca(posicoes == null ? (int) i : posicoes[(int) i]));
+        }
+        return new PaginaMarcas(marcas, (long) total);
+    }
+
+    /**
+     * Até limit marcas do tipo após o cursor (nome, id)
+     */
+    List<MarcaResumo> marcasApos(TipoVeiculo tipoVeiculo, PageCursor after, int limit) {
+        int[] posicoes = tipoVeiculo == null ? null : marcasPorTipo[tipoVeiculo.ordinal()];
+        int total = posicoes == null ? marcaIds.length : posicoes.length;
+        int inicio = 0;
+        if (after != null) {
+            int posicaoCursor = posicaoApos(after, marcaIdsOrdenados, marcaPosicoesPorId, marcaNomes, marcaIds, 0, marcaIds.length);
+            // Primeira posição do filtro que vem depois do cursor na ordem global
+            inicio = posicoes == null ? posicaoCursor : primeiroMaiorOuIgual(posicoes, posicaoCursor);
+        }
+        List<MarcaResumo> marcas = new ArrayList<>(Math.max(0, Math.min(limit, total - inicio)));
+        for (int i = inicio; i < total && marcas.size() < limit; i++) {
+            marcas.add(marca(posicoes == null ? i : posicoes[i]));
+        }
+        return marcas;
+    }
+
+    long totalMarcas(TipoVeiculo tipoVeiculo) {
+        return tipoVeiculo == null ? marcaIds.length : marcasPorTipo[tipoVeiculo.ordinal()].length;
+    }
+
+    long versaoMarcas(TipoVeiculo tipoVeiculo) {
+        return tipoVeiculo == null ? versaoTodos : versoesTipo[tipoVeiculo.ordinal()];
+    }
+
+    /**
+     * Página de modelos da marca com cabeçalho e total; null se a marca não existir
+     */
+    PaginaModelos paginaModelos(String codigoMarca, int page, int size) {
+        int marca = posicaoMarca(codigoMarca);
+        if (marca < 0) {
+            return null;
+        }
+        int fim = inicioModelos[marca + 1];
+        // Intervalo limitado a [inicioModelos[marca], fim]: página negativa não lê os modelos da marca anterior
+        long deslocamento = inicioModelos[marca] + (long) page * size;
+        long inicio = Math.min(fim, Math.max(inicioModelos[marca], deslocamento));
+        List<ModeloResumo> modelos = new ArrayList<>();
+        for (long i = inicio; i < Math.min(fim, deslocamento + size); i++) {
+            modelos.add(modelo((int) i, marca));
+        }
+        return new PaginaModelos(marcaCodigos[marca], marcaNomes[marca], modelos, totalModelos(marca));
+    }
+
+    /**
+     * Até limit modelos da marca após o cursor (nome, id); null se a marca não existir
+     */
+    PaginaModelos modelosApos(String codigoMarca, PageCursor after, int limit) {
+        int marca = posicaoMarca(codigoMarca);
+        if (marca < 0) {
+            return null;
+        }
+        int inicio = inicioModelos[marca];
+        int fim = inicioModelos[marca + 1];
+        if (after != null) {
+            inicio = posicaoApos(after, modeloIdsOrdenados, modeloPosicoesPorId, modeloNomes, modeloIds, inicio, fim);
+        }
+        List<ModeloResumo> modelos = new ArrayList<>(Math.max(0, Math.min(limit, fim - inicio)));
+        for (int i = inicio; i < fim && modelos.size() < limit; i++) {
+            modelos.add(modelo(i, marca));
+        }
+        return new PaginaModelos(marcaCodigos[marca], marcaNomes[marca], modelos, totalModelos(marca));
+    }
+
+    long totalModelos(String codigoMarca) {
+        int marca = posicaoMarca(codigoMarca);
+        return marca < 0 ? 0 : totalModelos(marca);
+    }
+
+    long versaoModelos(String codigoMarca) {
+        int marca = posicaoMarca(codigoMarca);
+        return marca < 0 ? 0 : marcaVersoes[marca];
+    }
+
+    /**
+     * Marca pelo código, ou null se não existir
+     */
+    MarcaResumo marcaPorCodigo(String codigoMarca) {
+        int marca = posicaoMarca(codigoMarca);
+        return marca < 0 ? null : marca(marca);
+    }
+
+    /**
+     * Modelo pelo código (o de menor id, se o código se repetir), ou null se não existir
+     */
+    ModeloResumo modeloPorCodigo(String codigoModelo) {
+        int i = primeiroIgual(modeloCodigosOrdenados, codigoModelo);
+        if (i < 0) {
+            return null;
+        }
+        int posicao = modeloPosicoesPorCodigo[i];
+        return modelo(posicao, marcaDoModelo(posicao));
+    }
+
+    private long totalModelos(int marca) {
+        return inicioModelos[marca + 1] - inicioModelos[marca];
+    }
+
+    private MarcaResumo marca(int posicao) {
+        return new MarcaResumo(marcaIds[posicao], marcaCodigos[posicao], marcaNomes[posicao], TIPOS[marcaTipos[posicao]]);
+    }
+
+    private ModeloResumo modelo(int posicao, int marca) {
+        return new ModeloResumo(modeloIds[posicao], modeloCodigos[posicao], modeloNomes[posicao],
+            modeloObservacoes[posicao], marcaCodigos[marca], marcaNomes[marca]);
+    }
+
+    private int posicaoMarca(String codigoMarca) {
+        int i = primeiroIgual(marcaCodigosOrdenados, codigoMarca);
+        return i < 0 ? -1 : marcaPosicoesPorCodigo[i];
+    }
+
+    /**
+     * Marca dona da posição de modelo: último grupo que começa nela ou antes (grupos vazios têm início repetido)
+     */
+    private int marcaDoModelo(int posicao) {
+        int baixo = 0;
+        int alto = inicioModelos.length - 2;
+        while (baixo < alto) {
+            int meio = (baixo + alto + 1) >>> 1;
+            if (inicioModelos[meio] <= posicao) {
+                baixo = meio;
+            } else {
+                alto = meio - 1;
+            }
+        }
+        return baixo;
+    }
+
+    /**
+     * Primeira ocorrência do código no array ordenado, ou -1
+     */
+    private static int primeiroIgual(String[] ordenados, String codigo) {
+        if (codigo == null) {
+            return -1;
+        }
+        int baixo = 0;
+        int alto = ordenados.length;
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (ordenados[meio].compareTo(codigo) < 0) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return baixo < ordenados.length && ordenados[baixo].equals(codigo) ? baixo : -1;
+    }
+
+    /**
+     * Posição logo após o cursor dentro de [inicio, fim)
+     * O item do cursor é localizado pelo id; se não estiver mais no intervalo, compara (nome, id) item a item,
+     * já que a ordem de nomes é a do banco (collation) e não necessariamente a de String.compareTo
+     */
+    private static int posicaoApos(PageCursor after, long[] idsOrdenados, int[] posicoesPorId,
+                                   String[] nomes, long[] ids, int inicio, int fim) {
+        int i = Arrays.binarySearch(idsOrdenados, after.id);
+        if (i >= 0) {
+            int posicao = posicoesPorId[i];
+            if (posicao >= inicio && posicao < fim && nomes[posicao].equals(after.nome)) {
+                return posicao + 1;
+            }
+        }
+        for (int posicao = inicio; posicao < fim; posicao++) {
+            int comparacao = nomes[posicao].compareTo(after.nome);
+            if (comparacao > 0 || (comparacao == 0 && ids[posicao] > after.id)) {
+                return posicao;
+            }
+        }
+        return fim;
+    }
+
+    private static int primeiroMaiorOuIgual(int[] posicoes, int valor) {
+        int i = Arrays.binarySearch(posicoes, valor);
+        return i < 0 ? -i - 1 : i;
+    }
+
+    /**
+     * Preenche ordenados com os códigos em ordem (empate pelo menor id) e devolve a posição original de cada um
+     */
+    private static int[] ordenarPorCodigo(String[] codigos, long[] ids, String[] ordenados) {
+        Integer[] ordem = new Integer[codigos.length];
+        for (int i = 0; i < ordem.length; i++) {
+            ordem[i] = i;
+        }
+        Arrays.sort(ordem, (a, b) -> {
+            int comparacao = codigos[a].compareTo(codigos[b]);
+            return comparacao != 0 ? comparacao : Long.compare(ids[a], ids[b]);
+        });
+        int[] posicoes = new int[codigos.length];
+        for (int i = 0; i < ordem.length; i++) {
+            ordenados[i] = codigos[ordem[i]];
+            posicoes[i] = ordem[i];
+        }
+        return posicoes;
+    }
+
+    /**
+     * Ordena os ids no próprio array e devolve, para cada id ordenado, a posição original
+     */
+    private static int[] ordenarPorId(long[] ids) {
+        long[] originais = ids.clone();
+        Integer[] ordem = new Integer[ids.length];
+        for (int i = 0; i < ordem.length; i++) {
+            ordem[i] = i;
+        }
+        Arrays.sort(ordem, (a, b) -> Long.compare(originais[a], originais[b]));
+        int[] posicoes = new int[ids.length];
+        for (int i = 0; i < ordem.length; i++) {
+            ids[i] = originais[ordem[i]];
+            posicoes[i] = ordem[i];
+        }
+        return posicoes;
+    }
+}
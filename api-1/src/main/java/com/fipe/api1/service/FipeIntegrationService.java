@@ -1,21 +1,34 @@
 package com.fipe.api1.service;
 
-import com.fipe.api1.client.FipeClient;
+import com.fipe.api1.client.FipeClienteProtegido;
 import com.fipe.api1.messaging.MarcaMessageProducer;
 import com.fipe.shared.dto.MarcaDTO;
+import com.fipe.shared.entity.TipoVeiculo;
+import io.smallrye.faulttolerance.api.CircuitBreakerState;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Serviço responsável pela integração com a API FIPE
  * e envio de mensagens para processamento assíncrono
+ *
+ * As listas de marcas passam por circuit breaker (FipeClienteProtegido) e a última lista obtida
+ * de cada tipo fica guardada localmente e no Redis para ser servida quando a API estiver fora
  */
 @ApplicationScoped
 public class FipeIntegrationService {
@@ -23,85 +36,112 @@ public class FipeIntegrationService {
     private static final Logger LOG = Logger.getLogger(FipeIntegrationService.class);
 
     @Inject
-    @RestClient
-    FipeClient fipeClient;
+    FipeClienteProtegido fipeClienteProtegido;
     
     @Inject
     MarcaMessageProducer marcaMessageProducer;
 
+    @Inject
+    CacheService cacheService;
 
+    // Idade a partir da qual a última lista conhecida é revalidada em segundo plano
+    @ConfigProperty(name = "fipe.marcas.frescor", defaultValue = "PT1H")
+    Duration frescor;
 
-    /**
-     * Executa a carga inicial de todas as marcas de veículos
-     * Busca marcas de carros, motos e caminhões e envia para processamento
-     */
-    public CompletionStage<String> executarCargaInicial() {
-        LOG.info("Iniciando carga inicial de dados FIPE");
-        
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                int totalMarcasEnviadas = 0;
-                
-                // Buscar e processar marcas de carros
-                List<MarcaDTO> marcasCarros = fipeClient.getMarcasCarros();
-                enviarMarcasParaFila(marcasCarros, "carros");
-                totalMarcasEnviadas += marcasCarros.size();
-                LOG.infof("Enviadas %d marcas de carros para processamento", marcasCarros.size());
-                
-                // Buscar e processar marcas de motos
-                List<MarcaDTO> marcasMotos = fipeClient.getMarcasMotos();
-                enviarMarcasParaFila(marcasMotos, "motos");
-                totalMarcasEnviadas += marcasMotos.size();
-                LOG.infof("Enviadas %d marcas de motos para processamento", marcasMotos.size());
-                
-                // Buscar e processar marcas de caminhões
-                List<MarcaDTO> marcasCaminhoes = fipeClient.getMarcasCaminhoes();
-                enviarMarcasParaFila(marcasCaminhoes, "caminhoes");
-                totalMarcasEnviadas += marcasCaminhoes.size();
-                LOG.infof("Enviadas %d marcas de caminhões para processamento", marcasCaminhoes.size());
-                
-                String resultado = String.format(
-                    "Carga inicial concluída com sucesso! Total de %d marcas enviadas para processamento (Carros: %d, Motos: %d, Caminhões: %d)",
-                    totalMarcasEnviadas, marcasCarros.size(), marcasMotos.size(), marcasCaminhoes.size()
-                );
-                
-                LOG.info(resultado);
-                return resultado;
-                
-            } catch (Exception e) {
-                LOG.error("Erro durante a carga inicial de dados FIPE", e);
-                throw new RuntimeException("Falha na carga inicial: " + e.getMessage(), e);
-            }
+    // Última lista de marcas obtida por tipo (cópia local; o Redis guarda a compartilhada)
+    private final Map<TipoVeiculo, MarcasConhecidas> conhecidas = new ConcurrentHashMap<>();
+    // Revalidações em andamento por tipo (uma por vez)
+    private final Set<TipoVeiculo> revalidando = ConcurrentHashMap.newKeySet();
+    private ExecutorService revalidacoes;
+
+    @PostConstruct
+    void init() {
+        revalidacoes = Executors.newSingleThreadExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "fipe-revalidacao");
+            thread.setDaemon(true);
+            return thread;
         });
     }
 
+    @PreDestroy
+    void shutdown() {
+        revalidacoes.shutdownNow();
+    }
+
     /**
      * Busca apenas as marcas de um tipo específico de veículo
+     *
+     * Com uma lista conhecida (local ou no Redis), ela é servida na hora; se passou de fipe.marcas.frescor
+     * e o circuito está fechado, é revalidada em segundo plano. Sem lista conhecida a busca é síncrona,
+     * pelo circuit breaker, e falha rápido se a API FIPE estiver fora.
      */
-    public List<MarcaDTO> buscarMarcasPorTipo(String tipoVeiculo) {
+    public List<MarcaDTO> buscarMarcasPorTipo(TipoVeiculo tipoVeiculo) {
         LOG.infof("Buscando marcas para tipo de veículo: %s", tipoVeiculo);
         
+        MarcasConhecidas conhecida = ultimaConhecida(tipoVeiculo);
+        if (conhecida != null) {
+            if (System.currentTimeMillis() - conhecida.obtidaEm > frescor.toMillis()) {
+                revalidarEmSegundoPlano(tipoVeiculo);
+            }
+            return conhecida.marcas;
+        }
+        
         try {
-            return switch (tipoVeiculo.toLowerCase()) {
-                case "carros" -> fipeClient.getMarcasCarros();
-                case "motos" -> fipeClient.getMarcasMotos();
-                case "caminhoes" -> fipeClient.getMarcasCaminhoes();
-                default -> {
-                    LOG.warnf("Tipo de veículo não reconhecido: %s", tipoVeiculo);
-                    yield new ArrayList<>();
-                }
-            };
+            return buscarNaFipe(tipoVeiculo);
         } catch (Exception e) {
             LOG.errorf("Erro ao buscar marcas para tipo %s: %s", tipoVeiculo, e.getMessage());
             throw new RuntimeException("Falha ao buscar marcas: " + e.getMessage(), e);
         }
     }
 
+    private List<MarcaDTO> buscarNaFipe(TipoVeiculo tipoVeiculo) {
+        List<MarcaDTO> marcas = fipeClienteProtegido.buscarMarcas(tipoVeiculo);
+        // Lista vazia não substitui a última conhecida
+        if (marcas != null && !marcas.isEmpty()) {
+            MarcasConhecidas nova = new MarcasConhecidas(marcas, System.currentTimeMillis());
+            conhecidas.put(tipoVeiculo, nova);
+            cacheService.putMarcasFipe(tipoVeiculo, nova);
+        }
+        return marcas;
+    }
+
+    private MarcasConhecidas ultimaConhecida(TipoVeiculo tipoVeiculo) {
+        MarcasConhecidas local = conhecidas.get(tipoVeiculo);
+        if (local != null) {
+            return local;
+        }
+        Optional<MarcasConhecidas> compartilhada = cacheService.getMarcasFipe(tipoVeiculo);
+        compartilhada.ifPresent(marcas -> conhecidas.putIfAbsent(tipoVeiculo, marcas));
+        return compartilhada.orElse(null);
+    }
+
+    private void revalidarEmSegundoPlano(TipoVeiculo tipoVeiculo) {
+        // Circuito aberto: a chamada falharia de qualquer forma; segue a lista conhecida
+        if (fipeClienteProtegido.estadoCircuito() == CircuitBreakerState.OPEN || !revalidando.add(tipoVeiculo)) {
+            return;
+        }
+        try {
+            revalidacoes.execute(() -> {
+                try {
+                    buscarNaFipe(tipoVeiculo);
+                    LOG.debugf("Lista de marcas de %s revalidada", tipoVeiculo);
+                } catch (Exception e) {
+                    LOG.warnf("Revalidação das marcas de %s falhou; mantida a última lista conhecida: %s",
+                        tipoVeiculo, e.getMessage());
+                } finally {
+                    revalidando.remove(tipoVeiculo);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            revalidando.remove(tipoVeiculo);
+        }
+    }
+
     /**
      * Envia marcas para a fila de processamento
      * 1.3 - Implementa o envio para fila
      */
-    public CompletionStage<Void> enviarMarcasParaFila(List<MarcaDTO> marcas, String tipoVeiculo) {
+    public CompletionStage<Void> enviarMarcasParaFila(List<MarcaDTO> marcas, TipoVeiculo tipoVeiculo) {
         LOG.infof("Enviando %d marcas do tipo %s para a fila", marcas.size(), tipoVeiculo);
         
         return marcaMessageProducer.enviarMarcas(marcas, tipoVeiculo)
@@ -119,7 +159,7 @@ public class FipeIntegrationService {
     /**
      * Envia uma marca individual para a fila de processamento
      */
-    public CompletionStage<Void> enviarMarcaIndividual(String codigoMarca, String nomeMarca, String tipoVeiculo) {
+    public CompletionStage<Void> enviarMarcaIndividual(String codigoMarca, String nomeMarca, TipoVeiculo tipoVeiculo) {
         LOG.infof("Enviando marca individual para a fila: %s - %s (%s)", codigoMarca, nomeMarca, tipoVeiculo);
         
         return marcaMessageProducer.enviarMarca(codigoMarca, nomeMarca, tipoVeiculo)
@@ -133,16 +173,19 @@ public class FipeIntegrationService {
             });
     }
 
+
     /**
-     * Verifica se a API FIPE está disponível
+     * Lista de marcas obtida da API FIPE e o instante (epoch ms) em que foi obtida
      */
-    public boolean verificarDisponibilidadeApi() {
-        try {
-            List<MarcaDTO> marcas = fipeClient.getMarcasCarros();
-            return marcas != null && !marcas.isEmpty();
-        } catch (Exception e) {
-            LOG.errorf("API FIPE indisponível: %s", e.getMessage());
-            return false;
+    public static class MarcasConhecidas {
+        public List<MarcaDTO> marcas;
+        public long obtidaEm;
+
+        public MarcasConhecidas() {}
+
+        public MarcasConhecidas(List<MarcaDTO> marcas, long obtidaEm) {
+            this.marcas = marcas;
+            this.obtidaEm = obtidaEm;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,311 @@
+package com.fipe.api1.service;
+
+import com.fipe.api1.service.BuscaService.Sugestao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice invertido imutável sobre nomes normalizados (sem acento, minúsculos)
+ * Cada segmento guarda os termos ordenados (busca por prefixo com busca binária) e postings int[] ordenados
+ * Novos documentos entram como um segmento adicional; alterações marcam o documento anterior como removido
+ *
+ * A ordem de exibição que não depende da consulta (marcas antes de modelos, nome mais curto, alfabética)
+ * é pré-calculada, de modo que a busca percorre os candidatos já ordenados e para ao completar o limite
+ */
+final class IndiceNomes {
+
+    // Acima disso os segmentos são compactados em um só
+    private static final int MAX_SEGMENTOS = 8;
+
+    // Até esse número de candidatos, ordená-los sai mais barato que percorrer a ordem global
+    private static final int MAX_CANDIDATOS_ORDENADOS = 2048;
+
+    private final Sugestao[] docs;
+    private final String[] nomes;
+    private final List<Segmento> segmentos;
+    private final BitSet removidos;
+    private final int[] ordem;
+    private final int[] posicoes;
+
+    private IndiceNomes(Sugestao[] docs, String[] nomes, List<Segmento> segmentos, BitSet removidos, int[] ordem) {
+        this.docs = docs;
+        this.nomes = nomes;
+        this.segmentos = segmentos;
+        this.removidos = removidos;
+        this.ordem = ordem;
+        this.posicoes = new int[docs.length];
+        for (int i = 0; i < ordem.length; i++) {
+            posicoes[ordem[i]] = i;
+        }
+    }
+
+    static IndiceNomes vazio() {
+        return new IndiceNomes(new Sugestao[0], new String[0], List.of(), new BitSet(), new int[0]);
+    }
+
+    int tamanho() {
+        return docs.length - removidos.cardinality();
+    }
+
+    /**
+     * Novo índice com os documentos acrescentados em um segmento próprio
+     * Com substituir, documentos vivos de mesmo tipo e código são marcados como removidos
+     */
+    IndiceNomes com(List<Sugestao> novos, boolean substituir) {
+        if (novos.isEmpty()) {
+            return this;
+        }
+        int base = docs.length;
+        Sugestao[] novosDocs = Arrays.copyOf(docs, base + novos.size());
+        String[] novosNomes = Arrays.copyOf(nomes, base + novos.size());
+        BitSet novosRemovidos = (BitSet) removidos.clone();
+
+        for (int i = 0; i < novos.size(); i++) {
+            Sugestao sugestao = novos.get(i);
+            if (substituir) {
+                marcarRemovido(sugestao, novosRemovidos);
+            }
+            novosDocs[base + i] = sugestao;
+            novosNomes[base + i] = BuscaService.normalizar(sugestao.nome);
+        }
+
+        if (segmentos.size() >= MAX_SEGMENTOS) {
+            return compactar(novosDocs, novosNomes, novosRemovidos);
+        }
+        List<Segmento> novosSegmentos = new ArrayList<>(segmentos);
+        novosSegmentos.add(Segmento.construir(novosNomes, base, novosNomes.length));
+        int[] novaOrdem = intercalar(ordem, ordenar(novosDocs, novosNomes, base, novosNomes.length), novosDocs, novosNomes);
+        return new IndiceNomes(novosDocs, novosNomes, novosSegmentos, novosRemovidos, novaOrdem);
+    }
+
+    /**
+     * Documentos em que cada termo da consulta é prefixo de algum termo do nome
+     * Ordem: nome que começa com a consulta, marcas antes de modelos, nome mais curto, alfabética
+     */
+    List<Sugestao> buscar(String consulta, int limite) {
+        // Prefixos mais longos costumam ser mais seletivos; com poucos candidatos, os demais termos
+        // são conferidos direto no nome em vez de percorrer postings
+        String[] prefixos = consulta.split(" ");
+        Arrays.sort(prefixos, (a, b) -> Integer.compare(b.length(), a.length()));
+        BitSet candidatos = null;
+        for (String prefixo : prefixos) {
+            if (candidatos != null && candidatos.cardinality() <= MAX_CANDIDATOS_ORDENADOS) {
+                for (int doc = candidatos.nextSetBit(0); doc >= 0; doc = candidatos.nextSetBit(doc + 1)) {
+                    if (!contemPrefixo(nomes[doc], prefixo)) {
+                        candidatos.clear(doc);
+                    }
+                }
+            } else {
+                BitSet encontrados = new BitSet(docs.length);
+                for (Segmento segmento : segmentos) {
+                    segmento.marcar(prefixo, encontrados);
+                }
+                if (candidatos == null) {
+                    candidatos = encontrados;
+                    candidatos.andNot(removidos);
+                } else {
+                    candidatos.and(encontrados);
+                }
+            }
+            if (candidatos.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        // Nomes que começam com a consulta vêm primeiro; dentro de cada grupo vale a ordem pré-calculada
+        List<Sugestao> prefixados = new ArrayList<>(limite);
+        List<Sugestao> demais = new ArrayList<>(limite);
+        int quantidade = candidatos.cardinality();
+        if (quantidade <= MAX_CANDIDATOS_ORDENADOS) {
+            int[] selecionados = new int[quantidade];
+            int i = 0;
+            for (int doc = candidatos.nextSetBit(0); doc >= 0; doc = candidatos.nextSetBit(doc + 1)) {
+                selecionados[i++] = posicoes[doc];
+            }
+            Arrays.sort(selecionados);
+            for (int posicao : selecionados) {
+                if (classificar(ordem[posicao], consulta, limite, prefixados, demais)) {
+                    break;
+                }
+            }
+        } else {
+            for (int doc : ordem) {
+                if (candidatos.get(doc) && classificar(doc, consulta, limite, prefixados, demais)) {
+                    break;
+                }
+            }
+        }
+
+        prefixados.addAll(demais);
+        return prefixados.size() > limite ? prefixados.subList(0, limite) : prefixados;
+    }
+
+    /**
+     * Coloca o documento no grupo certo; retorna true quando o resultado já está completo
+     */
+    private boolean classificar(int doc, String consulta, int limite, List<Sugestao> prefixados, List<Sugestao> demais) {
+        if (nomes[doc].startsWith(consulta)) {
+            prefixados.add(docs[doc]);
+            return prefixados.size() == limite;
+        }
+        if (demais.size() < limite) {
+            demais.add(docs[doc]);
+        }
+        return false;
+    }
+
+    private static boolean contemPrefixo(String nome, String prefixo) {
+        return nome.startsWith(prefixo) || nome.contains(" " + prefixo);
+    }
+
+    private void marcarRemovido(Sugestao sugestao, BitSet alvo) {
+        for (int doc = 0; doc < docs.length; doc++) {
+            if (!alvo.get(doc) && docs[doc].tipo.equals(sugestao.tipo) && docs[doc].codigo.equals(sugestao.codigo)) {
+                alvo.set(doc);
+            }
+        }
+    }
+
+    /**
+     * Reconstrói um único segmento apenas com os documentos vivos
+     */
+    private static IndiceNomes compactar(Sugestao[] docs, String[] nomes, BitSet removidos) {
+        int vivos = docs.length - removidos.cardinality();
+        Sugestao[] compactosDocs = new Sugestao[vivos];
+        String[] compactosNomes = new String[vivos];
+        int destino = 0;
+        for (int doc = removidos.nextClearBit(0); doc < docs.length; doc = removidos.nextClearBit(doc + 1)) {
+            compactosDocs[destino] = docs[doc];
+            compactosNomes[destino] = nomes[doc];
+            destino++;
+        }
+        return new IndiceNomes(compactosDocs, compactosNomes,
+            List.of(Segmento.construir(compactosNomes, 0, vivos)), new BitSet(),
+            ordenar(compactosDocs, compactosNomes, 0, vivos));
+    }
+
+    /**
+     * Ordem independente da consulta: marcas antes de modelos, nome mais curto, alfabética
+     */
+    private static int comparar(int a, int b, Sugestao[] docs, String[] nomes) {
+        int tipo = Boolean.compare(!BuscaService.TIPO_MARCA.equals(docs[a].tipo), !BuscaService.TIPO_MARCA.equals(docs[b].tipo));
+        if (tipo != 0) {
+            return tipo;
+        }
+        int comprimento = Integer.compare(nomes[a].length(), nomes[b].length());
+        return comprimento != 0 ? comprimento : nomes[a].compareTo(nomes[b]);
+    }
+
+    private static int[] ordenar(Sugestao[] docs, String[] nomes, int inicio, int fim) {
+        Integer[] ids = new Integer[fim - inicio];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = inicio + i;
+        }
+        Arrays.sort(ids, (a, b) -> comparar(a, b, docs, nomes));
+        int[] ordem = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ordem[i] = ids[i];
+        }
+        return ordem;
+    }
+
+    /**
+     * Intercala duas ordens já ordenadas (a atual e a dos documentos novos) em tempo linear
+     */
+    private static int[] intercalar(int[] atual, int[] novos, Sugestao[] docs, String[] nomes) {
+        int[] resultado = new int[atual.length + novos.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < atual.length && j < novos.length) {
+            resultado[k++] = comparar(atual[i], novos[j], docs, nomes) <= 0 ? atual[i++] : novos[j++];
+        }
+        while (i < atual.length) {
+            resultado[k++] = atual[i++];
+        }
+        while (j < novos.length) {
+            resultado[k++] = novos[j++];
+        }
+        return resultado;
+    }
+
+    /**
+     * Termos ordenados de um intervalo de documentos e suas postings (ids globais, crescentes)
+     */
+    private static final class Segmento {
+
+        private final String[] termos;
+        private final int[][] postings;
+
+        private Segmento(String[] termos, int[][] postings) {
+            this.termos = termos;
+            this.postings = postings;
+        }
+
+        static Segmento construir(String[] nomes, int inicio, int fim) {
+            // Primeira passada: frequência de cada termo (uma vez por documento)
+            Map<String, int[]> frequencias = new HashMap<>();
+            for (int doc = inicio; doc < fim; doc++) {
+                String anterior = null;
+                for (String termo : termosUnicos(nomes[doc])) {
+                    if (!termo.equals(anterior)) {
+                        frequencias.computeIfAbsent(termo, t -> new int[1])[0]++;
+                    }
+                    anterior = termo;
+                }
+            }
+
+            String[] termos = frequencias.keySet().toArray(new String[0]);
+            Arrays.sort(termos);
+            int[][] postings = new int[termos.length][];
+            Map<String, Integer> posicoes = new HashMap<>(termos.length * 2);
+            for (int i = 0; i < termos.length; i++) {
+                postings[i] = new int[frequencias.get(termos[i])[0]];
+                posicoes.put(termos[i], i);
+            }
+
+            // Segunda passada: preenche as postings em ordem crescente de documento
+            int[] preenchidos = new int[termos.length];
+            for (int doc = inicio; doc < fim; doc++) {
+                String anterior = null;
+                for (String termo : termosUnicos(nomes[doc])) {
+                    if (!termo.equals(anterior)) {
+                        int posicao = posicoes.get(termo);
+                        postings[posicao][preenchidos[posicao]++] = doc;
+                    }
+                    anterior = termo;
+                }
+            }
+            return new Segmento(termos, postings);
+        }
+
+        /**
+         * Marca os documentos com algum termo iniciado pelo prefixo
+         */
+        void marcar(String prefixo, BitSet alvo) {
+            int i = Arrays.binarySearch(termos, prefixo);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            for (; i < termos.length && termos[i].startsWith(prefixo); i++) {
+                for (int doc : postings[i]) {
+                    alvo.set(doc);
+                }
+            }
+        }
+
+        private static String[] termosUnicos(String nome) {
+            if (nome.isEmpty()) {
+                return new String[0];
+            }
+            String[] termos = nome.split(" ");
+            Arrays.sort(termos);
+            return termos;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.fipe.api1.service;
+
+import com.fipe.api1.client.FipeClient;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.reactive.messaging.health.HealthReport;
+import io.smallrye.reactive.messaging.providers.extension.HealthCenter;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Redis;
+import io.vertx.mutiny.redis.client.Request;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saúde das dependências (Redis, banco, RabbitMQ e API FIPE)
+ *
+ * As verificações rodam em segundo plano, com checagens baratas (PING no Redis, isValid na conexão,
+ * estado dos canais no conector RabbitMQ e HEAD na API FIPE), e o resultado fica em memória:
+ * as sondas de liveness/readiness só leem o último resultado, sem tráfego de saída por requisição.
+ * A API FIPE é externa e pública, então é verificada com intervalo próprio e mais longo.
+ */
+@ApplicationScoped
+public class SaudeService {
+
+    private static final Logger LOG = Logger.getLogger(SaudeService.class);
+
+    public static final String REDIS = "redis";
+    public static final String DATASOURCE = "datasource";
+    public static final String RABBITMQ = "rabbitmq";
+    public static final String FIPE = "fipe";
+
+    @Inject
+    Redis redis;
+
+    @Inject
+    DataSource dataSource;
+
+    @Inject
+    HealthCenter healthCenter;
+
+    @Inject
+    @RestClient
+    FipeClient fipeClient;
+
+    @Inject
+    AquecimentoService aquecimentoService;
+
+    @ConfigProperty(name = "fipe.cache.enabled", defaultValue = "true")
+    boolean cacheEnabled;
+
+    @ConfigProperty(name = "fipe.saude.intervalo", defaultValue = "PT10S")
+    Duration intervalo;
+
+    // API externa: verificada com menos frequência
+    @ConfigProperty(name = "fipe.saude.fipe-intervalo", defaultValue = "PT60S")
+    Duration intervaloFipe;
+
+    @ConfigProperty(name = "fipe.saude.timeout", defaultValue = "PT2S")
+    Duration timeout;
+
+    // Falhas seguidas para uma dependência crítica tirar a instância de prontidão (evita oscilação)
+    @ConfigProperty(name = "fipe.saude.limite-falhas", defaultValue = "2")
+    int limiteFalhas;
+
+    // Dependências sem as quais a instância não deve receber tráfego
+    @ConfigProperty(name = "fipe.saude.criticas", defaultValue = DATASOURCE)
+    Set<String> criticas;
+
+    private final Map<String, Verificacao> resultados = new ConcurrentHashMap<>();
+    // Dependências que já responderam alguma vez: antes disso uma falha já conta como indisponível
+    private final Set<String> jaDisponiveis = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService executor;
+    private volatile long ultimoCiclo;
+
+    void onStart(@Observes StartupEvent event) {
+        executor = Executors.newScheduledThreadPool(2, tarefa -> {
+            Thread thread = new Thread(tarefa, "verificacao-saude");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ultimoCiclo = System.currentTimeMillis();
+        executor.scheduleWithFixedDelay(this::verificarInternas, 0, intervalo.toMillis(), TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(() -> verificar(FIPE, this::verificarFipe),
+            0, intervaloFipe.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Liveness: o processo responde e o ciclo de verificações não travou
+     * Não depende das dependências externas, para que uma queda delas não reinicie os pods
+     */
+    public boolean isVivo() {
+        return System.currentTimeMillis() - ultimoCiclo < intervalo.toMillis() * 3 + timeout.toMillis();
+    }
+
+    /**
+     * Readiness: aquecimento da subida concluído e dependências críticas disponíveis no último resultado
+     */
+    public boolean isPronto() {
+        if (!aquecimentoService.isPronto()) {
+            return false;
+        }
+        for (String nome : criticas) {
+            Verificacao verificacao = resultados.get(nome);
+            if (verificacao == null || (!verificacao.disponivel
+                && (verificacao.falhasConsecutivas >= limiteFalhas || !jaDisponiveis.contains(nome)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isDisponivel(String nome) {
+        Verificacao verificacao = resultados.get(nome);
+        return verificacao != null && verificacao.disponivel;
+    }
+
+    /**
+     * Último resultado de cada dependência, na ordem das verificações
+     */
+    public Map<String, Verificacao> getResultados() {
+        Map<String, Verificacao> copia = new LinkedHashMap<>();
+        for (String nome : List.of(DATASOURCE, REDIS, RABBITMQ, FIPE)) {
+            Verificacao verificacao = resultados.get(nome);
+            if (verificacao != null) {
+                copia.put(nome, verificacao);
+            }
+        }
+        return copia;
+    }
+
+    private void verificarInternas() {
+        verificar(DATASOURCE, this::verificarDataSource);
+        if (cacheEnabled) {
+            verificar(REDIS, this::verificarRedis);
+        }
+        verificar(RABBITMQ, this::verificarRabbitMq);
+        ultimoCiclo = System.currentTimeMillis();
+    }
+
+    private void verificar(String nome, Checagem checagem) {
+        long inicio = System.nanoTime();
+        String erro = null;
+        try {
+            erro = checagem.executar();
+        } catch (Exception e) {
+            erro = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+        Verificacao anterior = resultados.get(nome);
+        Verificacao verificacao = new Verificacao();
+        verificacao.disponivel = erro == null;
+        verificacao.critica = criticas.contains(nome);
+        verificacao.verificadaEm = LocalDateTime.now();
+        verificacao.latenciaMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        verificacao.erro = erro;
+        verificacao.falhasConsecutivas = erro == null ? 0 : (anterior == null ? 0 : anterior.falhasConsecutivas) + 1;
+        resultados.put(nome, verificacao);
+        if (erro == null) {
+            jaDisponiveis.add(nome);
+        }
+
+        boolean estavaDisponivel = anterior == null || anterior.disponivel;
+        if (estavaDisponivel && erro != null) {
+            LOG.warnf("Dependência %s indisponível: %s", nome, erro);
+        } else if (!estavaDisponivel && erro == null) {
+            LOG.infof("Dependência %s disponível novamente", nome);
+        }
+    }
+
+    private String verificarDataSource() throws Exception {
+        try (Connection conexao = dataSource.getConnection()) {
+            int segundos = (int) Math.max(1, timeout.toSeconds());
+            return conexao.isValid(segundos) ? null : "Conexão inválida";
+        }
+    }
+
+    private String verificarRedis() {
+        String resposta = redis.send(Request.cmd(Command.PING)).await().atMost(timeout).toString();
+        return "PONG".equalsIgnoreCase(resposta) ? null : "Resposta inesperada ao PING: " + resposta;
+    }
+
+    /**
+     * Estado dos canais mantido pelo próprio conector (conexão e canais abertos), sem ida ao broker
+     */
+    private String verificarRabbitMq() {
+        HealthReport relatorio = healthCenter.getReadiness();
+        if (relatorio.isOk()) {
+            return null;
+        }
+        StringBuilder erro = new StringBuilder();
+        for (HealthReport.ChannelInfo canal : relatorio.getChannels()) {
+            if (!canal.isOk()) {
+                if (erro.length() > 0) {
+                    erro.append("; ");
+                }
+                erro.append(canal.getChannel());
+                if (canal.getMessage() != null) {
+                    erro.append(": ").append(canal.getMessage());
+                }
+            }
+        }
+        return erro.toString();
+    }
+
+    /**
+     * HEAD na lista de marcas: confirma que a API responde sem baixar a lista
+     */
+    private String verificarFipe() {
+        try {
+            fipeClient.verificarDisponibilidade().close();
+            return null;
+        } catch (WebApplicationException e) {
+            // 4xx (ex.: HEAD não suportado) ainda mostra que a API está no ar
+            int status = e.getResponse().getStatus();
+            return status < 500 ? null : "HTTP " + status;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Checagem {
+        /**
+         * Retorna null se a dependência estiver disponível, ou a descrição do problema
+         */
+        String executar() throws Exception;
+    }
+
+    /**
+     * Último resultado da verificação de uma dependência
+     */
+    public static class Verificacao {
+        public boolean disponivel;
+        public boolean critica;
+        public LocalDateTime verificadaEm;
+        public long latenciaMs;
+        public String erro;
+        public int falhasConsecutivas;
+    }
+}
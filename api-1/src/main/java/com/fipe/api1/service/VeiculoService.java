@@ -1,23 +1,44 @@
 package com.fipe.api1.service;
 
+import com.fipe.api1.datasource.RoteadorDataSource;
+import com.fipe.api1.datasource.SomenteLeitura;
 import com.fipe.api1.repository.MarcaRepository;
+import com.fipe.api1.repository.MarcaRepository.PaginaMarcas;
 import com.fipe.api1.repository.ModeloRepository;
+import com.fipe.api1.repository.ModeloRepository.ModeloAtualizado;
+import com.fipe.api1.repository.ModeloRepository.PaginaModelos;
+import com.fipe.shared.dto.MarcaResumo;
+import com.fipe.shared.dto.ModeloResumo;
+import com.fipe.shared.dto.PageCursor;
+import com.fipe.shared.entity.Contador;
 import com.fipe.shared.entity.Marca;
 import com.fipe.shared.entity.Modelo;
-import io.quarkus.cache.CacheResult;
-import io.quarkus.cache.CacheInvalidate;
+import com.fipe.shared.entity.TipoVeiculo;
+import com.fipe.shared.repository.ContadorRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
 import jakarta.inject.Inject;
+import jakarta.persistence.NonUniqueResultException;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.transaction.Transactional;
 import org.jboss.logging.Logger;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Serviço para operações relacionadas a veículos (marcas e modelos)
  * Inclui cache para otimizar consultas frequentes
+ * Com o snapshot do catálogo em memória habilitado, as leituras de listagens, totais e versões saem dele
+ * Leituras marcadas com @SomenteLeitura podem ser atendidas por uma réplica (ver RoteadorDataSource)
  */
 @ApplicationScoped
 public class VeiculoService {
@@ -33,32 +54,155 @@ public class VeiculoService {
     @Inject
     ModeloRepository modeloRepository;
 
+    @Inject
+    ContadorRepository contadorRepository;
+
+    @Inject
+    BuscaService buscaService;
+
+    @Inject
+    CatalogoService catalogoService;
+
+    @Inject
+    AquecimentoService aquecimentoService;
+
+    @Inject
+    RoteadorDataSource roteadorDataSource;
+
+    @Inject
+    Event<EscritaCatalogo> escritas;
+
     /**
      * Busca marcas com paginação e filtro opcional por tipo
-     * Implementa cache Redis para melhor performance
+     * Página e total vêm de uma única consulta; implementa cache Redis para melhor performance
+     * Misses concorrentes da mesma página disparam uma única consulta (ver CacheService)
      */
-    @CacheResult(cacheName = "marcas-cache")
-    public List<Marca> buscarMarcas(String tipoVeiculo, int page, int size) {
-        LOG.infof("Buscando marcas - Tipo: %s, Page: %d, Size: %d", tipoVeiculo, page, size);
-        return marcaRepository.findByTipoVeiculo(tipoVeiculo, page, size);
+    @SomenteLeitura
+    public PaginaMarcas buscarMarcas(TipoVeiculo tipoVeiculo, int page, int size) {
+        CatalogoSnapshot catalogo = catalogoService.atual();
+        if (catalogo != null) {
+            return catalogo.paginaMarcas(tipoVeiculo, page, size);
+        }
+
+        return cacheService.getMarcasList(tipoVeiculo, page, size, () -> {
+            LOG.infof("Buscando marcas - Tipo: %s, Page: %d, Size: %d", tipoVeiculo, page, size);
+            PaginaMarcas pagina = marcaRepository.findPaginaByTipoVeiculo(tipoVeiculo, page, size);
+            if (pagina.total == null) {
+                // Página além do fim: nenhuma linha trouxe o total
+                pagina.total = contarMarcas(tipoVeiculo);
+            }
+            return pagina;
+        });
+    }
+    
+    /**
+     * Busca marcas por cursor (seek) sobre (nome, id)
+     * Retorna até size + 1 registros; o excedente indica que há próxima página
+     */
+    @SomenteLeitura
+    public List<MarcaResumo> buscarMarcasAposCursor(TipoVeiculo tipoVeiculo, PageCursor after, int size) {
+        int limit = size + 1;
+        CatalogoSnapshot catalogo = catalogoService.atual();
+        if (catalogo != null) {
+            return catalogo.marcasApos(tipoVeiculo, after, limit);
+        }
+
+        return cacheService.getMarcasList(tipoVeiculo, after, limit, () -> {
+            LOG.infof("Buscando marcas - Tipo: %s, Cursor: %s, Size: %d", tipoVeiculo, after, size);
+            return marcaRepository.findByTipoVeiculoAfter(tipoVeiculo, after, limit);
+        });
     }
     
-    public long contarMarcas(String tipoVeiculo) {
-        return marcaRepository.countByTipoVeiculo(tipoVeiculo);
+    /**
+     * Total de marcas do tipo, lido da tabela de contadores (sem count(*))
+     * Cacheado junto com as páginas do tipo
+     */
+    @SomenteLeitura
+    public long contarMarcas(TipoVeiculo tipoVeiculo) {
+        CatalogoSnapshot catalogo = catalogoService.atual();
+        if (catalogo != null) {
+            return catalogo.totalMarcas(tipoVeiculo);
+        }
+
+        return cacheService.getTotalMarcas(tipoVeiculo,
+            () -> contadorRepository.findTotal(Contador.chaveTipo(tipoVeiculo)).orElse(0L));
     }
 
     /**
      * Busca modelos por marca com paginação
-     * Implementa cache Redis para melhor performance
+     * Cabeçalho da marca, página e total vêm de uma única consulta; retorna null se a marca não existir
      */
-    @CacheResult(cacheName = "modelos-cache")
-    public List<Modelo> buscarModelosPorMarca(String codigoMarca, int page, int size) {
-        LOG.infof("Buscando modelos para marca: %s, Page: %d, Size: %d", codigoMarca, page, size);
-        return modeloRepository.findByMarcaCodigoFipe(codigoMarca, page, size);
+    @SomenteLeitura
+    public PaginaModelos buscarModelosPorMarca(String codigoMarca, int page, int size) {
+        CatalogoSnapshot catalogo = catalogoService.atual();
+        if (catalogo != null) {
+            return catalogo.paginaModelos(codigoMarca, page, size);
+        }
+
+        return cacheService.getModelosList(codigoMarca, page, size, () -> {
+            LOG.infof("Buscando modelos para marca: %s, Page: %d, Size: %d", codigoMarca, page, size);
+            return modeloRepository.findPaginaByMarcaCodigoFipe(codigoMarca, page, size).orElse(null);
+        });
+    }
+    
+    /**
+     * Busca modelos por cursor (seek) sobre (nome, id), junto com o cabeçalho da marca e o total
+     * Retorna até size + 1 registros; o excedente indica que há próxima página
+     * Retorna null se a marca não existir
+     */
+    @SomenteLeitura
+    public PaginaModelos buscarModelosAposCursor(String codigoMarca, PageCursor after, int size) {
+        int limit = size + 1;
+        CatalogoSnapshot catalogo = catalogoService.atual();
+        if (catalogo != null) {
+            return catalogo.modelosApos(codigoMarca, after, limit);
+        }
+
+        return cacheService.getModelosList(codigoMarca, after, limit, () -> {
+            LOG.infof("Buscando modelos para marca: %s, Cursor: %s, Size: %d", codigoMarca, after, size);
+            return modeloRepository.findPaginaByMarcaCodigoFipeAfter(codigoMarca, after, limit).orElse(null);
+        });
     }
     
+    /**
+     * Total de modelos da marca, lido da tabela de contadores (sem count(*))
+     * Cacheado junto com as páginas da marca
+     */
+    @SomenteLeitura
     public long contarModelosPorMarca(String codigoMarca) {
-        return modeloRepository.countByMarcaCodigoFipe(codigoMarca);
+        CatalogoSnapshot catalogo = catalogoService.atual();
+        if (catalogo != null) {
+            return catalogo.totalModelos(codigoMarca);
+        }
+
+        return cacheService.getTotalModelos(codigoMarca,
+            () -> contadorRepository.findTotal(Contador.chaveMarca(codigoMarca)).orElse(0L));
+    }
+    
+    /**
+     * Versão de dados das listagens de marcas do tipo (base do ETag)
+     * Lida direto da tabela de contadores: a ingestão do api-2 também a incrementa
+     * No modo em memória vem do snapshot, coerente com os dados que ele serve
+     */
+    @SomenteLeitura
+    public long versaoMarcas(TipoVeiculo tipoVeiculo) {
+        CatalogoSnapshot catalogo = catalogoService.atual();
+        if (catalogo != null) {
+            return catalogo.versaoMarcas(tipoVeiculo);
+        }
+        return contadorRepository.findTotal(Contador.versaoTipo(tipoVeiculo)).orElse(0L);
+    }
+
+    /**
+     * Versão de dados das listagens de modelos da marca (base do ETag)
+     */
+    @SomenteLeitura
+    public long versaoModelos(String codigoMarca) {
+        CatalogoSnapshot catalogo = catalogoService.atual();
+        if (catalogo != null) {
+            return catalogo.versaoModelos(codigoMarca);
+        }
+        return contadorRepository.findTotal(Contador.versaoMarca(codigoMarca)).orElse(0L);
     }
     
     public Marca buscarMarcaPorCodigo(String codigoFipe) {
@@ -71,44 +215,142 @@ public class VeiculoService {
         return modelo.orElse(null);
     }
 
+    /**
+     * Busca em lote de marcas por código: snapshot em memória, ou MGET no cache e um único IN no banco
+     * para os que faltaram. O mapa só contém os códigos encontrados
+     */
+    @SomenteLeitura
+    public Map<String, MarcaResumo> buscarMarcasPorCodigos(Collection<String> codigos) {
+        Map<String, MarcaResumo> encontradas = new HashMap<>();
+        CatalogoSnapshot catalogo = catalogoService.atual();
+        if (catalogo != null) {
+            for (String codigo : codigos) {
+                MarcaResumo marca = catalogo.marcaPorCodigo(codigo);
+                if (marca != null) {
+                    encontradas.put(codigo, marca);
+                }
+            }
+            return encontradas;
+        }
 
+        encontradas.putAll(cacheService.getMarcasResumo(codigos));
+        List<String> faltantes = faltantes(codigos, encontradas);
+        if (faltantes.isEmpty()) {
+            return encontradas;
+        }
+        List<MarcaResumo> novas = new ArrayList<>();
+        // Vão para o cache: lidos do primário
+        for (MarcaResumo marca : cacheService.lerParaCache(() -> marcaRepository.findResumosByCodigos(faltantes))) {
+            if (encontradas.putIfAbsent(marca.codigo, marca) == null) {
+                novas.add(marca);
+            }
+        }
+        cacheService.putMarcasResumo(novas);
+        LOG.debugf("Lote de marcas: %d pedidas, %d do banco", codigos.size(), novas.size());
+        return encontradas;
+    }
 
     /**
-     * Atualiza os dados de um modelo (nome e observações)
-     * Invalida cache relacionado
+     * Busca em lote de modelos por código, com o mesmo caminho da busca em lote de marcas
+     * Se um código se repetir no banco, vale o modelo de menor id
      */
-    @Transactional
-    @CacheInvalidate(cacheName = "modelos-cache")
-    public Modelo atualizarModelo(String codigoFipe, String nome, String observacoes) {
-        LOG.infof("Atualizando modelo: %s", codigoFipe);
-        
-        Optional<Modelo> modeloOpt = modeloRepository.findByCodigoFipe(codigoFipe);
-        if (modeloOpt.isEmpty()) {
-            throw new IllegalArgumentException("Modelo não encontrado: " + codigoFipe);
+    @SomenteLeitura
+    public Map<String, ModeloResumo> buscarModelosPorCodigos(Collection<String> codigos) {
+        Map<String, ModeloResumo> encontrados = new HashMap<>();
+        CatalogoSnapshot catalogo = catalogoService.atual();
+        if (catalogo != null) {
+            for (String codigo : codigos) {
+                ModeloResumo modelo = catalogo.modeloPorCodigo(codigo);
+                if (modelo != null) {
+                    encontrados.put(codigo, modelo);
+                }
+            }
+            return encontrados;
         }
-        
-        Modelo modelo = modeloOpt.get();
-        if (nome != null && !nome.trim().isEmpty()) {
-            modelo.nome = nome;
+
+        encontrados.putAll(cacheService.getModelosResumo(codigos));
+        List<String> faltantes = faltantes(codigos, encontrados);
+        if (faltantes.isEmpty()) {
+            return encontrados;
         }
-        if (observacoes != null) {
-            modelo.observacoes = observacoes;
+        List<ModeloResumo> novos = new ArrayList<>();
+        for (ModeloResumo modelo : cacheService.lerParaCache(() -> modeloRepository.findResumosByCodigos(faltantes))) {
+            if (encontrados.putIfAbsent(modelo.codigo, modelo) == null) {
+                novos.add(modelo);
+            }
         }
-        modelo.dataAtualizacao = LocalDateTime.now();
-        
-        modeloRepository.persist(modelo);
-        
-        // Invalidar cache relacionado
-        if (modelo.marca != null) {
-            cacheService.invalidateModelosLists(modelo.marca.codigoFipe);
+        cacheService.putModelosResumo(novos);
+        LOG.debugf("Lote de modelos: %d pedidos, %d do banco", codigos.size(), novos.size());
+        return encontrados;
+    }
+
+    private static List<String> faltantes(Collection<String> codigos, Map<String, ?> encontrados) {
+        List<String> faltantes = new ArrayList<>();
+        for (String codigo : codigos) {
+            if (!encontrados.containsKey(codigo)) {
+                faltantes.add(codigo);
+            }
         }
-        
+        return faltantes;
+    }
+
+
+
+    /**
+     * Atualiza os dados de um modelo (nome e observações) com concorrência otimista
+     * Um único UPDATE, condicionado à versão lida pelo cliente (versao null: sem condição), já devolve o modelo
+     * e a marca; após o commit o resumo do modelo é escrito no cache (write-through) e as páginas da marca
+     * são invalidadas. O código do modelo se repete entre marcas: codigoMarca (opcional) escolhe a marca, e sem ela
+     * o código precisa ser único. Retorna null se o modelo não existir
+     *
+     * @throws OptimisticLockException se o modelo mudou depois da versão informada
+     * @throws NonUniqueResultException se o código identifica modelos de mais de uma marca e codigoMarca não foi informado
+     */
+    public ModeloAtualizado atualizarModelo(String codigoFipe, String codigoMarca, String nome, String observacoes,
+                                            Long versao) {
+        LOG.infof("Atualizando modelo: %s (marca %s)", codigoFipe, codigoMarca);
+        roteadorDataSource.registrarEscrita();
+
+        String novoNome = nome != null && !nome.trim().isEmpty() ? nome : null;
+        ModeloAtualizado modelo = QuarkusTransaction.requiringNew().call(() -> {
+            Optional<ModeloAtualizado> atualizado = modeloRepository.atualizar(codigoFipe, codigoMarca, novoNome, observacoes, versao);
+            // Versão das listagens da marca (ETag) avança no mesmo commit
+            atualizado.ifPresent(m -> contadorRepository.incrementar(Contador.versaoMarca(m.codigoMarca), 1));
+            return atualizado.orElse(null);
+        });
+
+        if (modelo == null) {
+            // Só quando nada mudou: separa modelo inexistente, código ambíguo e versão desatualizada
+            long encontrados = modeloRepository.contarPorCodigo(codigoFipe, codigoMarca);
+            if (encontrados > 1) {
+                throw new NonUniqueResultException("Código " + codigoFipe + " existe em " + encontrados
+                    + " modelos; informe a marca");
+            }
+            if (encontrados == 1 && versao != null) {
+                throw new OptimisticLockException("Modelo " + codigoFipe + " foi alterado por outra edição");
+            }
+            return null;
+        }
+
+        // A tag da marca também cobre o resumo do modelo: primeiro invalida, depois escreve o valor novo
+        ModeloResumo resumo = modelo.resumo();
+        cacheService.invalidateModelosLists(modelo.codigoMarca);
+        if (codigoMarca == null) {
+            // Sem marca o UPDATE exigiu código único: o resumo por código é este modelo
+            cacheService.putModeloAtualizado(resumo);
+        } else {
+            // Pela marca, o código pode existir em outra; o resumo por código segue a regra do lote (menor id)
+            cacheService.invalidateModelos(List.of(codigoFipe));
+        }
+        buscaService.modeloAtualizado(resumo);
+        catalogoService.solicitarVerificacao();
         return modelo;
     }
 
     @Transactional
     public Marca salvarMarca(Marca marca) {
         LOG.infof("Salvando marca: %s - %s", marca.codigoFipe, marca.nome);
+        roteadorDataSource.registrarEscrita();
         
         // Verificar se já existe
         if (marcaRepository.existsByCodigoFipe(marca.codigoFipe)) {
@@ -118,12 +360,21 @@ public class VeiculoService {
         marca.dataCriacao = LocalDateTime.now();
         marca.dataAtualizacao = LocalDateTime.now();
         marcaRepository.persist(marca);
+        contadorRepository.incrementar(Contador.TOTAL_MARCAS, 1);
+        contadorRepository.incrementar(Contador.chaveTipo(marca.tipoVeiculo), 1);
+        contadorRepository.incrementar(Contador.versaoTipo(null), 1);
+        contadorRepository.incrementar(Contador.versaoTipo(marca.tipoVeiculo), 1);
+        contadorRepository.incrementar(Contador.versaoMarca(marca.codigoFipe), 1);
+        
+        // Nova marca altera as páginas (e totais) do seu tipo; invalidadas só depois do commit
+        escritas.fire(new EscritaCatalogo(marca.tipoVeiculo, null));
         return marca;
     }
 
     @Transactional
     public Modelo salvarModelo(Modelo modelo) {
         LOG.infof("Salvando modelo: %s - %s", modelo.codigoFipe, modelo.nome);
+        roteadorDataSource.registrarEscrita();
         
         // Verificar se já existe
         if (modeloRepository.existsByCodigoFipe(modelo.codigoFipe)) {
@@ -133,8 +384,28 @@ public class VeiculoService {
         modelo.dataCriacao = LocalDateTime.now();
         modelo.dataAtualizacao = LocalDateTime.now();
         modeloRepository.persist(modelo);
+        
+        if (modelo.marca != null) {
+            contadorRepository.incrementar(Contador.chaveMarca(modelo.marca.codigoFipe), 1);
+            contadorRepository.incrementar(Contador.versaoMarca(modelo.marca.codigoFipe), 1);
+        }
+        escritas.fire(new EscritaCatalogo(null, modelo.marca != null ? modelo.marca.codigoFipe : null));
         return modelo;
     }
+
+    /**
+     * Invalida as listagens afetadas por salvarMarca/salvarModelo depois do commit
+     * Antes dele, uma leitura concorrente recolocaria no cache a página sem a escrita, e ela ficaria até o TTL
+     */
+    void aposEscrita(@Observes(during = TransactionPhase.AFTER_SUCCESS) EscritaCatalogo escrita) {
+        if (escrita.tipoVeiculo != null) {
+            cacheService.invalidateMarcasLists(escrita.tipoVeiculo);
+        }
+        if (escrita.codigoMarca != null) {
+            cacheService.invalidateModelosLists(escrita.codigoMarca);
+        }
+        catalogoService.solicitarVerificacao();
+    }
     
 
 
@@ -147,11 +418,29 @@ public class VeiculoService {
     //     return modeloRepository.findAllWithObservacoes();
     // }
 
-    public long contarMarcasPorTipo(String tipoVeiculo) {
-        return marcaRepository.countByTipoVeiculo(tipoVeiculo);
+    @SomenteLeitura
+    public long contarMarcasPorTipo(TipoVeiculo tipoVeiculo) {
+        return contarMarcas(tipoVeiculo);
     }
 
+    /**
+     * Limpa os caches e recarrega em segundo plano as listagens mais pedidas
+     */
     public void limparCaches() {
         cacheService.clearAll();
+        aquecimentoService.aquecerEmSegundoPlano();
+    }
+
+    /**
+     * Escrita no catálogo pendente de commit: tipo das listas de marcas e/ou marca das listas de modelos
+     */
+    static class EscritaCatalogo {
+        final TipoVeiculo tipoVeiculo;
+        final String codigoMarca;
+
+        EscritaCatalogo(TipoVeiculo tipoVeiculo, String codigoMarca) {
+            this.tipoVeiculo = tipoVeiculo;
+            this.codigoMarca = codigoMarca;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.fipe.api1.controller;
+
+import com.fipe.shared.entity.Contador;
+import com.fipe.shared.entity.Marca;
+import com.fipe.shared.entity.Modelo;
+import com.fipe.shared.entity.TipoVeiculo;
+import com.fipe.shared.repository.ContadorRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import io.smallrye.jwt.build.Jwt;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * PUT /modelos/{codigo} quando o código do modelo se repete entre marcas (modelos.codigo_fipe não é único)
+ *
+ * O UPDATE só muda uma linha: com ?marca= a da marca, sem ela só se o código for único; senão 409 e nada muda
+ */
+@QuarkusTest
+class AtualizarModeloTest {
+
+    private static final String REPETIDO = "amb-mod";
+    private static final String UNICO = "amb-unico";
+
+    private static boolean carregado;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    ContadorRepository contadorRepository;
+
+    @ConfigProperty(name = "mp.jwt.verify.issuer")
+    String emissor;
+
+    @BeforeEach
+    void carregarCatalogo() {
+        if (carregado) {
+            return;
+        }
+        QuarkusTransaction.requiringNew().run(() -> {
+            for (int i = 1; i <= 2; i++) {
+                // Motos: as listagens de carros do OrcamentoSqlTest contam as marcas
+                Marca marca = new Marca("amb-" + i, "Marca Ambígua " + i, TipoVeiculo.MOTOS);
+                entityManager.persist(marca);
+                // Versão das listagens da marca já existente, como após a carga
+                contadorRepository.incrementar(Contador.versaoMarca(marca.codigoFipe), 1);
+                entityManager.persist(new Modelo(REPETIDO, "Modelo Repetido " + i, marca));
+                if (i == 1) {
+                    entityManager.persist(new Modelo(UNICO, "Modelo Único", marca));
+                }
+            }
+        });
+        carregado = true;
+    }
+
+    @Test
+    void codigoEmDuasMarcasSemMarcaNaoAltera() {
+        Response resposta = admin()
+            .body(Map.of("observacoes", "ambíguo"))
+            .put("/api/v1/fipe/modelos/{codigo}", REPETIDO);
+
+        assertEquals(409, resposta.statusCode(), resposta.body().asString());
+        assertNull(observacoes(REPETIDO, "amb-1"));
+        assertNull(observacoes(REPETIDO, "amb-2"));
+    }
+
+    @Test
+    void marcaEscolheALinha() {
+        Response resposta = admin()
+            .queryParam("marca", "amb-2")
+            .body(Map.of("observacoes", "só a 2"))
+            .put("/api/v1/fipe/modelos/{codigo}", REPETIDO);
+
+        assertEquals(200, resposta.statusCode(), resposta.body().asString());
+        assertEquals("amb-2", resposta.jsonPath().getString("codigoMarca"));
+        assertEquals("só a 2", observacoes(REPETIDO, "amb-2"));
+        assertNull(observacoes(REPETIDO, "amb-1"));
+    }
+
+    @Test
+    void inexistente() {
+        Response resposta = admin()
+            .body(Map.of("observacoes", "nada"))
+            .put("/api/v1/fipe/modelos/{codigo}", "amb-inexistente");
+
+        assertEquals(404, resposta.statusCode(), resposta.body().asString());
+    }
+
+    @Test
+    void versaoDesatualizadaEAtual() {
+        Response desatualizada = admin()
+            .body(Map.of("observacoes", "velha", "versao", 99))
+            .put("/api/v1/fipe/modelos/{codigo}", UNICO);
+        assertEquals(409, desatualizada.statusCode(), desatualizada.body().asString());
+
+        long versao = QuarkusTransaction.requiringNew().call(() -> entityManager
+            .createQuery("SELECT m.versao FROM Modelo m WHERE m.codigoFipe = ?1", Long.class)
+            .setParameter(1, UNICO)
+            .getSingleResult());
+        Response atual = admin()
+            .body(Map.of("observacoes", "nova", "versao", versao))
+            .put("/api/v1/fipe/modelos/{codigo}", UNICO);
+        assertEquals(200, atual.statusCode(), atual.body().asString());
+        assertEquals(versao + 1, atual.jsonPath().getLong("versao"));
+    }
+
+    private String observacoes(String codigo, String codigoMarca) {
+        return QuarkusTransaction.requiringNew().call(() -> entityManager
+            .createQuery("SELECT m.observacoes FROM Modelo m WHERE m.codigoFipe = ?1 AND m.marca.codigoFipe = ?2", String.class)
+            .setParameter(1, codigo)
+            .setParameter(2, codigoMarca)
+            .getSingleResult());
+    }
+
+    private RequestSpecification admin() {
+        String token = Jwt.upn("teste").issuer(emissor).groups(Set.of("admin")).sign();
+        return given().auth().oauth2(token).contentType(ContentType.JSON);
+    }
+}
@@ -0,0 +1,192 @@
+package com.fipe.api1.controller;
+
+import com.fipe.api1.service.VeiculoService;
+import com.fipe.shared.consulta.FiltroContabilidadeSql;
+import com.fipe.shared.entity.Marca;
+import com.fipe.shared.entity.Modelo;
+import com.fipe.shared.entity.TipoVeiculo;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import io.smallrye.jwt.build.Jwt;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Orçamento de SQL dos endpoints com @OrcamentoSql, nos caminhos por offset e por cursor
+ *
+ * No perfil de teste fipe.sql.orcamento.modo=falhar: acima do orçamento a resposta vira 500,
+ * então cada chamada confere o status e o número de statements do cabeçalho X-SQL
+ */
+@QuarkusTest
+class OrcamentoSqlTest {
+
+    private static final Pattern STATEMENTS = Pattern.compile("statements=(\\d+)");
+
+    private static final String MARCA = "orc-1";
+    private static final String MODELO = "orc-1-1";
+
+    private static boolean carregado;
+
+    @Inject
+    VeiculoService veiculoService;
+
+    @ConfigProperty(name = "mp.jwt.verify.issuer")
+    String emissor;
+
+    @BeforeEach
+    void carregarCatalogo() {
+        if (carregado) {
+            return;
+        }
+        Marca marca = null;
+        for (int i = 1; i <= 3; i++) {
+            Marca salva = veiculoService.salvarMarca(new Marca("orc-" + i, "Marca Orçamento " + i, TipoVeiculo.CARROS));
+            if (i == 1) {
+                marca = salva;
+            }
+        }
+        for (int i = 1; i <= 3; i++) {
+            veiculoService.salvarModelo(new Modelo(MARCA + "-" + i, "Modelo Orçamento " + i, marca));
+        }
+        carregado = true;
+    }
+
+    @Test
+    void buscarMarcasPorOffset() {
+        Response resposta = given()
+            .queryParam("tipoVeiculo", "carros").queryParam("page", 0).queryParam("size", 2)
+            .get("/api/v1/fipe/marcas");
+
+        assertDentroDoOrcamento(resposta, 3);
+        assertEquals(3, resposta.jsonPath().getInt("total"));
+        assertNotNull(resposta.jsonPath().getString("nextCursor"));
+    }
+
+    @Test
+    void buscarMarcasPorCursor() {
+        String cursor = given()
+            .queryParam("tipoVeiculo", "carros").queryParam("size", 2)
+            .get("/api/v1/fipe/marcas")
+            .jsonPath().getString("nextCursor");
+
+        Response resposta = given()
+            .queryParam("tipoVeiculo", "carros").queryParam("size", 2).queryParam("cursor", cursor)
+            .get("/api/v1/fipe/marcas");
+
+        // Versão + página após o cursor + total
+        assertDentroDoOrcamento(resposta, 3);
+        assertEquals(1, resposta.jsonPath().getList("marcas").size());
+        assertNull(resposta.jsonPath().getString("nextCursor"));
+    }
+
+    @Test
+    void buscarModelosPorOffset() {
+        Response resposta = usuario()
+            .queryParam("page", 0).queryParam("size", 2)
+            .get("/api/v1/fipe/marcas/{codigo}/modelos", MARCA);
+
+        assertDentroDoOrcamento(resposta, 2);
+        assertEquals(3, resposta.jsonPath().getInt("total"));
+        assertNotNull(resposta.jsonPath().getString("nextCursor"));
+    }
+
+    @Test
+    void paginacaoInvalidaRespondeSemConsultar() {
+        given().queryParam("page", -1).get("/api/v1/fipe/marcas").then().statusCode(400);
+        given().queryParam("size", 0).get("/api/v1/fipe/marcas").then().statusCode(400);
+        usuario().queryParam("page", -1).get("/api/v1/fipe/marcas/{codigo}/modelos", MARCA).then().statusCode(400);
+        usuario().queryParam("size", -5).get("/api/v1/fipe/marcas/{codigo}/modelos", MARCA).then().statusCode(400);
+    }
+
+    @Test
+    void buscarModelosPorCursor() {
+        String cursor = usuario()
+            .queryParam("size", 2)
+            .get("/api/v1/fipe/marcas/{codigo}/modelos", MARCA)
+            .jsonPath().getString("nextCursor");
+
+        Response resposta = usuario()
+            .queryParam("size", 2).queryParam("cursor", cursor)
+            .get("/api/v1/fipe/marcas/{codigo}/modelos", MARCA);
+
+        assertDentroDoOrcamento(resposta, 2);
+        assertEquals(1, resposta.jsonPath().getList("modelos").size());
+        assertNull(resposta.jsonPath().getString("nextCursor"));
+    }
+
+    @Test
+    void buscar() {
+        Response resposta = usuario()
+            .queryParam("q", "orçamento")
+            .get("/api/v1/fipe/busca");
+
+        assertDentroDoOrcamento(resposta, 0);
+    }
+
+    @Test
+    void buscarMarcasEmLote() {
+        Response resposta = usuario()
+            .contentType(ContentType.JSON)
+            .body(Map.of("codigos", List.of("orc-1", "orc-3", "inexistente")))
+            .post("/api/v1/fipe/marcas/lote");
+
+        assertDentroDoOrcamento(resposta, 1);
+    }
+
+    @Test
+    void buscarModelosEmLote() {
+        Response resposta = usuario()
+            .contentType(ContentType.JSON)
+            .body(Map.of("codigos", List.of(MODELO, "inexistente")))
+            .post("/api/v1/fipe/modelos/lote");
+
+        assertDentroDoOrcamento(resposta, 1);
+    }
+
+    @Test
+    void atualizarModelo() {
+        Response resposta = comToken(Set.of("admin"))
+            .contentType(ContentType.JSON)
+            .body(Map.of("nome", "Modelo Orçamento 1", "observacoes", "revisado"))
+            .put("/api/v1/fipe/modelos/{codigo}", MODELO);
+
+        assertDentroDoOrcamento(resposta, 2);
+        assertEquals("revisado", resposta.jsonPath().getString("observacoes"));
+    }
+
+    private RequestSpecification usuario() {
+        return comToken(Set.of("user", "fipe-access"));
+    }
+
+    private RequestSpecification comToken(Set<String> papeis) {
+        String token = Jwt.upn("teste").issuer(emissor).groups(papeis).sign();
+        return given().auth().oauth2(token);
+    }
+
+    private static void assertDentroDoOrcamento(Response resposta, int orcamento) {
+        assertEquals(200, resposta.statusCode(), resposta.body().asString());
+        String cabecalho = resposta.header(FiltroContabilidadeSql.CABECALHO);
+        assertNotNull(cabecalho, "Cabeçalho " + FiltroContabilidadeSql.CABECALHO + " ausente");
+        Matcher statements = STATEMENTS.matcher(cabecalho);
+        assertTrue(statements.find(), cabecalho);
+        int medidos = Integer.parseInt(statements.group(1));
+        // Orçamento zero: o endpoint não pode ir ao banco; nos demais, zero indicaria medição quebrada
+        assertTrue((medidos > 0 || orcamento == 0) && medidos <= orcamento, cabecalho + " (orçamento " + orcamento + ")");
+    }
+}
@@ -0,0 +1,86 @@
+package com.fipe.api1.messaging;
+
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.smallrye.reactive.messaging.memory.InMemoryConnector;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.inject.Any;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Feed catalogo-alteracoes do lado do api-1: com o Redis fora do ar a alteração é rejeitada (nack), para
+ * voltar pela fila de espera, e não confirmada; payload inválido é confirmado, nenhuma tentativa o corrige
+ */
+@QuarkusTest
+@TestProfile(AlteracaoCatalogoConsumerTest.RedisForaDoAr.class)
+@QuarkusTestResource(value = MensageriaEmMemoria.class, restrictToAnnotatedClass = true)
+class AlteracaoCatalogoConsumerTest {
+
+    private static final long ESPERA_S = 30;
+
+    /**
+     * Cache ligado apontando para uma porta sem Redis: toda invalidação falha
+     */
+    public static class RedisForaDoAr implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                "fipe.cache.enabled", "true",
+                "quarkus.redis.hosts", "redis://localhost:1",
+                "quarkus.redis.timeout", "2s");
+        }
+    }
+
+    @Inject
+    @Any
+    InMemoryConnector conector;
+
+    @Test
+    void invalidacaoQueFalhaRejeitaAlteracao() throws Exception {
+        JsonObject alteracao = new JsonObject()
+            .put("codigoMarca", "feed-1")
+            .put("tipoVeiculo", "motos")
+            .put("marcaAlterada", true)
+            .put("modelosAdicionados", new JsonArray().add("feed-1-1"))
+            .put("modelosAlterados", new JsonArray());
+
+        assertEquals("nack", entregar(alteracao));
+    }
+
+    @Test
+    void payloadInvalidoEConfirmado() throws Exception {
+        JsonObject alteracao = new JsonObject()
+            .put("tipoVeiculo", "motos")
+            .put("marcaAlterada", true);
+
+        assertEquals("ack", entregar(alteracao));
+    }
+
+    /**
+     * Entrega a alteração ao consumer e devolve como ela foi confirmada
+     */
+    private String entregar(JsonObject alteracao) throws Exception {
+        CompletableFuture<String> resultado = new CompletableFuture<>();
+        conector.<Message<JsonObject>>source("catalogo-alteracoes-in").send(Message.of(alteracao)
+            .withAck(() -> {
+                resultado.complete("ack");
+                return CompletableFuture.completedFuture(null);
+            })
+            .withNack(erro -> {
+                resultado.complete("nack");
+                return CompletableFuture.completedFuture(null);
+            }));
+        return resultado.get(ESPERA_S, TimeUnit.SECONDS);
+    }
+}
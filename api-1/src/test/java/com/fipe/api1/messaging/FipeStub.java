@@ -0,0 +1,34 @@
+package com.fipe.api1.messaging;
+
+import com.fipe.shared.dto.MarcaDTO;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HEAD;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.List;
+
+/**
+ * API FIPE falsa servida pela própria aplicação nos testes: a chamada passa pelo cliente REST de verdade
+ */
+@Path(FipeStub.CAMINHO)
+@Produces(MediaType.APPLICATION_JSON)
+public class FipeStub {
+
+    public static final String CAMINHO = "/fipe-stub";
+
+    @GET
+    @Path("/{tipo}/marcas")
+    public List<MarcaDTO> marcas(@PathParam("tipo") String tipo) {
+        return List.of(new MarcaDTO(tipo + "-1", "Marca " + tipo + " 1"), new MarcaDTO(tipo + "-2", "Marca " + tipo + " 2"));
+    }
+
+    @HEAD
+    @Path("/{tipo}/marcas")
+    public Response disponivel(@PathParam("tipo") String tipo) {
+        return Response.ok().build();
+    }
+}
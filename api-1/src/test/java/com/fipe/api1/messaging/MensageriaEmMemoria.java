@@ -0,0 +1,27 @@
+package com.fipe.api1.messaging;
+
+import io.quarkus.test.common.QuarkusTestResourceLifecycleManager;
+import io.smallrye.reactive.messaging.memory.InMemoryConnector;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Canais do RabbitMQ trocados pelo conector em memória e API FIPE apontada para o FipeStub da própria aplicação
+ */
+public class MensageriaEmMemoria implements QuarkusTestResourceLifecycleManager {
+
+    @Override
+    public Map<String, String> start() {
+        Map<String, String> config = new HashMap<>();
+        config.putAll(InMemoryConnector.switchOutgoingChannelsToInMemory("marcas-out"));
+        config.putAll(InMemoryConnector.switchIncomingChannelsToInMemory("marcas-processadas-in", "catalogo-alteracoes-in"));
+        config.put("quarkus.rest-client.fipe-client.url", "http://localhost:${quarkus.http.test-port:8081}" + FipeStub.CAMINHO);
+        return config;
+    }
+
+    @Override
+    public void stop() {
+        InMemoryConnector.clear();
+    }
+}
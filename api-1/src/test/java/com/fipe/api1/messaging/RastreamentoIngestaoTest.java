@@ -0,0 +1,121 @@
+package com.fipe.api1.messaging;
+
+import com.fipe.api1.service.CargaInicialService;
+import com.fipe.shared.dto.MarcaQueueMessage;
+import com.fipe.shared.entity.TipoVeiculo;
+import com.fipe.shared.rastreamento.ExportadorSpansLocal;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.reactive.messaging.TracingMetadata;
+import io.smallrye.reactive.messaging.memory.InMemoryConnector;
+import io.smallrye.reactive.messaging.memory.InMemorySink;
+import jakarta.enterprise.inject.Any;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Árvore de spans da carga inicial no exportador local, lado do api-1
+ *
+ * carga-inicial <tipo> → fipe.marcas → GET na API FIPE (FipeStub, pelo cliente REST de verdade), e cada
+ * marca publicada em marcas-out leva o contexto do carga-inicial: é dele que o conector cria o span de
+ * publicação e o cabeçalho traceparent que o api-2 continua (ver RastreamentoIngestaoTest do api-2)
+ */
+@QuarkusTest
+@QuarkusTestResource(value = MensageriaEmMemoria.class, restrictToAnnotatedClass = true)
+class RastreamentoIngestaoTest {
+
+    private static final long ESPERA_MS = 10_000;
+    private static final AttributeKey<String> URL = AttributeKey.stringKey("http.url");
+
+    @Inject
+    CargaInicialService cargaInicialService;
+
+    @Inject
+    ExportadorSpansLocal exportador;
+
+    @Inject
+    @Any
+    InMemoryConnector conector;
+
+    @Test
+    void cargaInicialPublicaDentroDoTraceDaBuscaNaFipe() {
+        exportador.limpar();
+        InMemorySink<MarcaQueueMessage> publicadas = conector.sink("marcas-out");
+        publicadas.clear();
+
+        assertNotNull(cargaInicialService.iniciar(), "Outra carga inicial em andamento");
+        int esperadas = 2 * TipoVeiculo.values().length;
+        aguardar(() -> publicadas.received().size() == esperadas, "marcas publicadas");
+        aguardar(() -> exportador.getSpans().stream().filter(s -> s.getName().startsWith("carga-inicial ")).count()
+            == TipoVeiculo.values().length, "spans carga-inicial encerrados");
+
+        for (TipoVeiculo tipo : TipoVeiculo.values()) {
+            SpanData carga = span("carga-inicial " + tipo.getCodigo(), null);
+            assertFalse(carga.getParentSpanContext().isValid(), "carga-inicial deveria ser a raiz");
+
+            SpanData buscaMarcas = span("fipe.marcas", carga);
+            SpanData chamada = filho(buscaMarcas, SpanKind.CLIENT);
+            assertTrue(chamada.getAttributes().get(URL).endsWith("/" + tipo.getCodigo() + "/marcas"),
+                chamada.getAttributes().get(URL));
+
+            List<? extends Message<MarcaQueueMessage>> doTipo = publicadas.received().stream()
+                .filter(mensagem -> mensagem.getPayload().tipoVeiculo == tipo)
+                .toList();
+            assertEquals(2, doTipo.size());
+            for (Message<MarcaQueueMessage> mensagem : doTipo) {
+                SpanContext publicacao = mensagem.getMetadata(TracingMetadata.class)
+                    .map(tracing -> Span.fromContext(tracing.getCurrentContext()).getSpanContext())
+                    .orElseThrow(() -> new AssertionError("Mensagem sem TracingMetadata"));
+                assertEquals(carga.getTraceId(), publicacao.getTraceId());
+                assertEquals(carga.getSpanId(), publicacao.getSpanId());
+            }
+        }
+    }
+
+    private SpanData span(String nome, SpanData pai) {
+        Optional<SpanData> encontrado = exportador.getSpans().stream()
+            .filter(span -> span.getName().equals(nome))
+            .filter(span -> pai == null || span.getParentSpanId().equals(pai.getSpanId()))
+            .findFirst();
+        return encontrado.orElseThrow(() -> new AssertionError("Span ausente: " + nome
+            + (pai == null ? "" : " abaixo de " + pai.getName())));
+    }
+
+    private SpanData filho(SpanData pai, SpanKind tipo) {
+        return exportador.getSpans(pai.getTraceId()).stream()
+            .filter(span -> span.getParentSpanId().equals(pai.getSpanId()) && span.getKind() == tipo)
+            .findFirst()
+            .orElseThrow(() -> new AssertionError("Span " + tipo + " ausente abaixo de " + pai.getName()));
+    }
+
+    private static void aguardar(BooleanSupplier condicao, String descricao) {
+        long limite = System.currentTimeMillis() + ESPERA_MS;
+        while (!condicao.getAsBoolean()) {
+            if (System.currentTimeMillis() > limite) {
+                fail("Tempo esgotado aguardando " + descricao);
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrompido aguardando " + descricao);
+            }
+        }
+    }
+}
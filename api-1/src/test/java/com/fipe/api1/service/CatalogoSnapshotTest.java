@@ -0,0 +1,56 @@
+package com.fipe.api1.service;
+
+import com.fipe.api1.repository.MarcaRepository.PaginaMarcas;
+import com.fipe.api1.repository.ModeloRepository.PaginaModelos;
+import com.fipe.shared.dto.MarcaResumo;
+import com.fipe.shared.dto.ModeloResumo;
+import com.fipe.shared.entity.TipoVeiculo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Páginas por offset do snapshot: fora do intervalo ficam vazias e nunca leem o grupo de outra marca
+ */
+class CatalogoSnapshotTest {
+
+    private final CatalogoSnapshot snapshot = CatalogoSnapshot.construir(
+        List.of(
+            new MarcaResumo(1L, "a", "Marca A", TipoVeiculo.CARROS),
+            new MarcaResumo(2L, "b", "Marca B", TipoVeiculo.CARROS)),
+        List.of(
+            new ModeloResumo(1L, "a-1", "Modelo A1", "a", "Marca A"),
+            new ModeloResumo(2L, "a-2", "Modelo A2", "a", "Marca A"),
+            new ModeloResumo(3L, "b-1", "Modelo B1", "b", "Marca B"),
+            new ModeloResumo(4L, "b-2", "Modelo B2", "b", "Marca B")),
+        Map.of());
+
+    @Test
+    void paginaDeModelosNegativaNaoLeMarcaAnterior() {
+        PaginaModelos pagina = snapshot.paginaModelos("b", -1, 2);
+
+        assertEquals("b", pagina.codigoMarca);
+        assertTrue(pagina.modelos.isEmpty());
+        assertEquals(2L, pagina.total);
+    }
+
+    @Test
+    void paginaDeModelosAlemDoFimFicaVazia() {
+        assertTrue(snapshot.paginaModelos("a", 1, 2).modelos.isEmpty());
+        assertEquals(List.of("a-1", "a-2"),
+            snapshot.paginaModelos("a", 0, 2).modelos.stream().map(m -> m.codigo).toList());
+    }
+
+    @Test
+    void paginaDeMarcasNegativaFicaVazia() {
+        PaginaMarcas pagina = snapshot.paginaMarcas(TipoVeiculo.CARROS, -1, 2);
+
+        assertTrue(pagina.marcas.isEmpty());
+        assertEquals(2L, pagina.total);
+        assertTrue(snapshot.paginaMarcas(null, -3, 1).marcas.isEmpty());
+    }
+}
@@ -0,0 +1,21 @@
+package com.fipe.api2;
+
+import com.fipe.api2.controller.MonitoringController;
+import com.fipe.api2.service.DataProcessingService;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * Classes lidas por reflexão em runtime, registradas para a imagem nativa (perfil maven native)
+ *
+ * O Quarkus já registra sozinho o que vê no build (tipos de retorno e parâmetros dos endpoints, entidades);
+ * ficam aqui os corpos devolvidos dentro de Response. DTOs, entidades e ganchos do Hibernate do shared
+ * estão em com.fipe.shared.ReflexaoNativa
+ */
+@RegisterForReflection(targets = {
+    MonitoringController.HealthResponse.class, MonitoringController.MarcaStatusResponse.class,
+    MonitoringController.ErrorResponse.class, DataProcessingService.ProcessingStats.class
+})
+public final class ReflexaoNativa {
+
+    private ReflexaoNativa() {}
+}
@@ -1,6 +1,7 @@
 package com.fipe.api2.client;
 
 import com.fipe.shared.dto.ModeloDTO;
+import com.fipe.shared.metricas.ChamadaFipe;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
@@ -18,6 +19,7 @@ import java.util.List;
  * Focado na busca de modelos por marca
  */
 @RegisterRestClient(configKey = "fipe-client")
+@ChamadaFipe
 @Path("/")
 @Produces(MediaType.APPLICATION_JSON)
 public interface FipeClient {
@@ -1,9 +1,22 @@
 package com.fipe.api2.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fipe.api2.repository.MarcaRepository;
 import com.fipe.api2.repository.ModeloRepository;
+import com.fipe.api2.service.ExportacaoService;
+import com.fipe.api2.service.ExportacaoService.Formato;
+import com.fipe.shared.consulta.OrcamentoSql;
+import com.fipe.shared.dto.MarcaResumo;
+import com.fipe.shared.dto.ModeloResumo;
+import com.fipe.shared.dto.PageCursor;
+import com.fipe.shared.entity.Contador;
 import com.fipe.shared.entity.Marca;
 import com.fipe.shared.entity.Modelo;
+import com.fipe.shared.formato.CatalogoProtobuf;
+import com.fipe.shared.formato.CodificadorCatalogo;
+import com.fipe.shared.formato.FormatoResposta;
+import com.fipe.shared.repository.ContadorRepository;
+import jakarta.annotation.PostConstruct;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
@@ -11,13 +24,18 @@ import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.jboss.logging.Logger;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -37,41 +55,105 @@ public class DataController {
     @Inject
     ModeloRepository modeloRepository;
 
+    @Inject
+    ContadorRepository contadorRepository;
+
+    @Inject
+    ExportacaoService exportacaoService;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    // JSON, CBOR e Smile com a configuração do ObjectMapper da aplicação
+    private CodificadorCatalogo codificador;
+
+    @PostConstruct
+    void init() {
+        codificador = new CodificadorCatalogo(objectMapper);
+    }
+
     /**
      * Lista marcas processadas com paginação
      */
     @GET
     @Path("/marcas")
+    @Produces({MediaType.APPLICATION_JSON, "application/cbor", "application/x-jackson-smile", "application/x-protobuf"})
     @Operation(summary = "Lista marcas com paginação", 
-               description = "Retorna marcas processadas com suporte a paginação (padrão: 10 marcas)")
+               description = "Retorna marcas processadas com suporte a paginação (padrão: 10 marcas). "
+                   + "Aceita paginação por offset (page) ou por cursor (nextCursor da resposta anterior). "
+                   + "Além de JSON, responde em CBOR, Smile ou protobuf (proto/catalogo.proto) conforme o Accept")
     @APIResponse(responseCode = "200", description = "Lista de marcas retornada")
+    @APIResponse(responseCode = "304", description = "Catálogo não alterado desde o ETag informado")
+    @APIResponse(responseCode = "400", description = "Cursor inválido")
+    @OrcamentoSql(statements = 3)
     public Response listarMarcas(@QueryParam("page") @DefaultValue("0") int page,
-                                @QueryParam("size") @DefaultValue("10") int size) {
+                                @QueryParam("size") @DefaultValue("10") int size,
+                                @QueryParam("cursor") String cursor,
+                                @Context HttpHeaders headers,
+                                @Context Request request) {
         try {
+            FormatoResposta formato = formato(headers);
+            if (formato == null) {
+                return formatoNaoSuportado();
+            }
+
             // Limitar o tamanho máximo para evitar sobrecarga
             if (size > 50) {
                 size = 50;
             }
             
-            List<Marca> marcas = marcaRepository.listAll(page, size);
+            // GET condicional: ETag derivado da versão de dados, sem consultar a página
+            long versao = contadorRepository.findTotal(Contador.versaoTipo(null)).orElse(0L);
+            EntityTag etag = new EntityTag("marcas-todos" + sufixo(formato) + "-v" + versao, true);
+            Response.ResponseBuilder naoModificado = request.evaluatePreconditions(etag);
+            if (naoModificado != null) {
+                return naoModificado.build();
+            }
             
-            long total = marcaRepository.count();
+            List<MarcaResumo> marcas;
+            boolean haMais;
+            // Total mantido pela ingestão, sem count(*) na requisição
+            long total = contadorRepository.findTotal(Contador.TOTAL_MARCAS).orElse(0L);
+            if (cursor != null && !cursor.isBlank()) {
+                // Busca size + 1 para saber se existe próxima página
+                marcas = marcaRepository.listResumosAfter(PageCursor.decode(cursor), size + 1);
+                haMais = marcas.size() > size;
+                marcas = haMais ? marcas.subList(0, size) : marcas;
+            } else {
+                marcas = marcaRepository.listResumos(page, size);
+                haMais = (long) (page + 1) * size < total;
+            }
             
             LOG.infof("Retornando %d marcas (página %d, tamanho %d) de um total de %d", 
                      marcas.size(), page, size, total);
             
+            String nextCursor = haMais && !marcas.isEmpty() ? marcas.get(marcas.size() - 1).cursor().encode() : null;
+            int totalPages = (int) ((total + size - 1) / size);
+            if (formato == FormatoResposta.PROTOBUF) {
+                byte[] corpo = CatalogoProtobuf.paginaMarcas(marcas, page, size, total, totalPages, nextCursor);
+                return resposta(corpo, formato).tag(etag).build();
+            }
+            
             // Criar resposta com informações de paginação
             var response = new java.util.HashMap<String, Object>();
             response.put("marcas", marcas);
             response.put("page", page);
             response.put("size", size);
             response.put("total", total);
-            response.put("totalPages", (total + size - 1) / size);
+            response.put("totalPages", totalPages);
+            response.put("nextCursor", nextCursor);
             
-            return Response.ok(response).build();
+            if (formato != FormatoResposta.JSON) {
+                return resposta(codificador.codificar(formato, response), formato).tag(etag).build();
+            }
+            return Response.ok(response).type(MediaType.APPLICATION_JSON_TYPE)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT).tag(etag).build();
+        } catch (IllegalArgumentException e) {
+            LOG.warnf("Cursor inválido ao listar marcas: %s", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).type(MediaType.TEXT_PLAIN).entity(e.getMessage()).build();
         } catch (Exception e) {
             LOG.error("Erro ao listar marcas", e);
-            return Response.serverError().entity("Erro interno do servidor").build();
+            return Response.serverError().type(MediaType.TEXT_PLAIN).entity("Erro interno do servidor").build();
         }
     }
 
@@ -80,22 +162,90 @@ public class DataController {
      */
     @GET
     @Path("/modelos")
+    @Produces({MediaType.APPLICATION_JSON, "application/cbor", "application/x-jackson-smile", "application/x-protobuf"})
     @Operation(summary = "Lista todos os modelos", 
-               description = "Retorna todos os modelos que foram processados")
+               description = "Retorna todos os modelos que foram processados, em JSON, CBOR, Smile ou protobuf "
+                   + "(ListaModelos em proto/catalogo.proto) conforme o Accept")
     @APIResponse(responseCode = "200", description = "Lista de modelos retornada")
-    public Response listarModelos() {
+    @OrcamentoSql(statements = 1)
+    public Response listarModelos(@Context HttpHeaders headers) {
         try {
-            List<Modelo> modelos = modeloRepository.listAll();
+            FormatoResposta formato = formato(headers);
+            if (formato == null) {
+                return formatoNaoSuportado();
+            }
+            List<ModeloResumo> modelos = modeloRepository.listResumos();
             LOG.infof("Retornando %d modelos", modelos.size());
-            return Response.ok(modelos).build();
+            switch (formato) {
+                case JSON:
+                    return Response.ok(modelos).type(MediaType.APPLICATION_JSON_TYPE)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+                case PROTOBUF:
+                    return resposta(CatalogoProtobuf.listaModelos(modelos), formato).build();
+                default:
+                    return resposta(codificador.codificar(formato, modelos), formato).build();
+            }
         } catch (Exception e) {
             LOG.error("Erro ao listar modelos", e);
             return Response.serverError()
+                .type(MediaType.TEXT_PLAIN)
                 .entity("Erro ao listar modelos: " + e.getMessage())
                 .build();
         }
     }
 
+    /**
+     * Exporta todos os modelos em streaming, sem carregar a tabela em memória
+     */
+    @GET
+    @Path("/modelos/export")
+    @Produces({"application/x-ndjson", "text/csv"})
+    @Operation(summary = "Exporta todos os modelos", 
+               description = "Catálogo completo de modelos (com a marca) em NDJSON (padrão) ou CSV, "
+                   + "enviado à medida que é lido do banco")
+    @APIResponse(responseCode = "200", description = "Exportação em andamento")
+    @APIResponse(responseCode = "400", description = "Formato inválido")
+    public Response exportarModelos(@QueryParam("formato") @DefaultValue("ndjson") String formato) {
+        try {
+            Formato escolhido = Formato.fromString(formato);
+            return Response.ok(exportacaoService.exportarModelos(escolhido), escolhido.mediaType)
+                .header("Content-Disposition", "attachment; filename=\"modelos." + escolhido.extensao + "\"")
+                .build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .type(MediaType.TEXT_PLAIN)
+                .entity(e.getMessage())
+                .build();
+        }
+    }
+
+    /**
+     * Formato pedido no Accept (na ordem de preferência do cliente), ou null se nenhum for suportado
+     */
+    private static FormatoResposta formato(HttpHeaders headers) {
+        List<String> aceitos = new ArrayList<>();
+        for (MediaType tipo : headers.getAcceptableMediaTypes()) {
+            aceitos.add(tipo.getType() + "/" + tipo.getSubtype());
+        }
+        return FormatoResposta.negociar(aceitos);
+    }
+
+    private static String sufixo(FormatoResposta formato) {
+        return formato == FormatoResposta.JSON ? "" : "-" + formato.getCodigo();
+    }
+
+    private static Response.ResponseBuilder resposta(byte[] corpo, FormatoResposta formato) {
+        return Response.ok(corpo, formato.getMediaType()).header(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+
+    private static Response formatoNaoSuportado() {
+        return Response.status(Response.Status.NOT_ACCEPTABLE)
+            .type(MediaType.TEXT_PLAIN)
+            .entity("Formatos suportados: application/json, application/cbor, application/x-jackson-smile, "
+                + "application/x-protobuf")
+            .build();
+    }
+
     /**
      * Lista modelos de uma marca específica
      * Temporariamente desabilitado devido a problemas com MarcaRepository
@@ -162,7 +312,7 @@ public class DataController {
     public Response criarDadosExemplo() {
         try {
             // Criar marca de exemplo
-            Marca marcaTeste = new Marca("001", "Marca Teste", "carros");
+            Marca marcaTeste = new Marca("001", "Marca Teste", TipoVeiculo.CARROS);
             marcaRepository.persist(marcaTeste);
             
             // Buscar a marca criada para obter o ID
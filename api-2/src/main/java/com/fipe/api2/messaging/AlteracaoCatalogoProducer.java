@@ -0,0 +1,77 @@
+package com.fipe.api2.messaging;
+
+import com.fipe.shared.dto.AlteracaoCatalogo;
+import io.opentelemetry.context.Context;
+import io.smallrye.reactive.messaging.TracingMetadata;
+import io.smallrye.reactive.messaging.rabbitmq.OutgoingRabbitMQMetadata;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publica as alterações do catálogo para o api-1 (exchange catalogo-alteracoes)
+ * O evento CDI é disparado dentro da transação da gravação e só chega aqui se ela for confirmada
+ *
+ * O conector só confirma (ack) a mensagem depois do publisher confirm do broker; um nack, ou falha ao enviar,
+ * publica de novo até fipe.alteracoes.publicacao.tentativas vezes e, esgotadas, o evento perdido vira erro.
+ * Mensagens persistentes: a fila durável do api-1 as guarda mesmo com reinício do broker.
+ */
+@ApplicationScoped
+public class AlteracaoCatalogoProducer {
+
+    private static final Logger LOG = Logger.getLogger(AlteracaoCatalogoProducer.class);
+
+    private static final int PERSISTENTE = 2;
+
+    @Inject
+    @Channel("catalogo-alteracoes-out")
+    Emitter<AlteracaoCatalogo> alteracoesEmitter;
+
+    @ConfigProperty(name = "fipe.alteracoes.publicacao.tentativas", defaultValue = "3")
+    int tentativas;
+
+    /**
+     * Após o commit; não bloqueia quem gravou, a confirmação do broker chega depois
+     */
+    void publicar(@Observes(during = TransactionPhase.AFTER_SUCCESS) AlteracaoCatalogo alteracao) {
+        publicar(alteracao, 1);
+    }
+
+    private void publicar(AlteracaoCatalogo alteracao, int tentativa) {
+        try {
+            alteracoesEmitter.send(Message.of(alteracao)
+                .addMetadata(TracingMetadata.withCurrent(Context.current()))
+                .addMetadata(OutgoingRabbitMQMetadata.builder().withDeliveryMode(PERSISTENTE).build())
+                .withAck(() -> {
+                    LOG.debugf("Alteração do catálogo confirmada pelo broker: %s", alteracao);
+                    return CompletableFuture.completedFuture(null);
+                })
+                .withNack(erro -> {
+                    falhou(alteracao, tentativa, erro);
+                    return CompletableFuture.completedFuture(null);
+                }));
+            LOG.debugf("Alteração do catálogo publicada: %s", alteracao);
+        } catch (Exception e) {
+            falhou(alteracao, tentativa, e);
+        }
+    }
+
+    private void falhou(AlteracaoCatalogo alteracao, int tentativa, Throwable erro) {
+        if (tentativa < tentativas) {
+            LOG.warnf("Publicação da alteração do catálogo da marca %s recusada (tentativa %d de %d): %s",
+                alteracao.codigoMarca, tentativa, tentativas, erro.getMessage());
+            publicar(alteracao, tentativa + 1);
+        } else {
+            LOG.errorf("Alteração do catálogo da marca %s perdida após %d tentativas: %s",
+                alteracao.codigoMarca, tentativas, erro.getMessage());
+        }
+    }
+}
@@ -2,8 +2,18 @@ package com.fipe.api2.messaging;
 
 // Message Consumer para processar mensagens de marcas do RabbitMQ
 
+import com.fipe.api2.metricas.MetricasIngestao;
 import com.fipe.api2.service.DataProcessingService;
+import com.fipe.shared.consulta.ContabilidadeSql;
+import com.fipe.shared.consulta.MetricasSql;
 import com.fipe.shared.dto.MarcaQueueMessage;
+import com.fipe.shared.entity.TipoVeiculo;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.smallrye.reactive.messaging.TracingMetadata;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
@@ -21,46 +31,77 @@ public class MarcaMessageConsumer {
     @Inject
     DataProcessingService dataProcessingService;
 
+    @Inject
+    MarcaProcessadaProducer marcaProcessadaProducer;
+
+    @Inject
+    MetricasSql metricasSql;
+
+    @Inject
+    MetricasIngestao metricasIngestao;
+
+    @Inject
+    Tracer tracer;
+
   
     @Incoming("marcas-in")
     public CompletionStage<Void> processarMarca(Message<JsonObject> message) {
         LOG.info("=== CONSUMER ATIVADO - Mensagem recebida ===");
+        metricasIngestao.recebida();
         JsonObject jsonPayload = message.getPayload();
         
         try {
-            // Converter JsonObject para MarcaQueueMessage
+            // Converter JsonObject para MarcaQueueMessage (tipo canonicalizado uma única vez aqui)
             MarcaQueueMessage marcaMessage = new MarcaQueueMessage(
                 jsonPayload.getString("codigoMarca"),
                 jsonPayload.getString("nomeMarca"),
-                jsonPayload.getString("tipoVeiculo")
+                TipoVeiculo.fromString(jsonPayload.getString("tipoVeiculo"))
             );
             
             LOG.infof("Recebida mensagem para processamento: %s", marcaMessage);
             LOG.infof("Payload da mensagem: codigoMarca=%s, nomeMarca=%s, tipoVeiculo=%s", 
                       marcaMessage.codigoMarca, marcaMessage.nomeMarca, marcaMessage.tipoVeiculo);
             
-            return processarMarcaAsync(marcaMessage)
+            // Contexto do span de recebimento do conector, filho do span de publicação do api-1
+            Context origem = TracingMetadata.fromMessage(message)
+                .map(TracingMetadata::getCurrentContext)
+                .orElse(Context.current());
+            
+            return processarMarcaAsync(marcaMessage, origem)
                 .thenCompose(result -> {
                     LOG.infof("Marca %s processada com sucesso", marcaMessage.nomeMarca);
+                    metricasIngestao.confirmada(true);
                     return message.ack();
                 })
                 .exceptionally(throwable -> {
                     LOG.errorf("Erro ao processar marca %s: %s", marcaMessage.nomeMarca, throwable.getMessage());
                     // Em caso de erro, fazer nack para reprocessar a mensagem
+                    metricasIngestao.confirmada(false);
                     message.nack(throwable);
                     return null;
                 });
                 
         } catch (Exception e) {
             LOG.errorf("Erro ao converter mensagem JSON: %s", e.getMessage());
+            metricasIngestao.confirmada(false);
             return message.nack(e);
         }
     }
 
  
-    private CompletionStage<Void> processarMarcaAsync(MarcaQueueMessage marcaMessage) {
+    private CompletionStage<Void> processarMarcaAsync(MarcaQueueMessage marcaMessage, Context origem) {
         return java.util.concurrent.CompletableFuture.runAsync(() -> {
-            try {
+            // SQL da mensagem contabilizado nesta thread (fipe.sql.* com operacao=ingestao.marcas-in)
+            ContabilidadeSql.Medicao medicao = ContabilidadeSql.iniciar();
+            long inicio = System.nanoTime();
+            boolean sucesso = false;
+            // Span do processamento: busca dos modelos na FIPE e gravação ficam abaixo dele
+            Span span = tracer.spanBuilder("processar marca")
+                .setParent(origem)
+                .setAttribute("fipe.marca.codigo", marcaMessage.codigoMarca)
+                .setAttribute("fipe.tipo", marcaMessage.tipoVeiculo != null ? marcaMessage.tipoVeiculo.getCodigo() : "")
+                .startSpan();
+            try (Scope escopo = span.makeCurrent()) {
                 // Validar dados da mensagem
                 validarMensagem(marcaMessage);
                 
@@ -71,12 +112,26 @@ public class MarcaMessageConsumer {
                     marcaMessage.tipoVeiculo
                 );
                 
-                LOG.infof("Processamento da marca %s concluído com sucesso", marcaMessage.nomeMarca);
+                // Transação já confirmada: o api-1 pode recarregar as listagens da marca
+                marcaProcessadaProducer.marcaProcessada(
+                    marcaMessage.codigoMarca,
+                    marcaMessage.nomeMarca,
+                    marcaMessage.tipoVeiculo
+                );
+                
+                LOG.infof("Processamento da marca %s concluído com sucesso [%s]", marcaMessage.nomeMarca, medicao);
+                sucesso = true;
                 
             } catch (Exception e) {
                 LOG.errorf("Erro durante processamento assíncrono da marca %s: %s", 
                           marcaMessage.nomeMarca, e.getMessage());
+                span.recordException(e);
+                span.setStatus(StatusCode.ERROR);
                 throw new RuntimeException("Falha no processamento da marca", e);
+            } finally {
+                span.end();
+                metricasIngestao.processamento(marcaMessage.tipoVeiculo, sucesso, System.nanoTime() - inicio);
+                metricasSql.registrar("ingestao.marcas-in", ContabilidadeSql.encerrar(medicao));
             }
         });
     }
@@ -94,16 +149,10 @@ public class MarcaMessageConsumer {
             throw new IllegalArgumentException("Nome da marca é obrigatório");
         }
         
-        if (marcaMessage.tipoVeiculo == null || marcaMessage.tipoVeiculo.trim().isEmpty()) {
+        if (marcaMessage.tipoVeiculo == null) {
             throw new IllegalArgumentException("Tipo de veículo é obrigatório");
         }
         
-        // Validar tipos de veículo aceitos
-        String tipoVeiculo = marcaMessage.tipoVeiculo.toLowerCase();
-        if (!tipoVeiculo.equals("carros") && !tipoVeiculo.equals("motos") && !tipoVeiculo.equals("caminhoes")) {
-            throw new IllegalArgumentException("Tipo de veículo inválido: " + marcaMessage.tipoVeiculo);
-        }
-        
         LOG.debugf("Mensagem validada com sucesso: %s", marcaMessage);
     }
 
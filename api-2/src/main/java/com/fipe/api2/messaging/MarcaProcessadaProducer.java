@@ -0,0 +1,36 @@
+package com.fipe.api2.messaging;
+
+import com.fipe.shared.dto.MarcaQueueMessage;
+import com.fipe.shared.entity.TipoVeiculo;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.jboss.logging.Logger;
+
+/**
+ * Avisa o api-1 (exchange marcas-processadas) que uma marca terminou de ser processada,
+ * para que as instâncias recarreguem as listagens afetadas
+ */
+@ApplicationScoped
+public class MarcaProcessadaProducer {
+
+    private static final Logger LOG = Logger.getLogger(MarcaProcessadaProducer.class);
+
+    @Inject
+    @Channel("marcas-processadas-out")
+    Emitter<MarcaQueueMessage> processadasEmitter;
+
+    /**
+     * Publica o aviso; falhas só são registradas, já que o processamento em si foi concluído
+     */
+    public void marcaProcessada(String codigoMarca, String nomeMarca, TipoVeiculo tipoVeiculo) {
+        try {
+            processadasEmitter.send(Message.of(new MarcaQueueMessage(codigoMarca, nomeMarca, tipoVeiculo)));
+            LOG.debugf("Aviso de marca processada enviado: %s", codigoMarca);
+        } catch (Exception e) {
+            LOG.warnf("Erro ao avisar marca processada %s: %s", codigoMarca, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.fipe.api2.metricas;
+
+import com.fipe.shared.entity.TipoVeiculo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Métricas do consumo de marcas (fipe.ingestao.*): mensagens recebidas, em processamento,
+ * ack/nack, tempo de processamento de cada marca e modelos inseridos/ignorados por lote
+ */
+@ApplicationScoped
+public class MetricasIngestao {
+
+    @Inject
+    MeterRegistry registry;
+
+    private final AtomicInteger emProcessamento = new AtomicInteger();
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("fipe.ingestao.em-processamento", emProcessamento, AtomicInteger::get)
+            .description("Mensagens de marca sendo processadas agora")
+            .register(registry);
+    }
+
+    /**
+     * Mensagem recebida: conta e entra no total em processamento até ack/nack
+     */
+    public void recebida() {
+        Counter.builder("fipe.ingestao.recebidas")
+            .description("Mensagens de marca recebidas")
+            .register(registry)
+            .increment();
+        emProcessamento.incrementAndGet();
+    }
+
+    public void confirmada(boolean ack) {
+        emProcessamento.decrementAndGet();
+        Counter.builder("fipe.ingestao.confirmacoes")
+            .description("Mensagens de marca encerradas por resultado")
+            .tags("resultado", ack ? "ack" : "nack")
+            .register(registry)
+            .increment();
+    }
+
+    /**
+     * Tempo de processamento de uma marca (busca dos modelos e gravação), por tipo e resultado
+     */
+    public void processamento(TipoVeiculo tipo, boolean sucesso, long nanos) {
+        Timer.builder("fipe.ingestao.processamento")
+            .description("Tempo de processamento de cada marca")
+            .tags("tipo", tipo != null ? tipo.getCodigo() : "desconhecido", "resultado", sucesso ? "sucesso" : "falha")
+            .publishPercentileHistogram()
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Modelos de um lote (os modelos de uma marca) por resultado da gravação
+     */
+    public void loteModelos(int inseridos, int ignorados, int falhas) {
+        registrarLote("inserido", inseridos);
+        registrarLote("ignorado", ignorados);
+        registrarLote("falha", falhas);
+    }
+
+    private void registrarLote(String resultado, int modelos) {
+        DistributionSummary.builder("fipe.ingestao.modelos")
+            .description("Modelos por lote gravado")
+            .tags("resultado", resultado)
+            .register(registry)
+            .record(modelos);
+    }
+}
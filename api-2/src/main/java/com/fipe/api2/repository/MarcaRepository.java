@@ -1,5 +1,7 @@
 package com.fipe.api2.repository;
 
+import com.fipe.shared.dto.MarcaResumo;
+import com.fipe.shared.dto.PageCursor;
 import com.fipe.shared.entity.Marca;
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -9,6 +11,9 @@ import java.util.List;
 @ApplicationScoped
 public class MarcaRepository implements PanacheRepositoryBase<Marca, Long> {
 
+    private static final String RESUMO_SELECT =
+        "SELECT new com.fipe.shared.dto.MarcaResumo(m.id, m.codigoFipe, m.nome, m.tipoVeiculo) FROM Marca m ";
+
     public Marca findByCodigoFipe(String codigoFipe) {
         return find("codigoFipe = ?1", codigoFipe).firstResult();
     }
@@ -26,8 +31,30 @@ public class MarcaRepository implements PanacheRepositoryBase<Marca, Long> {
         return find("ORDER BY nome").list();
     }
 
-    public List<Marca> listAll(int page, int size) {
-        return find("ORDER BY nome").page(page, size).list();
+    /**
+     * Página de marcas como projeção de leitura (apenas as colunas da listagem)
+     */
+    public List<MarcaResumo> listResumos(int page, int size) {
+        return getEntityManager().createQuery(RESUMO_SELECT + "ORDER BY m.nome, m.id", MarcaResumo.class)
+            .setFirstResult(page * size)
+            .setMaxResults(size)
+            .getResultList();
+    }
+
+    /**
+     * Paginação por chave: marcas após o cursor (nome, id), sem OFFSET
+     * (nome, id) > cursor como comparação de linha, para o banco iniciar a leitura do índice no cursor
+     */
+    public List<MarcaResumo> listResumosAfter(PageCursor after, int limit) {
+        if (after == null) {
+            return listResumos(0, limit);
+        }
+        return getEntityManager().createQuery(RESUMO_SELECT
+                + "WHERE (m.nome, m.id) > (?1, ?2) ORDER BY m.nome, m.id", MarcaResumo.class)
+            .setParameter(1, after.nome)
+            .setParameter(2, after.id)
+            .setMaxResults(limit)
+            .getResultList();
     }
 
     @Transactional
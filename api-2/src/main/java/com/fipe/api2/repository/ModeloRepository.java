@@ -1,14 +1,29 @@
 package com.fipe.api2.repository;
 
+import com.fipe.shared.dto.ModeloResumo;
 import com.fipe.shared.entity.Modelo;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.List;
+import javax.sql.DataSource;
 
 @ApplicationScoped
 public class ModeloRepository implements PanacheRepository<Modelo> {
 
+    private static final String EXPORTACAO_SQL =
+        "SELECT m.id, m.codigo_fipe, m.nome, m.observacoes, ma.codigo_fipe, ma.nome "
+        + "FROM modelos m JOIN marcas ma ON ma.id = m.marca_id ORDER BY m.id";
+
+    @Inject
+    DataSource dataSource;
+
     @Transactional
     public void persist(Modelo modelo) {
         // Verificar se já existe para evitar duplicatas
@@ -22,6 +37,48 @@ public class ModeloRepository implements PanacheRepository<Modelo> {
         return find("ORDER BY nome").list();
     }
 
+    /**
+     * Todos os modelos como projeção de leitura, com o nome da marca obtido por join
+     * Não seleciona observações nem timestamps
+     */
+    public List<ModeloResumo> listResumos() {
+        return getEntityManager().createQuery(
+                "SELECT new com.fipe.shared.dto.ModeloResumo(m.id, m.codigoFipe, m.nome, ma.codigoFipe, ma.nome) "
+                + "FROM Modelo m JOIN m.marca ma ORDER BY m.nome, m.id", ModeloResumo.class)
+            .getResultList();
+    }
+
+    /**
+     * Percorre todos os modelos (ordem de id) por um cursor JDBC somente-avanço, entregando uma linha por vez
+     * Nada passa pelo contexto de persistência e no máximo fetchSize linhas ficam em memória; no PostgreSQL
+     * o cursor de servidor exige autocommit desligado, por isso a leitura roda em uma transação somente leitura
+     * Retorna a quantidade de linhas entregues
+     */
+    public long exportarResumos(int fetchSize, LinhaExportacao linha) throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            long linhas = 0;
+            try (PreparedStatement statement = connection.prepareStatement(EXPORTACAO_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize);
+                try (ResultSet resultado = statement.executeQuery()) {
+                    while (resultado.next()) {
+                        linha.escrever(new ModeloResumo(resultado.getLong(1), resultado.getString(2),
+                            resultado.getString(3), resultado.getString(4), resultado.getString(5), resultado.getString(6)));
+                        linhas++;
+                    }
+                }
+            } finally {
+                connection.rollback();
+                connection.setReadOnly(false);
+                connection.setAutoCommit(autoCommit);
+            }
+            return linhas;
+        }
+    }
+
     public Modelo findById(Long id) {
         return PanacheRepository.super.findById(id);
     }
@@ -46,4 +103,12 @@ public class ModeloRepository implements PanacheRepository<Modelo> {
     public Modelo merge(Modelo modelo) {
         return getEntityManager().merge(modelo);
     }
-}
\ No newline at end of file
+
+    /**
+     * Destino de cada linha da exportação (normalmente a resposta HTTP)
+     */
+    @FunctionalInterface
+    public interface LinhaExportacao {
+        void escrever(ModeloResumo modelo) throws IOException;
+    }
+}
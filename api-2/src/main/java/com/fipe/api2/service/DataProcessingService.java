@@ -1,12 +1,22 @@
 package com.fipe.api2.service;
 
 import com.fipe.api2.client.FipeClient;
+import com.fipe.api2.metricas.MetricasIngestao;
 import com.fipe.api2.repository.MarcaRepository;
 import com.fipe.api2.repository.ModeloRepository;
+import com.fipe.shared.dto.AlteracaoCatalogo;
 import com.fipe.shared.dto.ModeloDTO;
+import com.fipe.shared.entity.Contador;
 import com.fipe.shared.entity.Marca;
 import com.fipe.shared.entity.Modelo;
+import com.fipe.shared.entity.TipoVeiculo;
+import com.fipe.shared.repository.ContadorRepository;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
@@ -14,6 +24,7 @@ import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.jboss.logging.Logger;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Serviço responsável pelo processamento e persistência dos dados FIPE
@@ -34,6 +45,19 @@ public class DataProcessingService {
     @Inject
     ModeloRepository modeloRepository;
 
+    @Inject
+    ContadorRepository contadorRepository;
+
+    @Inject
+    MetricasIngestao metricasIngestao;
+
+    @Inject
+    Tracer tracer;
+
+    // Alterações confirmadas vão para o api-1 (ver AlteracaoCatalogoProducer, observador após o commit)
+    @Inject
+    Event<AlteracaoCatalogo> alteracoes;
+
     @ConfigProperty(name = "fipe.processing.delay-between-requests", defaultValue = "100")
     int delayBetweenRequests;
 
@@ -45,25 +69,29 @@ public class DataProcessingService {
 
     /**
      * Processa uma marca: salva a marca e busca/salva todos os seus modelos
+     * O que mudou (marca nova, códigos dos modelos inseridos) é publicado para o api-1 depois do commit
      */
     @Transactional
-    public void processarMarca(String codigoMarca, String nomeMarca, String tipoVeiculo) {
+    public void processarMarca(String codigoMarca, String nomeMarca, TipoVeiculo tipoVeiculo) {
         LOG.infof("Iniciando processamento da marca: %s (%s) - Tipo: %s", nomeMarca, codigoMarca, tipoVeiculo);
+        AlteracaoCatalogo alteracao = new AlteracaoCatalogo(codigoMarca, tipoVeiculo);
         
         try {
             // 1. Salvar ou buscar a marca
-            Marca marca = salvarMarca(codigoMarca, nomeMarca, tipoVeiculo);
+            Marca marca = emSpan("db salvar marca", () -> salvarMarca(codigoMarca, nomeMarca, tipoVeiculo, alteracao));
             
             // 2. Buscar modelos na API FIPE
-            List<ModeloDTO> modelos = buscarModelosNaApiFipe(codigoMarca, tipoVeiculo);
+            List<ModeloDTO> modelos = emSpan("fipe buscar modelos", () -> buscarModelosNaApiFipe(codigoMarca, tipoVeiculo));
             
             if (modelos == null || modelos.isEmpty()) {
                 LOG.warnf("Nenhum modelo encontrado para a marca %s (%s)", nomeMarca, codigoMarca);
+                publicarAlteracao(alteracao);
                 return;
             }
             
             // 3. Salvar modelos no banco
-            int modelosSalvos = salvarModelos(modelos, marca);
+            int modelosSalvos = emSpan("db salvar modelos", () -> salvarModelos(modelos, marca, alteracao));
+            publicarAlteracao(alteracao);
             
             LOG.infof("Processamento da marca %s concluído. %d modelos processados", nomeMarca, modelosSalvos);
             
@@ -73,10 +101,35 @@ public class DataProcessingService {
         }
     }
 
+    /**
+     * Dispara o evento na transação corrente; o observador só publica se ela for confirmada
+     */
+    private void publicarAlteracao(AlteracaoCatalogo alteracao) {
+        if (!alteracao.isVazia()) {
+            alteracoes.fire(alteracao);
+        }
+    }
+
+    /**
+     * Executa uma etapa do processamento em um span próprio, filho do span atual
+     */
+    private <T> T emSpan(String nome, Supplier<T> etapa) {
+        Span span = tracer.spanBuilder(nome).startSpan();
+        try (Scope escopo = span.makeCurrent()) {
+            return etapa.get();
+        } catch (RuntimeException e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
     /**
      * Salva uma marca no banco de dados (ou retorna existente)
      */
-    private Marca salvarMarca(String codigoFipe, String nome, String tipoVeiculo) {
+    private Marca salvarMarca(String codigoFipe, String nome, TipoVeiculo tipoVeiculo, AlteracaoCatalogo alteracao) {
         // Verificar se a marca já existe
         Marca marcaExistente = marcaRepository.findByCodigoFipe(codigoFipe);
         
@@ -89,6 +142,14 @@ public class DataProcessingService {
         Marca novaMarca = new Marca(codigoFipe, nome, tipoVeiculo);
         marcaRepository.persist(novaMarca);
         
+        // Totais e versões de dados atualizados na mesma transação da inserção
+        contadorRepository.incrementar(Contador.TOTAL_MARCAS, 1);
+        contadorRepository.incrementar(Contador.chaveTipo(tipoVeiculo), 1);
+        contadorRepository.incrementar(Contador.versaoTipo(null), 1);
+        contadorRepository.incrementar(Contador.versaoTipo(tipoVeiculo), 1);
+        contadorRepository.incrementar(Contador.versaoMarca(codigoFipe), 1);
+        alteracao.marcaAlterada = true;
+        
         LOG.infof("Nova marca salva: %s (ID: %d)", nome, novaMarca.id);
         return novaMarca;
     }
@@ -96,7 +157,7 @@ public class DataProcessingService {
     /**
      * Busca modelos na API FIPE com retry automático
      */
-    private List<ModeloDTO> buscarModelosNaApiFipe(String codigoMarca, String tipoVeiculo) {
+    private List<ModeloDTO> buscarModelosNaApiFipe(String codigoMarca, TipoVeiculo tipoVeiculo) {
         int tentativas = 0;
         Exception ultimaExcecao = null;
         
@@ -107,11 +168,10 @@ public class DataProcessingService {
                     Thread.sleep(retryDelay);
                 }
                 
-                FipeClient.FipeModelosResponse response = switch (tipoVeiculo.toLowerCase()) {
-                    case "carros" -> fipeClient.getModelosCarros(codigoMarca);
-                    case "motos" -> fipeClient.getModelosMotos(codigoMarca);
-                    case "caminhoes" -> fipeClient.getModelosCaminhoes(codigoMarca);
-                    default -> throw new IllegalArgumentException("Tipo de veículo inválido: " + tipoVeiculo);
+                FipeClient.FipeModelosResponse response = switch (tipoVeiculo) {
+                    case CARROS -> fipeClient.getModelosCarros(codigoMarca);
+                    case MOTOS -> fipeClient.getModelosMotos(codigoMarca);
+                    case CAMINHOES -> fipeClient.getModelosCaminhoes(codigoMarca);
                 };
                 
                 if (response != null && response.modelos != null) {
@@ -145,8 +205,10 @@ public class DataProcessingService {
     /**
      * Salva uma lista de modelos no banco de dados
      */
-    private int salvarModelos(List<ModeloDTO> modelos, Marca marca) {
+    private int salvarModelos(List<ModeloDTO> modelos, Marca marca, AlteracaoCatalogo alteracao) {
         int contador = 0;
+        int ignorados = 0;
+        int falhas = 0;
         
         for (ModeloDTO modeloDTO : modelos) {
             try {
@@ -155,6 +217,7 @@ public class DataProcessingService {
                 
                 if (modeloExistente != null) {
                     LOG.debugf("Modelo já existe: %s", modeloDTO.nome);
+                    ignorados++;
                     continue;
                 }
                 
@@ -163,6 +226,7 @@ public class DataProcessingService {
                 modeloRepository.persist(novoModelo);
                 
                 contador++;
+                alteracao.modelosAdicionados.add(novoModelo.codigoFipe);
                 LOG.debugf("Modelo salvo: %s (ID: %d)", modeloDTO.nome, novoModelo.id);
                 
                 // Pequeno delay para evitar sobrecarga do banco
@@ -172,10 +236,23 @@ public class DataProcessingService {
                 
             } catch (Exception e) {
                 LOG.errorf("Erro ao salvar modelo %s: %s", modeloDTO.nome, e.getMessage());
+                falhas++;
                 // Continua processando outros modelos mesmo se um falhar
             }
         }
         
+        metricasIngestao.loteModelos(contador, ignorados, falhas);
+        Span.current()
+            .setAttribute("fipe.modelos.inseridos", contador)
+            .setAttribute("fipe.modelos.ignorados", ignorados)
+            .setAttribute("fipe.modelos.falhas", falhas);
+        
+        // Total e versão dos modelos da marca atualizados na mesma transação dos inserts
+        contadorRepository.incrementar(Contador.chaveMarca(marca.codigoFipe), contador);
+        if (contador > 0) {
+            contadorRepository.incrementar(Contador.versaoMarca(marca.codigoFipe), 1);
+        }
+        
         return contador;
     }
 
@@ -204,9 +281,9 @@ public class DataProcessingService {
     public ProcessingStats getProcessingStats() {
         long totalMarcas = marcaRepository.count();
         long totalModelos = modeloRepository.count();
-        long marcasCarros = marcaRepository.count("tipoVeiculo", "carros");
-        long marcasMotos = marcaRepository.count("tipoVeiculo", "motos");
-        long marcasCaminhoes = marcaRepository.count("tipoVeiculo", "caminhoes");
+        long marcasCarros = marcaRepository.count("tipoVeiculo", TipoVeiculo.CARROS);
+        long marcasMotos = marcaRepository.count("tipoVeiculo", TipoVeiculo.MOTOS);
+        long marcasCaminhoes = marcaRepository.count("tipoVeiculo", TipoVeiculo.CAMINHOES);
         
         return new ProcessingStats(totalMarcas, totalModelos, marcasCarros, marcasMotos, marcasCaminhoes);
     }
@@ -0,0 +1,139 @@
+package com.fipe.api2.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fipe.api2.repository.ModeloRepository;
+import com.fipe.shared.dto.ModeloResumo;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Exportação do catálogo completo de modelos em streaming (NDJSON ou CSV)
+ *
+ * As linhas saem do cursor JDBC direto para a resposta: a memória usada não depende do tamanho da tabela.
+ * A escrita bloqueia enquanto o cliente não consome os bytes já enviados, o que segura a leitura do
+ * cursor no ritmo do cliente
+ */
+@ApplicationScoped
+public class ExportacaoService {
+
+    private static final Logger LOG = Logger.getLogger(ExportacaoService.class);
+
+    private static final String CSV_CABECALHO = "id,codigo,nome,observacoes,codigoMarca,nomeMarca";
+
+    @Inject
+    ModeloRepository modeloRepository;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    // Linhas trazidas do banco por ida ao servidor
+    @ConfigProperty(name = "fipe.export.fetch-size", defaultValue = "500")
+    int fetchSize;
+
+    public enum Formato {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv; charset=UTF-8", "csv");
+
+        public final String mediaType;
+        public final String extensao;
+
+        Formato(String mediaType, String extensao) {
+            this.mediaType = mediaType;
+            this.extensao = extensao;
+        }
+
+        public static Formato fromString(String formato) {
+            try {
+                return valueOf(formato.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new IllegalArgumentException("Formato de exportação inválido: " + formato + " (use ndjson ou csv)");
+            }
+        }
+    }
+
+    /**
+     * Corpo da resposta com todos os modelos no formato pedido, escrito à medida que o cursor avança
+     */
+    public StreamingOutput exportarModelos(Formato formato) {
+        return saida -> {
+            long inicio = System.nanoTime();
+            long linhas;
+            try {
+                linhas = formato == Formato.CSV ? escreverCsv(saida) : escreverNdjson(saida);
+            } catch (SQLException e) {
+                LOG.errorf("Erro ao ler modelos para exportação: %s", e.getMessage());
+                throw new IOException("Exportação interrompida", e);
+            }
+            LOG.infof("Exportação de modelos (%s): %d linhas em %d ms",
+                formato.extensao, linhas, (System.nanoTime() - inicio) / 1_000_000);
+        };
+    }
+
+    private long escreverNdjson(OutputStream saida) throws SQLException, IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(saida)) {
+            // Sem isso o Jackson põe um espaço antes de cada objeto raiz e as linhas começam com " {"
+            json.setRootValueSeparator(null);
+            return modeloRepository.exportarResumos(fetchSize, modelo -> {
+                json.writeObject(modelo);
+                json.writeRaw('\n');
+            });
+        }
+    }
+
+    private long escreverCsv(OutputStream saida) throws SQLException, IOException {
+        try (Writer csv = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8))) {
+            csv.write(CSV_CABECALHO);
+            csv.write("\r\n");
+            return modeloRepository.exportarResumos(fetchSize, modelo -> escreverLinhaCsv(csv, modelo));
+        }
+    }
+
+    private static void escreverLinhaCsv(Writer csv, ModeloResumo modelo) throws IOException {
+        csv.write(String.valueOf(modelo.id));
+        csv.write(',');
+        escreverCampoCsv(csv, modelo.codigo);
+        csv.write(',');
+        escreverCampoCsv(csv, modelo.nome);
+        csv.write(',');
+        escreverCampoCsv(csv, modelo.observacoes);
+        csv.write(',');
+        escreverCampoCsv(csv, modelo.codigoMarca);
+        csv.write(',');
+        escreverCampoCsv(csv, modelo.nomeMarca);
+        csv.write("\r\n");
+    }
+
+    /**
+     * Campo CSV (RFC 4180): entre aspas, com aspas duplicadas, quando contém separador, aspas ou quebra de linha
+     */
+    private static void escreverCampoCsv(Writer csv, String valor) throws IOException {
+        if (valor == null) {
+            return;
+        }
+        boolean aspas = false;
+        for (int i = 0; i < valor.length() && !aspas; i++) {
+            char c = valor.charAt(i);
+            aspas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!aspas) {
+            csv.write(valor);
+            return;
+        }
+        csv.write('"');
+        csv.write(valor.replace("\"", "\"\""));
+        csv.write('"');
+    }
+}
@@ -3,7 +3,7 @@ CREATE TABLE IF NOT EXISTS marcas (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     codigo_fipe VARCHAR(10) NOT NULL,
     nome VARCHAR(255) NOT NULL,
-    tipo_veiculo VARCHAR(50) NOT NULL,
+    tipo_veiculo_id SMALLINT NOT NULL,
     data_criacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     data_atualizacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
@@ -19,10 +19,11 @@ CREATE TABLE IF NOT EXISTS modelos (
 );
 
 -- Inserir alguns dados de exemplo
-INSERT INTO marcas (codigo_fipe, nome, tipo_veiculo) VALUES 
-('001', 'Volkswagen', 'carros'),
-('002', 'Ford', 'carros'),
-('003', 'Chevrolet', 'carros');
+-- tipo_veiculo_id: 1 = carros, 2 = motos, 3 = caminhoes (enum TipoVeiculo)
+INSERT INTO marcas (codigo_fipe, nome, tipo_veiculo_id) VALUES 
+('001', 'Volkswagen', 1),
+('002', 'Ford', 1),
+('003', 'Chevrolet', 1);
 
 INSERT INTO modelos (codigo_fipe, nome, marca_id) VALUES 
 ('001001', 'Gol', 1),
@@ -0,0 +1,109 @@
+package com.fipe.api2.controller;
+
+import com.fipe.shared.consulta.FiltroContabilidadeSql;
+import com.fipe.shared.entity.Contador;
+import com.fipe.shared.entity.Marca;
+import com.fipe.shared.entity.Modelo;
+import com.fipe.shared.entity.TipoVeiculo;
+import com.fipe.shared.repository.ContadorRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.response.Response;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Orçamento de SQL dos endpoints com @OrcamentoSql, nos caminhos por offset e por cursor
+ *
+ * No perfil de teste fipe.sql.orcamento.modo=falhar: acima do orçamento a resposta vira 500,
+ * então cada chamada confere o status e o número de statements do cabeçalho X-SQL
+ */
+@QuarkusTest
+class OrcamentoSqlTest {
+
+    private static final Pattern STATEMENTS = Pattern.compile("statements=(\\d+)");
+
+    private static boolean carregado;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    ContadorRepository contadorRepository;
+
+    @BeforeEach
+    void carregarCatalogo() {
+        if (carregado) {
+            return;
+        }
+        QuarkusTransaction.requiringNew().run(() -> {
+            for (int i = 1; i <= 3; i++) {
+                Marca marca = new Marca("orc-" + i, "Marca Orçamento " + i, TipoVeiculo.CARROS);
+                entityManager.persist(marca);
+                entityManager.persist(new Modelo("orc-" + i + "-1", "Modelo Orçamento " + i, marca));
+                contadorRepository.incrementar(Contador.chaveMarca(marca.codigoFipe), 1);
+            }
+            contadorRepository.incrementar(Contador.TOTAL_MARCAS, 3);
+            contadorRepository.incrementar(Contador.versaoTipo(null), 1);
+        });
+        carregado = true;
+    }
+
+    @Test
+    void listarMarcasPorOffset() {
+        Response resposta = given()
+            .queryParam("page", 0).queryParam("size", 2)
+            .get("/api/v2/data/marcas");
+
+        assertDentroDoOrcamento(resposta, 3);
+        assertEquals(3, resposta.jsonPath().getInt("total"));
+        assertNotNull(resposta.jsonPath().getString("nextCursor"));
+    }
+
+    @Test
+    void listarMarcasPorCursor() {
+        String cursor = given()
+            .queryParam("size", 2)
+            .get("/api/v2/data/marcas")
+            .jsonPath().getString("nextCursor");
+
+        Response resposta = given()
+            .queryParam("size", 2).queryParam("cursor", cursor)
+            .get("/api/v2/data/marcas");
+
+        // Versão + total + página após o cursor
+        assertDentroDoOrcamento(resposta, 3);
+        assertEquals(1, resposta.jsonPath().getList("marcas").size());
+        assertNull(resposta.jsonPath().getString("nextCursor"));
+    }
+
+    @Test
+    void listarModelos() {
+        Response resposta = given()
+            .get("/api/v2/data/modelos");
+
+        assertDentroDoOrcamento(resposta, 1);
+        assertEquals(3, resposta.jsonPath().getList("$").size());
+    }
+
+    private static void assertDentroDoOrcamento(Response resposta, int orcamento) {
+        assertEquals(200, resposta.statusCode(), resposta.body().asString());
+        String cabecalho = resposta.header(FiltroContabilidadeSql.CABECALHO);
+        assertNotNull(cabecalho, "Cabeçalho " + FiltroContabilidadeSql.CABECALHO + " ausente");
+        Matcher statements = STATEMENTS.matcher(cabecalho);
+        assertTrue(statements.find(), cabecalho);
+        int medidos = Integer.parseInt(statements.group(1));
+        assertTrue(medidos > 0 && medidos <= orcamento, cabecalho + " (orçamento " + orcamento + ")");
+    }
+}
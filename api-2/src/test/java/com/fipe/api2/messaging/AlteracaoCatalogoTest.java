@@ -0,0 +1,121 @@
+package com.fipe.api2.messaging;
+
+import com.fipe.api2.service.DataProcessingService;
+import com.fipe.shared.dto.AlteracaoCatalogo;
+import com.fipe.shared.entity.TipoVeiculo;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.reactive.messaging.memory.InMemoryConnector;
+import io.smallrye.reactive.messaging.memory.InMemorySink;
+import jakarta.enterprise.inject.Any;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Feed catalogo-alteracoes: o AlteracaoCatalogo só sai depois do commit e só se a gravação mudou algo
+ *
+ * Os casos sem publicação (reprocessamento sem mudança, rollback) são seguidos do processamento de uma marca
+ * nova: quando a alteração dela chega ao sink, a anterior, se tivesse sido publicada, já estaria lá antes
+ */
+@QuarkusTest
+@QuarkusTestResource(value = MensageriaEmMemoria.class, restrictToAnnotatedClass = true)
+class AlteracaoCatalogoTest {
+
+    private static final long ESPERA_MS = 10_000;
+
+    @Inject
+    DataProcessingService dataProcessingService;
+
+    @Inject
+    @Any
+    InMemoryConnector conector;
+
+    private InMemorySink<AlteracaoCatalogo> publicadas;
+
+    @BeforeEach
+    void limparSink() {
+        publicadas = conector.sink("catalogo-alteracoes-out");
+        publicadas.clear();
+    }
+
+    @Test
+    void marcaNovaPublicaMarcaEModelos() {
+        dataProcessingService.processarMarca("alt-1", "Marca Alteração 1", TipoVeiculo.MOTOS);
+
+        AlteracaoCatalogo alteracao = unica();
+        assertEquals("alt-1", alteracao.codigoMarca);
+        assertEquals(TipoVeiculo.MOTOS, alteracao.tipoVeiculo);
+        assertTrue(alteracao.marcaAlterada);
+        assertEquals(List.of("alt-1-1", "alt-1-2"), alteracao.modelosAdicionados);
+    }
+
+    @Test
+    void reprocessamentoSemMudancaNaoPublica() {
+        dataProcessingService.processarMarca("alt-2", "Marca Alteração 2", TipoVeiculo.MOTOS);
+        unica();
+        publicadas.clear();
+
+        dataProcessingService.processarMarca("alt-2", "Marca Alteração 2", TipoVeiculo.MOTOS);
+        dataProcessingService.processarMarca("alt-3", "Marca Alteração 3", TipoVeiculo.MOTOS);
+
+        assertEquals("alt-3", unica().codigoMarca);
+    }
+
+    @Test
+    void rollbackNaoPublica() {
+        String codigo = FipeStub.FALHA + "1";
+        assertThrows(RuntimeException.class,
+            () -> dataProcessingService.processarMarca(codigo, "Marca Falha", TipoVeiculo.MOTOS));
+        dataProcessingService.processarMarca("alt-4", "Marca Alteração 4", TipoVeiculo.MOTOS);
+
+        AlteracaoCatalogo alteracao = unica();
+        assertEquals("alt-4", alteracao.codigoMarca);
+        assertFalse(publicadas.received().stream().anyMatch(m -> codigo.equals(m.getPayload().codigoMarca)));
+    }
+
+    @Test
+    void nackDoBrokerPublicaDeNovo() {
+        dataProcessingService.processarMarca("alt-5", "Marca Alteração 5", TipoVeiculo.MOTOS);
+        aguardar(() -> !publicadas.received().isEmpty(), "alteração publicada");
+        publicadas.received().get(0).nack(new IllegalStateException("nack do broker"));
+
+        aguardar(() -> publicadas.received().size() == 2, "nova publicação");
+        assertEquals("alt-5", publicadas.received().get(1).getPayload().codigoMarca);
+    }
+
+    /**
+     * Espera a primeira alteração no sink e confere que é a única
+     */
+    private AlteracaoCatalogo unica() {
+        aguardar(() -> !publicadas.received().isEmpty(), "alteração publicada");
+        List<? extends Message<AlteracaoCatalogo>> recebidas = publicadas.received();
+        assertEquals(1, recebidas.size(), recebidas.toString());
+        return recebidas.get(0).getPayload();
+    }
+
+    private static void aguardar(BooleanSupplier condicao, String descricao) {
+        long limite = System.currentTimeMillis() + ESPERA_MS;
+        while (!condicao.getAsBoolean()) {
+            if (System.currentTimeMillis() > limite) {
+                fail("Tempo esgotado aguardando " + descricao);
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrompido aguardando " + descricao);
+            }
+        }
+    }
+}
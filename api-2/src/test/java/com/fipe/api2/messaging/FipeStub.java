@@ -0,0 +1,35 @@
+package com.fipe.api2.messaging;
+
+import com.fipe.api2.client.FipeClient.FipeModelosResponse;
+import com.fipe.shared.dto.ModeloDTO;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.List;
+
+/**
+ * API FIPE falsa servida pela própria aplicação nos testes: a chamada passa pelo cliente REST de verdade
+ * Marcas com código iniciado por FALHA respondem 503, para simular a FIPE fora do ar
+ */
+@Path(FipeStub.CAMINHO)
+@Produces(MediaType.APPLICATION_JSON)
+public class FipeStub {
+
+    public static final String CAMINHO = "/fipe-stub";
+    public static final String FALHA = "falha-";
+
+    @GET
+    @Path("/{tipo}/marcas/{codigoMarca}/modelos")
+    public Response modelos(@PathParam("tipo") String tipo, @PathParam("codigoMarca") String codigoMarca) {
+        if (codigoMarca.startsWith(FALHA)) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+        return Response.ok(new FipeModelosResponse(List.of(
+            new ModeloDTO(codigoMarca + "-1", "Modelo " + codigoMarca + " 1"),
+            new ModeloDTO(codigoMarca + "-2", "Modelo " + codigoMarca + " 2")))).build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.fipe.api2.messaging;
+
+import io.quarkus.test.common.QuarkusTestResourceLifecycleManager;
+import io.smallrye.reactive.messaging.memory.InMemoryConnector;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Canais do RabbitMQ trocados pelo conector em memória e API FIPE apontada para o FipeStub da própria aplicação
+ */
+public class MensageriaEmMemoria implements QuarkusTestResourceLifecycleManager {
+
+    @Override
+    public Map<String, String> start() {
+        Map<String, String> config = new HashMap<>();
+        config.putAll(InMemoryConnector.switchIncomingChannelsToInMemory("marcas-in"));
+        config.putAll(InMemoryConnector.switchOutgoingChannelsToInMemory("marcas-processadas-out", "catalogo-alteracoes-out"));
+        config.put("quarkus.rest-client.\"com.fipe.api2.client.FipeClient\".url",
+            "http://localhost:${quarkus.http.test-port:8081}" + FipeStub.CAMINHO);
+        // Falha da FIPE (FipeStub.FALHA) sem esperar as novas tentativas
+        config.put("fipe.processing.max-retries", "1");
+        config.put("fipe.processing.retry-delay", "0");
+        return config;
+    }
+
+    @Override
+    public void stop() {
+        InMemoryConnector.clear();
+    }
+}
@@ -0,0 +1,112 @@
+package com.fipe.api2.messaging;
+
+import com.fipe.shared.rastreamento.ExportadorSpansLocal;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.reactive.messaging.TracingMetadata;
+import io.smallrye.reactive.messaging.memory.InMemoryConnector;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.inject.Any;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Árvore de spans do consumo de uma marca no exportador local, lado do api-2
+ *
+ * A mensagem chega em marcas-in com o contexto extraído do cabeçalho traceparent, como o conector do
+ * RabbitMQ faz com o que o api-1 publicou dentro do carga-inicial (ver RastreamentoIngestaoTest do api-1):
+ * processar marca continua esse trace e abre db salvar marca, fipe buscar modelos (com o GET na API FIPE,
+ * aqui o FipeStub) e db salvar modelos
+ */
+@QuarkusTest
+@QuarkusTestResource(value = MensageriaEmMemoria.class, restrictToAnnotatedClass = true)
+class RastreamentoIngestaoTest {
+
+    private static final long ESPERA_MS = 10_000;
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+    private static final String SPAN_PUBLICACAO = "00f067aa0ba902b7";
+
+    private static final TextMapGetter<Map<String, String>> CABECALHOS = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(Map<String, String> cabecalhos) {
+            return cabecalhos.keySet();
+        }
+
+        @Override
+        public String get(Map<String, String> cabecalhos, String chave) {
+            return cabecalhos == null ? null : cabecalhos.get(chave);
+        }
+    };
+
+    @Inject
+    ExportadorSpansLocal exportador;
+
+    @Inject
+    @Any
+    InMemoryConnector conector;
+
+    @Test
+    void consumoContinuaOTraceDaPublicacao() {
+        exportador.limpar();
+        Context publicacao = W3CTraceContextPropagator.getInstance().extract(Context.root(),
+            Map.of("traceparent", "00-" + TRACE_ID + "-" + SPAN_PUBLICACAO + "-01"), CABECALHOS);
+
+        JsonObject marca = new JsonObject()
+            .put("codigoMarca", "rastreio-1")
+            .put("nomeMarca", "Marca Rastreio")
+            .put("tipoVeiculo", "carros");
+        conector.source("marcas-in").send(Message.of(marca).addMetadata(TracingMetadata.withCurrent(publicacao)));
+
+        aguardar(() -> exportador.getSpans(TRACE_ID).stream().anyMatch(s -> s.getName().equals("processar marca")),
+            "span processar marca encerrado");
+
+        SpanData processar = span("processar marca", null);
+        assertEquals(SPAN_PUBLICACAO, processar.getParentSpanId(), "processar marca deveria continuar a publicação");
+
+        span("db salvar marca", processar);
+        SpanData buscaModelos = span("fipe buscar modelos", processar);
+        SpanData chamada = exportador.getSpans(TRACE_ID).stream()
+            .filter(s -> s.getKind() == SpanKind.CLIENT && s.getParentSpanId().equals(buscaModelos.getSpanId()))
+            .findFirst()
+            .orElseThrow(() -> new AssertionError("GET na API FIPE ausente abaixo de fipe buscar modelos"));
+        assertEquals(TRACE_ID, chamada.getTraceId());
+        span("db salvar modelos", processar);
+    }
+
+    private SpanData span(String nome, SpanData pai) {
+        return exportador.getSpans(TRACE_ID).stream()
+            .filter(span -> span.getName().equals(nome))
+            .filter(span -> pai == null || span.getParentSpanId().equals(pai.getSpanId()))
+            .findFirst()
+            .orElseThrow(() -> new AssertionError("Span ausente: " + nome
+                + (pai == null ? "" : " abaixo de " + pai.getName())));
+    }
+
+    private static void aguardar(BooleanSupplier condicao, String descricao) {
+        long limite = System.currentTimeMillis() + ESPERA_MS;
+        while (!condicao.getAsBoolean()) {
+            if (System.currentTimeMillis() > limite) {
+                fail("Tempo esgotado aguardando " + descricao);
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrompido aguardando " + descricao);
+            }
+        }
+    }
+}
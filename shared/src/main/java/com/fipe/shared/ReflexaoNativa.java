@@ -0,0 +1,37 @@
+package com.fipe.shared;
+
+import com.fipe.shared.consulta.ContabilidadeSessionListener;
+import com.fipe.shared.consulta.ContabilidadeStatistics;
+import com.fipe.shared.dto.AlteracaoCatalogo;
+import com.fipe.shared.dto.MarcaDTO;
+import com.fipe.shared.dto.MarcaQueueMessage;
+import com.fipe.shared.dto.MarcaResumo;
+import com.fipe.shared.dto.ModeloDTO;
+import com.fipe.shared.dto.ModeloResumo;
+import com.fipe.shared.dto.PageCursor;
+import com.fipe.shared.entity.Contador;
+import com.fipe.shared.entity.Marca;
+import com.fipe.shared.entity.Modelo;
+import com.fipe.shared.entity.TipoVeiculo;
+import com.fipe.shared.entity.TipoVeiculoConverter;
+import com.fipe.shared.formato.CatalogoProtobuf;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * Classes do shared lidas por reflexão em runtime, registradas uma vez para a imagem nativa das duas APIs
+ *
+ * O shared é indexado pelo Quarkus (META-INF/beans.xml), então a anotação vale nos dois serviços; o que é de
+ * uma API só fica no ReflexaoNativa dela. Aqui: DTOs e entidades que viajam na fila, no cache e dentro de
+ * Response, e os ganchos do Hibernate configurados por nome em application.properties
+ */
+@RegisterForReflection(targets = {
+    MarcaDTO.class, ModeloDTO.class, MarcaQueueMessage.class, MarcaResumo.class, ModeloResumo.class, PageCursor.class,
+    AlteracaoCatalogo.class,
+    Marca.class, Modelo.class, Contador.class, TipoVeiculo.class, TipoVeiculoConverter.class,
+    CatalogoProtobuf.Pagina.class,
+    ContabilidadeSessionListener.class, ContabilidadeStatistics.Factory.class
+})
+public final class ReflexaoNativa {
+
+    private ReflexaoNativa() {}
+}
@@ -0,0 +1,40 @@
+package com.fipe.shared.consulta;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Conta statements e tempo de execução no banco de cada sessão do Hibernate
+ * Registrado em todas as sessões por hibernate.session.events.auto; um lote JDBC conta como um statement
+ */
+public class ContabilidadeSessionListener implements SessionEventListener {
+
+    private long inicio;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        inicio = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        registrar();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        inicio = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        registrar();
+    }
+
+    private void registrar() {
+        ContabilidadeSql.Medicao medicao = ContabilidadeSql.atual();
+        if (medicao != null) {
+            medicao.statements++;
+            medicao.nanosBanco += System.nanoTime() - inicio;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.fipe.shared.consulta;
+
+/**
+ * Contabilidade de SQL da unidade de trabalho atual (requisição HTTP ou mensagem de ingestão)
+ *
+ * A medição fica na thread que atende a unidade: os ganchos do Hibernate (ContabilidadeSessionListener e
+ * ContabilidadeStatistics) somam nela statements, linhas e tempo de banco. Trabalho em outras threads
+ * (executores próprios, JDBC direto) não entra na conta.
+ */
+public final class ContabilidadeSql {
+
+    private static final ThreadLocal<Medicao> ATUAL = new ThreadLocal<>();
+
+    private ContabilidadeSql() {
+    }
+
+    /**
+     * Abre uma medição nesta thread, substituindo a que estiver aberta
+     */
+    public static Medicao iniciar() {
+        Medicao medicao = new Medicao();
+        ATUAL.set(medicao);
+        return medicao;
+    }
+
+    /**
+     * Fecha a medição; a thread só é limpa se ainda for esta a medição aberta nela
+     */
+    public static Medicao encerrar(Medicao medicao) {
+        if (ATUAL.get() == medicao) {
+            ATUAL.remove();
+        }
+        return medicao;
+    }
+
+    static Medicao atual() {
+        return ATUAL.get();
+    }
+
+    /**
+     * Totais de uma unidade de trabalho
+     */
+    public static class Medicao {
+        public int statements;
+        public long linhas;
+        public long nanosBanco;
+
+        public double getTempoBancoMs() {
+            return nanosBanco / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("statements=%d; linhas=%d; tempo-ms=%.1f", statements, linhas, getTempoBancoMs());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.fipe.shared.consulta;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.hibernate.stat.spi.StatisticsImplementor;
+
+/**
+ * Estatísticas do Hibernate que também somam as linhas lidas na medição da thread
+ * Linhas = resultados de consultas + entidades buscadas em select próprio (lazy, find por id)
+ * Só é chamado com quarkus.hibernate-orm.statistics=true
+ */
+public class ContabilidadeStatistics extends StatisticsImpl {
+
+    public ContabilidadeStatistics(SessionFactoryImplementor sessionFactory) {
+        super(sessionFactory);
+    }
+
+    @Override
+    public void queryExecuted(String hql, int rows, long time) {
+        super.queryExecuted(hql, rows, time);
+        somarLinhas(rows);
+    }
+
+    @Override
+    public void fetchEntity(String entityName) {
+        super.fetchEntity(entityName);
+        somarLinhas(1);
+    }
+
+    private static void somarLinhas(long linhas) {
+        ContabilidadeSql.Medicao medicao = ContabilidadeSql.atual();
+        if (medicao != null && linhas > 0) {
+            medicao.linhas += linhas;
+        }
+    }
+
+    /**
+     * Registrada por hibernate.stats.factory
+     */
+    public static class Factory implements StatisticsFactory {
+
+        @Override
+        public StatisticsImplementor buildStatistics(SessionFactoryImplementor sessionFactory) {
+            return new ContabilidadeStatistics(sessionFactory);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.fipe.shared.consulta;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+import org.jboss.resteasy.reactive.server.ServerResponseFilter;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+
+/**
+ * Contabilidade de SQL por endpoint: abre a medição ao entrar no recurso e, na resposta,
+ * publica as métricas, confere o @OrcamentoSql e (em dev) devolve os números no cabeçalho X-SQL
+ */
+public class FiltroContabilidadeSql {
+
+    public static final String CABECALHO = "X-SQL";
+
+    private static final String PROPRIEDADE = ContabilidadeSql.Medicao.class.getName();
+
+    @Inject
+    MetricasSql metricas;
+
+    @ServerRequestFilter
+    public void antes(ContainerRequestContext requisicao) {
+        requisicao.setProperty(PROPRIEDADE, ContabilidadeSql.iniciar());
+    }
+
+    @ServerResponseFilter
+    public void depois(ContainerRequestContext requisicao, ContainerResponseContext resposta, ResourceInfo recurso) {
+        if (!(requisicao.getProperty(PROPRIEDADE) instanceof ContabilidadeSql.Medicao medicao)) {
+            return;
+        }
+        ContabilidadeSql.encerrar(medicao);
+        Method metodo = recurso.getResourceMethod();
+        if (metodo == null) {
+            return;
+        }
+        String operacao = recurso.getResourceClass().getSimpleName() + "." + metodo.getName();
+        metricas.registrar(operacao, medicao);
+        if (metricas.isCabecalho()) {
+            resposta.getHeaders().putSingle(CABECALHO, medicao.toString());
+        }
+        String excesso = metricas.conferirOrcamento(operacao, medicao, metodo.getAnnotation(OrcamentoSql.class));
+        if (excesso != null && metricas.isFalhar()) {
+            resposta.setStatus(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode());
+            resposta.getHeaders().remove(HttpHeaders.CONTENT_ENCODING);
+            resposta.getHeaders().putSingle(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
+            resposta.setEntity(new Excesso("Orçamento de SQL excedido em " + operacao + ": " + excesso));
+        }
+    }
+
+    /**
+     * Corpo do 500 por orçamento excedido, no mesmo formato do ErrorResponse das APIs
+     */
+    @RegisterForReflection
+    public static class Excesso {
+        public String error;
+        public LocalDateTime timestamp;
+
+        public Excesso() {}
+
+        public Excesso(String error) {
+            this.error = error;
+            this.timestamp = LocalDateTime.now();
+        }
+    }
+}
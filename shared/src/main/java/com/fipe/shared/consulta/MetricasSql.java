@@ -0,0 +1,84 @@
+package com.fipe.shared.consulta;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas de SQL por requisição e por mensagem de ingestão (fipe.sql.statements, fipe.sql.linhas, fipe.sql.tempo)
+ * e conferência do orçamento declarado com @OrcamentoSql
+ */
+@ApplicationScoped
+public class MetricasSql {
+
+    private static final Logger LOG = Logger.getLogger(MetricasSql.class);
+
+    @Inject
+    MeterRegistry registry;
+
+    // log: só registra o excesso; falhar: a requisição responde 500 (usado nos testes)
+    @ConfigProperty(name = "fipe.sql.orcamento.modo", defaultValue = "log")
+    String modo;
+
+    @ConfigProperty(name = "fipe.sql.cabecalho.enabled", defaultValue = "false")
+    boolean cabecalho;
+
+    public void registrar(String operacao, ContabilidadeSql.Medicao medicao) {
+        Tags tags = Tags.of("operacao", operacao);
+        DistributionSummary.builder("fipe.sql.statements")
+            .description("Statements SQL por requisição ou mensagem")
+            .tags(tags)
+            .register(registry)
+            .record(medicao.statements);
+        DistributionSummary.builder("fipe.sql.linhas")
+            .description("Linhas lidas do banco por requisição ou mensagem")
+            .tags(tags)
+            .register(registry)
+            .record(medicao.linhas);
+        Timer.builder("fipe.sql.tempo")
+            .description("Tempo no banco por requisição ou mensagem")
+            .tags(tags)
+            .register(registry)
+            .record(medicao.nanosBanco, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Confere a medição contra o orçamento; retorna a descrição do excesso ou null se coube
+     */
+    public String conferirOrcamento(String operacao, ContabilidadeSql.Medicao medicao, OrcamentoSql orcamento) {
+        if (orcamento == null) {
+            return null;
+        }
+        String excesso = null;
+        if (orcamento.statements() >= 0 && medicao.statements > orcamento.statements()) {
+            excesso = String.format("%d statements (orçamento %d)", medicao.statements, orcamento.statements());
+        } else if (orcamento.linhas() >= 0 && medicao.linhas > orcamento.linhas()) {
+            excesso = String.format("%d linhas (orçamento %d)", medicao.linhas, orcamento.linhas());
+        }
+        if (excesso != null) {
+            Counter.builder("fipe.sql.orcamento.excedido")
+                .description("Requisições acima do orçamento de SQL")
+                .tags("operacao", operacao)
+                .register(registry)
+                .increment();
+            LOG.warnf("Orçamento de SQL excedido em %s: %s [%s]", operacao, excesso, medicao);
+        }
+        return excesso;
+    }
+
+    public boolean isFalhar() {
+        return "falhar".equalsIgnoreCase(modo);
+    }
+
+    public boolean isCabecalho() {
+        return cabecalho;
+    }
+}
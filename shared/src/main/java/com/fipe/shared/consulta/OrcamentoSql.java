@@ -0,0 +1,19 @@
+package com.fipe.shared.consulta;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Orçamento de SQL de um endpoint: acima dele a requisição é registrada em log ou falha,
+ * conforme fipe.sql.orcamento.modo. Valores negativos não limitam.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OrcamentoSql {
+
+    int statements() default -1;
+
+    long linhas() default -1;
+}
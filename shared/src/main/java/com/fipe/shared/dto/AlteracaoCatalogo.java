@@ -0,0 +1,70 @@
+package com.fipe.shared.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fipe.shared.entity.TipoVeiculo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evento de alteração do catálogo, publicado pelo api-2 depois do commit (exchange catalogo-alteracoes)
+ * Só códigos: o api-1 invalida exatamente as chaves da marca e dos modelos afetados
+ */
+public class AlteracaoCatalogo {
+
+    @JsonProperty("codigoMarca")
+    public String codigoMarca;
+
+    @JsonProperty("tipoVeiculo")
+    public TipoVeiculo tipoVeiculo;
+
+    // Marca inserida ou alterada na transação (listas e totais do tipo mudam)
+    @JsonProperty("marcaAlterada")
+    public boolean marcaAlterada;
+
+    @JsonProperty("modelosAdicionados")
+    public List<String> modelosAdicionados = new ArrayList<>();
+
+    @JsonProperty("modelosAlterados")
+    public List<String> modelosAlterados = new ArrayList<>();
+
+    @JsonProperty("timestamp")
+    public Long timestamp;
+
+    public AlteracaoCatalogo() {
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public AlteracaoCatalogo(String codigoMarca, TipoVeiculo tipoVeiculo) {
+        this();
+        this.codigoMarca = codigoMarca;
+        this.tipoVeiculo = tipoVeiculo;
+    }
+
+    /**
+     * Modelos adicionados e alterados (chaves de modelo a invalidar)
+     */
+    @JsonIgnore
+    public List<String> getModelos() {
+        List<String> modelos = new ArrayList<>(modelosAdicionados);
+        modelos.addAll(modelosAlterados);
+        return modelos;
+    }
+
+    @JsonIgnore
+    public boolean isVazia() {
+        return !marcaAlterada && modelosAdicionados.isEmpty() && modelosAlterados.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "AlteracaoCatalogo{" +
+                "codigoMarca='" + codigoMarca + '\'' +
+                ", tipoVeiculo='" + tipoVeiculo + '\'' +
+                ", marcaAlterada=" + marcaAlterada +
+                ", modelosAdicionados=" + modelosAdicionados.size() +
+                ", modelosAlterados=" + modelosAlterados.size() +
+                '}';
+    }
+}
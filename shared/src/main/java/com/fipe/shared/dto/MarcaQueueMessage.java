@@ -1,6 +1,7 @@
 package com.fipe.shared.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fipe.shared.entity.TipoVeiculo;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 
@@ -18,8 +19,8 @@ public class MarcaQueueMessage {
     public String nomeMarca;
 
     @JsonProperty("tipoVeiculo")
-    @NotBlank
-    public String tipoVeiculo;
+    @NotNull
+    public TipoVeiculo tipoVeiculo;
 
     @JsonProperty("timestamp")
     public Long timestamp;
@@ -28,7 +29,7 @@ public class MarcaQueueMessage {
         this.timestamp = System.currentTimeMillis();
     }
 
-    public MarcaQueueMessage(String codigoMarca, String nomeMarca, String tipoVeiculo) {
+    public MarcaQueueMessage(String codigoMarca, String nomeMarca, TipoVeiculo tipoVeiculo) {
         this();
         this.codigoMarca = codigoMarca;
         this.nomeMarca = nomeMarca;
@@ -0,0 +1,42 @@
+package com.fipe.shared.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fipe.shared.entity.TipoVeiculo;
+
+/**
+ * Projeção de leitura de uma marca para listagens
+ * Selecionada por construtor (SELECT new) ou tupla; não carrega a coleção de modelos nem timestamps
+ * id é mantido por ser o desempate da paginação por cursor (nome, id)
+ */
+public final class MarcaResumo {
+
+    public final Long id;
+    public final String codigo;
+    public final String nome;
+    public final TipoVeiculo tipoVeiculo;
+
+    @JsonCreator
+    public MarcaResumo(@JsonProperty("id") Long id,
+                       @JsonProperty("codigo") String codigo,
+                       @JsonProperty("nome") String nome,
+                       @JsonProperty("tipoVeiculo") TipoVeiculo tipoVeiculo) {
+        this.id = id;
+        this.codigo = codigo;
+        this.nome = nome;
+        this.tipoVeiculo = tipoVeiculo;
+    }
+
+    public PageCursor cursor() {
+        return PageCursor.of(nome, id);
+    }
+
+    @Override
+    public String toString() {
+        return "MarcaResumo{" +
+                "codigo='" + codigo + '\'' +
+                ", nome='" + nome + '\'' +
+                ", tipoVeiculo=" + tipoVeiculo +
+                '}';
+    }
+}
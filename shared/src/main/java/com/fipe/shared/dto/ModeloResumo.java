@@ -0,0 +1,53 @@
+package com.fipe.shared.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Projeção de leitura de um modelo para listagens, com o nome da marca obtido por join
+ * observacoes só é selecionada pelas listagens que a expõem (omitida do JSON quando ausente)
+ */
+public final class ModeloResumo {
+
+    public final Long id;
+    public final String codigo;
+    public final String nome;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public final String observacoes;
+    public final String codigoMarca;
+    public final String nomeMarca;
+
+    @JsonCreator
+    public ModeloResumo(@JsonProperty("id") Long id,
+                        @JsonProperty("codigo") String codigo,
+                        @JsonProperty("nome") String nome,
+                        @JsonProperty("observacoes") String observacoes,
+                        @JsonProperty("codigoMarca") String codigoMarca,
+                        @JsonProperty("nomeMarca") String nomeMarca) {
+        this.id = id;
+        this.codigo = codigo;
+        this.nome = nome;
+        this.observacoes = observacoes;
+        this.codigoMarca = codigoMarca;
+        this.nomeMarca = nomeMarca;
+    }
+
+    public ModeloResumo(Long id, String codigo, String nome, String codigoMarca, String nomeMarca) {
+        this(id, codigo, nome, null, codigoMarca, nomeMarca);
+    }
+
+    public PageCursor cursor() {
+        return PageCursor.of(nome, id);
+    }
+
+    @Override
+    public String toString() {
+        return "ModeloResumo{" +
+                "codigo='" + codigo + '\'' +
+                ", nome='" + nome + '\'' +
+                ", codigoMarca='" + codigoMarca + '\'' +
+                ", nomeMarca='" + nomeMarca + '\'' +
+                '}';
+    }
+}
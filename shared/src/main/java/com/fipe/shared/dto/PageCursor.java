@@ -0,0 +1,51 @@
+package com.fipe.shared.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursor opaco para paginação por chave (seek) sobre a ordenação (nome, id)
+ * O token é o par (id, nome) codificado em Base64 URL-safe
+ */
+public final class PageCursor {
+
+    private static final char SEPARATOR = ':';
+
+    public final String nome;
+    public final Long id;
+
+    private PageCursor(String nome, Long id) {
+        this.nome = nome;
+        this.id = id;
+    }
+
+    public static PageCursor of(String nome, Long id) {
+        if (nome == null || id == null) {
+            throw new IllegalArgumentException("Cursor requer nome e id");
+        }
+        return new PageCursor(nome, id);
+    }
+
+    /**
+     * Decodifica um token recebido do cliente; lança IllegalArgumentException se inválido
+     */
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(SEPARATOR);
+            return of(raw.substring(sep + 1), Long.parseLong(raw.substring(0, sep)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor de paginação inválido: " + token);
+        }
+    }
+
+    public String encode() {
+        String raw = id + String.valueOf(SEPARATOR) + nome;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -0,0 +1,69 @@
+package com.fipe.shared.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Entidade que representa um total pré-calculado do catálogo
+ * Mantido de forma incremental pelos fluxos de escrita, evita count(*) nas listagens
+ * Chaves com prefixo "versao:" são versões de dados (incrementadas a cada alteração do escopo)
+ */
+@Entity
+@Table(name = "contadores")
+public class Contador {
+
+    public static final String TOTAL_MARCAS = "marcas:todos";
+
+    private static final String TIPO_PREFIX = "marcas:tipo:";
+    private static final String MARCA_PREFIX = "modelos:marca:";
+    public static final String VERSAO_PREFIX = "versao:";
+
+    @Id
+    @Column(name = "chave", length = 60)
+    public String chave;
+
+    @Column(name = "total", nullable = false)
+    public long total;
+
+    @Column(name = "data_atualizacao")
+    public LocalDateTime dataAtualizacao;
+
+    public Contador() {}
+
+    public Contador(String chave, long total) {
+        this.chave = chave;
+        this.total = total;
+        this.dataAtualizacao = LocalDateTime.now();
+    }
+
+    /**
+     * Chave do total de marcas de um tipo (ou de todas, se tipo nulo)
+     */
+    public static String chaveTipo(TipoVeiculo tipoVeiculo) {
+        if (tipoVeiculo == null) {
+            return TOTAL_MARCAS;
+        }
+        return TIPO_PREFIX + tipoVeiculo.getCodigo();
+    }
+
+    /**
+     * Chave do total de modelos de uma marca
+     */
+    public static String chaveMarca(String codigoMarca) {
+        return MARCA_PREFIX + codigoMarca;
+    }
+
+    /**
+     * Chave da versão das listagens de marcas de um tipo (ou de todas, se tipo nulo)
+     */
+    public static String versaoTipo(TipoVeiculo tipoVeiculo) {
+        return VERSAO_PREFIX + chaveTipo(tipoVeiculo);
+    }
+
+    /**
+     * Chave da versão das listagens de modelos de uma marca
+     */
+    public static String versaoMarca(String codigoMarca) {
+        return VERSAO_PREFIX + chaveMarca(codigoMarca);
+    }
+}
@@ -10,7 +10,11 @@ import java.util.List;
  * Entidade que representa uma marca de veículo
  */
 @Entity
-@Table(name = "marcas")
+@Table(name = "marcas", indexes = {
+    @Index(name = "idx_marcas_tipo_veiculo", columnList = "tipo_veiculo_id"),
+    @Index(name = "idx_marcas_tipo_nome_id", columnList = "tipo_veiculo_id, nome, id"),
+    @Index(name = "idx_marcas_nome_id", columnList = "nome, id")
+})
 public class Marca {
 
     @Id
@@ -25,8 +29,9 @@ public class Marca {
     @Column(name = "nome", nullable = false)
     public String nome;
 
-    @Column(name = "tipo_veiculo")
-    public String tipoVeiculo; // carros, motos, caminhoes
+    @Column(name = "tipo_veiculo_id", nullable = false)
+    @Convert(converter = TipoVeiculoConverter.class)
+    public TipoVeiculo tipoVeiculo;
 
     @Column(name = "data_criacao", nullable = false)
     public LocalDateTime dataCriacao;
@@ -41,7 +46,7 @@ public class Marca {
         this.dataCriacao = LocalDateTime.now();
     }
 
-    public Marca(String codigoFipe, String nome, String tipoVeiculo) {
+    public Marca(String codigoFipe, String nome, TipoVeiculo tipoVeiculo) {
         this();
         this.codigoFipe = codigoFipe;
         this.nome = nome;
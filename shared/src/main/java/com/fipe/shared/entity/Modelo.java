@@ -11,7 +11,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "modelos", indexes = {
     @Index(name = "idx_modelo_codigo_fipe", columnList = "codigo_fipe"),
-    @Index(name = "idx_modelo_marca_id", columnList = "marca_id")
+    @Index(name = "idx_modelo_marca_id", columnList = "marca_id"),
+    @Index(name = "idx_modelos_marca_nome_id", columnList = "marca_id, nome, id")
 })
 public class Modelo {
 
@@ -36,6 +37,11 @@ public class Modelo {
     @Column(name = "data_atualizacao")
     public LocalDateTime dataAtualizacao;
 
+    // Concorrência otimista: a edição só vale para a versão que o cliente leu
+    @Version
+    @Column(name = "versao", nullable = false)
+    public Long versao;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "marca_id", nullable = false)
     public Marca marca;
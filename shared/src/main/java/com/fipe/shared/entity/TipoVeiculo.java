@@ -0,0 +1,80 @@
+package com.fipe.shared.entity;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.text.Normalizer;
+
+/**
+ * Tipo de veículo da tabela FIPE
+ * Persistido como SMALLINT (dimensão tipos_veiculo) e trafegado pelo código da API FIPE
+ */
+public enum TipoVeiculo {
+
+    CARROS((short) 1, "carros"),
+    MOTOS((short) 2, "motos"),
+    CAMINHOES((short) 3, "caminhoes");
+
+    private final short id;
+    private final String codigo;
+
+    TipoVeiculo(short id, String codigo) {
+        this.id = id;
+        this.codigo = codigo;
+    }
+
+    public short getId() {
+        return id;
+    }
+
+    /**
+     * Código usado na API FIPE e nas respostas JSON (carros, motos, caminhoes)
+     */
+    @JsonValue
+    public String getCodigo() {
+        return codigo;
+    }
+
+    public static TipoVeiculo fromId(short id) {
+        for (TipoVeiculo tipo : values()) {
+            if (tipo.id == id) {
+                return tipo;
+            }
+        }
+        throw new IllegalArgumentException("Tipo de veículo inválido: " + id);
+    }
+
+    /**
+     * Canonicaliza a entrada externa: ignora caixa, espaços e acentos ("Caminhões" -> CAMINHOES)
+     */
+    @JsonCreator
+    public static TipoVeiculo fromString(String valor) {
+        if (valor == null || valor.trim().isEmpty()) {
+            throw new IllegalArgumentException("Tipo de veículo é obrigatório");
+        }
+        String normalizado = Normalizer.normalize(valor.trim(), Normalizer.Form.NFD)
+            .replaceAll("\\p{M}", "")
+            .toLowerCase();
+        for (TipoVeiculo tipo : values()) {
+            if (tipo.codigo.equals(normalizado)) {
+                return tipo;
+            }
+        }
+        throw new IllegalArgumentException("Tipo de veículo inválido: " + valor);
+    }
+
+    /**
+     * Variante para filtros opcionais: vazio ou nulo significa "todos os tipos"
+     */
+    public static TipoVeiculo fromFiltro(String valor) {
+        if (valor == null || valor.trim().isEmpty()) {
+            return null;
+        }
+        return fromString(valor);
+    }
+
+    @Override
+    public String toString() {
+        return codigo;
+    }
+}
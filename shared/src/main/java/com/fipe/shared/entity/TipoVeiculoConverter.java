@@ -0,0 +1,21 @@
+package com.fipe.shared.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Converte TipoVeiculo para o id SMALLINT da dimensão tipos_veiculo
+ */
+@Converter(autoApply = true)
+public class TipoVeiculoConverter implements AttributeConverter<TipoVeiculo, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(TipoVeiculo tipo) {
+        return tipo == null ? null : tipo.getId();
+    }
+
+    @Override
+    public TipoVeiculo convertToEntityAttribute(Short id) {
+        return id == null ? null : TipoVeiculo.fromId(id);
+    }
+}
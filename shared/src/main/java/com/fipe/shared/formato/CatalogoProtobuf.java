@@ -0,0 +1,375 @@
+package com.fipe.shared.formato;
+
+import com.fipe.shared.dto.MarcaResumo;
+import com.fipe.shared.dto.ModeloResumo;
+import com.fipe.shared.entity.TipoVeiculo;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Codificação protobuf das listagens do catálogo, conforme proto/catalogo.proto (pacote fipe.catalogo.v1)
+ *
+ * Escreve e lê o formato de fio direto das projeções, sem classes geradas nem cópia intermediária:
+ * os tamanhos das mensagens aninhadas são calculados antes e o corpo é escrito em um único byte[] exato.
+ * Como em proto3, campos com valor padrão (0, vazio) não são escritos; observacoes e next_cursor são
+ * optional e vão sempre que não forem null. Campos desconhecidos são ignorados na leitura
+ */
+public final class CatalogoProtobuf {
+
+    // Marca
+    private static final int MARCA_ID = 1;
+    private static final int MARCA_CODIGO = 2;
+    private static final int MARCA_NOME = 3;
+    private static final int MARCA_TIPO = 4;
+
+    // Modelo
+    private static final int MODELO_ID = 1;
+    private static final int MODELO_CODIGO = 2;
+    private static final int MODELO_NOME = 3;
+    private static final int MODELO_OBSERVACOES = 4;
+    private static final int MODELO_CODIGO_MARCA = 5;
+    private static final int MODELO_NOME_MARCA = 6;
+
+    // PaginaMarcas
+    private static final int PAGINA_MARCAS_ITENS = 1;
+    private static final int PAGINA_MARCAS_PAGE = 2;
+    private static final int PAGINA_MARCAS_SIZE = 3;
+    private static final int PAGINA_MARCAS_TOTAL = 4;
+    private static final int PAGINA_MARCAS_TOTAL_PAGES = 5;
+    private static final int PAGINA_MARCAS_NEXT_CURSOR = 6;
+
+    // PaginaModelos
+    private static final int PAGINA_MODELOS_ITENS = 1;
+    private static final int PAGINA_MODELOS_CODIGO_MARCA = 2;
+    private static final int PAGINA_MODELOS_NOME_MARCA = 3;
+    private static final int PAGINA_MODELOS_PAGE = 4;
+    private static final int PAGINA_MODELOS_SIZE = 5;
+    private static final int PAGINA_MODELOS_TOTAL = 6;
+    private static final int PAGINA_MODELOS_TOTAL_PAGES = 7;
+    private static final int PAGINA_MODELOS_NEXT_CURSOR = 8;
+
+    // ListaModelos
+    private static final int LISTA_MODELOS_ITENS = 1;
+
+    private CatalogoProtobuf() {}
+
+    /**
+     * Mensagem PaginaMarcas
+     */
+    public static byte[] paginaMarcas(List<MarcaResumo> marcas, int page, int size, long total,
+                                      int totalPages, String nextCursor) throws IOException {
+        int[] tamanhos = new int[marcas.size()];
+        int tamanho = 0;
+        for (int i = 0; i < tamanhos.length; i++) {
+            tamanhos[i] = tamanhoMarca(marcas.get(i));
+            tamanho += tamanhoAninhada(PAGINA_MARCAS_ITENS, tamanhos[i]);
+        }
+        tamanho += tamanhoInt64(PAGINA_MARCAS_PAGE, page) + tamanhoInt64(PAGINA_MARCAS_SIZE, size)
+            + tamanhoInt64(PAGINA_MARCAS_TOTAL, total) + tamanhoInt64(PAGINA_MARCAS_TOTAL_PAGES, totalPages)
+            + tamanhoOpcional(PAGINA_MARCAS_NEXT_CURSOR, nextCursor);
+
+        byte[] corpo = new byte[tamanho];
+        CodedOutputStream saida = CodedOutputStream.newInstance(corpo);
+        for (int i = 0; i < tamanhos.length; i++) {
+            iniciarAninhada(saida, PAGINA_MARCAS_ITENS, tamanhos[i]);
+            escreverMarca(saida, marcas.get(i));
+        }
+        escreverInt32(saida, PAGINA_MARCAS_PAGE, page);
+        escreverInt32(saida, PAGINA_MARCAS_SIZE, size);
+        escreverInt64(saida, PAGINA_MARCAS_TOTAL, total);
+        escreverInt32(saida, PAGINA_MARCAS_TOTAL_PAGES, totalPages);
+        escreverOpcional(saida, PAGINA_MARCAS_NEXT_CURSOR, nextCursor);
+        saida.checkNoSpaceLeft();
+        return corpo;
+    }
+
+    /**
+     * Mensagem PaginaModelos
+     */
+    public static byte[] paginaModelos(List<ModeloResumo> modelos, String codigoMarca, String nomeMarca,
+                                       int page, int size, long total, int totalPages,
+                                       String nextCursor) throws IOException {
+        int[] tamanhos = new int[modelos.size()];
+        int tamanho = 0;
+        for (int i = 0; i < tamanhos.length; i++) {
+            tamanhos[i] = tamanhoModelo(modelos.get(i));
+            tamanho += tamanhoAninhada(PAGINA_MODELOS_ITENS, tamanhos[i]);
+        }
+        tamanho += tamanhoString(PAGINA_MODELOS_CODIGO_MARCA, codigoMarca)
+            + tamanhoString(PAGINA_MODELOS_NOME_MARCA, nomeMarca)
+            + tamanhoInt64(PAGINA_MODELOS_PAGE, page) + tamanhoInt64(PAGINA_MODELOS_SIZE, size)
+            + tamanhoInt64(PAGINA_MODELOS_TOTAL, total) + tamanhoInt64(PAGINA_MODELOS_TOTAL_PAGES, totalPages)
+            + tamanhoOpcional(PAGINA_MODELOS_NEXT_CURSOR, nextCursor);
+
+        byte[] corpo = new byte[tamanho];
+        CodedOutputStream saida = CodedOutputStream.newInstance(corpo);
+        for (int i = 0; i < tamanhos.length; i++) {
+            iniciarAninhada(saida, PAGINA_MODELOS_ITENS, tamanhos[i]);
+            escreverModelo(saida, modelos.get(i));
+        }
+        escreverString(saida, PAGINA_MODELOS_CODIGO_MARCA, codigoMarca);
+        escreverString(saida, PAGINA_MODELOS_NOME_MARCA, nomeMarca);
+        escreverInt32(saida, PAGINA_MODELOS_PAGE, page);
+        escreverInt32(saida, PAGINA_MODELOS_SIZE, size);
+        escreverInt64(saida, PAGINA_MODELOS_TOTAL, total);
+        escreverInt32(saida, PAGINA_MODELOS_TOTAL_PAGES, totalPages);
+        escreverOpcional(saida, PAGINA_MODELOS_NEXT_CURSOR, nextCursor);
+        saida.checkNoSpaceLeft();
+        return corpo;
+    }
+
+    /**
+     * Mensagem ListaModelos
+     */
+    public static byte[] listaModelos(List<ModeloResumo> modelos) throws IOException {
+        int[] tamanhos = new int[modelos.size()];
+        int tamanho = 0;
+        for (int i = 0; i < tamanhos.length; i++) {
+            tamanhos[i] = tamanhoModelo(modelos.get(i));
+            tamanho += tamanhoAninhada(LISTA_MODELOS_ITENS, tamanhos[i]);
+        }
+        byte[] corpo = new byte[tamanho];
+        CodedOutputStream saida = CodedOutputStream.newInstance(corpo);
+        for (int i = 0; i < tamanhos.length; i++) {
+            iniciarAninhada(saida, LISTA_MODELOS_ITENS, tamanhos[i]);
+            escreverModelo(saida, modelos.get(i));
+        }
+        saida.checkNoSpaceLeft();
+        return corpo;
+    }
+
+    /**
+     * Lê uma mensagem PaginaMarcas
+     */
+    public static Pagina<MarcaResumo> lerPaginaMarcas(byte[] corpo) throws IOException {
+        CodedInputStream entrada = CodedInputStream.newInstance(corpo);
+        Pagina<MarcaResumo> pagina = new Pagina<>();
+        for (int tag = entrada.readTag(); tag != 0; tag = entrada.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case PAGINA_MARCAS_ITENS:
+                    int limite = entrada.pushLimit(entrada.readRawVarint32());
+                    pagina.itens.add(lerMarca(entrada));
+                    entrada.popLimit(limite);
+                    break;
+                case PAGINA_MARCAS_PAGE:
+                    pagina.page = entrada.readInt32();
+                    break;
+                case PAGINA_MARCAS_SIZE:
+                    pagina.size = entrada.readInt32();
+                    break;
+                case PAGINA_MARCAS_TOTAL:
+                    pagina.total = entrada.readInt64();
+                    break;
+                case PAGINA_MARCAS_TOTAL_PAGES:
+                    pagina.totalPages = entrada.readInt32();
+                    break;
+                case PAGINA_MARCAS_NEXT_CURSOR:
+                    pagina.nextCursor = entrada.readStringRequireUtf8();
+                    break;
+                default:
+                    entrada.skipField(tag);
+            }
+        }
+        return pagina;
+    }
+
+    /**
+     * Lê uma mensagem PaginaModelos
+     */
+    public static Pagina<ModeloResumo> lerPaginaModelos(byte[] corpo) throws IOException {
+        CodedInputStream entrada = CodedInputStream.newInstance(corpo);
+        Pagina<ModeloResumo> pagina = new Pagina<>();
+        for (int tag = entrada.readTag(); tag != 0; tag = entrada.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case PAGINA_MODELOS_ITENS:
+                    int limite = entrada.pushLimit(entrada.readRawVarint32());
+                    pagina.itens.add(lerModelo(entrada));
+                    entrada.popLimit(limite);
+                    break;
+                case PAGINA_MODELOS_CODIGO_MARCA:
+                    pagina.codigoMarca = entrada.readStringRequireUtf8();
+                    break;
+                case PAGINA_MODELOS_NOME_MARCA:
+                    pagina.nomeMarca = entrada.readStringRequireUtf8();
+                    break;
+                case PAGINA_MODELOS_PAGE:
+                    pagina.page = entrada.readInt32();
+                    break;
+                case PAGINA_MODELOS_SIZE:
+                    pagina.size = entrada.readInt32();
+                    break;
+                case PAGINA_MODELOS_TOTAL:
+                    pagina.total = entrada.readInt64();
+                    break;
+                case PAGINA_MODELOS_TOTAL_PAGES:
+                    pagina.totalPages = entrada.readInt32();
+                    break;
+                case PAGINA_MODELOS_NEXT_CURSOR:
+                    pagina.nextCursor = entrada.readStringRequireUtf8();
+                    break;
+                default:
+                    entrada.skipField(tag);
+            }
+        }
+        return pagina;
+    }
+
+    private static int tamanhoMarca(MarcaResumo marca) {
+        return tamanhoInt64(MARCA_ID, marca.id == null ? 0 : marca.id)
+            + tamanhoString(MARCA_CODIGO, marca.codigo)
+            + tamanhoString(MARCA_NOME, marca.nome)
+            + (marca.tipoVeiculo == null ? 0 : CodedOutputStream.computeEnumSize(MARCA_TIPO, marca.tipoVeiculo.getId()));
+    }
+
+    private static void escreverMarca(CodedOutputStream saida, MarcaResumo marca) throws IOException {
+        escreverInt64(saida, MARCA_ID, marca.id == null ? 0 : marca.id);
+        escreverString(saida, MARCA_CODIGO, marca.codigo);
+        escreverString(saida, MARCA_NOME, marca.nome);
+        if (marca.tipoVeiculo != null) {
+            saida.writeEnum(MARCA_TIPO, marca.tipoVeiculo.getId());
+        }
+    }
+
+    private static MarcaResumo lerMarca(CodedInputStream entrada) throws IOException {
+        long id = 0;
+        String codigo = "";
+        String nome = "";
+        TipoVeiculo tipo = null;
+        for (int tag = entrada.readTag(); tag != 0; tag = entrada.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case MARCA_ID:
+                    id = entrada.readInt64();
+                    break;
+                case MARCA_CODIGO:
+                    codigo = entrada.readStringRequireUtf8();
+                    break;
+                case MARCA_NOME:
+                    nome = entrada.readStringRequireUtf8();
+                    break;
+                case MARCA_TIPO:
+                    int valor = entrada.readEnum();
+                    tipo = valor == 0 ? null : TipoVeiculo.fromId((short) valor);
+                    break;
+                default:
+                    entrada.skipField(tag);
+            }
+        }
+        return new MarcaResumo(id, codigo, nome, tipo);
+    }
+
+    private static int tamanhoModelo(ModeloResumo modelo) {
+        return tamanhoInt64(MODELO_ID, modelo.id == null ? 0 : modelo.id)
+            + tamanhoString(MODELO_CODIGO, modelo.codigo)
+            + tamanhoString(MODELO_NOME, modelo.nome)
+            + tamanhoOpcional(MODELO_OBSERVACOES, modelo.observacoes)
+            + tamanhoString(MODELO_CODIGO_MARCA, modelo.codigoMarca)
+            + tamanhoString(MODELO_NOME_MARCA, modelo.nomeMarca);
+    }
+
+    private static void escreverModelo(CodedOutputStream saida, ModeloResumo modelo) throws IOException {
+        escreverInt64(saida, MODELO_ID, modelo.id == null ? 0 : modelo.id);
+        escreverString(saida, MODELO_CODIGO, modelo.codigo);
+        escreverString(saida, MODELO_NOME, modelo.nome);
+        escreverOpcional(saida, MODELO_OBSERVACOES, modelo.observacoes);
+        escreverString(saida, MODELO_CODIGO_MARCA, modelo.codigoMarca);
+        escreverString(saida, MODELO_NOME_MARCA, modelo.nomeMarca);
+    }
+
+    private static ModeloResumo lerModelo(CodedInputStream entrada) throws IOException {
+        long id = 0;
+        String codigo = "";
+        String nome = "";
+        String observacoes = null;
+        String codigoMarca = "";
+        String nomeMarca = "";
+        for (int tag = entrada.readTag(); tag != 0; tag = entrada.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case MODELO_ID:
+                    id = entrada.readInt64();
+                    break;
+                case MODELO_CODIGO:
+                    codigo = entrada.readStringRequireUtf8();
+                    break;
+                case MODELO_NOME:
+                    nome = entrada.readStringRequireUtf8();
+                    break;
+                case MODELO_OBSERVACOES:
+                    observacoes = entrada.readStringRequireUtf8();
+                    break;
+                case MODELO_CODIGO_MARCA:
+                    codigoMarca = entrada.readStringRequireUtf8();
+                    break;
+                case MODELO_NOME_MARCA:
+                    nomeMarca = entrada.readStringRequireUtf8();
+                    break;
+                default:
+                    entrada.skipField(tag);
+            }
+        }
+        return new ModeloResumo(id, codigo, nome, observacoes, codigoMarca, nomeMarca);
+    }
+
+    private static int tamanhoAninhada(int campo, int tamanho) {
+        return CodedOutputStream.computeTagSize(campo) + CodedOutputStream.computeUInt32SizeNoTag(tamanho) + tamanho;
+    }
+
+    private static void iniciarAninhada(CodedOutputStream saida, int campo, int tamanho) throws IOException {
+        saida.writeTag(campo, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        saida.writeUInt32NoTag(tamanho);
+    }
+
+    private static int tamanhoInt64(int campo, long valor) {
+        return valor == 0 ? 0 : CodedOutputStream.computeInt64Size(campo, valor);
+    }
+
+    private static void escreverInt64(CodedOutputStream saida, int campo, long valor) throws IOException {
+        if (valor != 0) {
+            saida.writeInt64(campo, valor);
+        }
+    }
+
+    private static void escreverInt32(CodedOutputStream saida, int campo, int valor) throws IOException {
+        if (valor != 0) {
+            saida.writeInt32(campo, valor);
+        }
+    }
+
+    private static int tamanhoString(int campo, String valor) {
+        return valor == null || valor.isEmpty() ? 0 : CodedOutputStream.computeStringSize(campo, valor);
+    }
+
+    private static void escreverString(CodedOutputStream saida, int campo, String valor) throws IOException {
+        if (valor != null && !valor.isEmpty()) {
+            saida.writeString(campo, valor);
+        }
+    }
+
+    private static int tamanhoOpcional(int campo, String valor) {
+        return valor == null ? 0 : CodedOutputStream.computeStringSize(campo, valor);
+    }
+
+    private static void escreverOpcional(CodedOutputStream saida, int campo, String valor) throws IOException {
+        if (valor != null) {
+            saida.writeString(campo, valor);
+        }
+    }
+
+    /**
+     * Página lida de PaginaMarcas ou PaginaModelos (codigoMarca e nomeMarca só em PaginaModelos)
+     */
+    public static final class Pagina<T> {
+        public final List<T> itens = new ArrayList<>();
+        public String codigoMarca;
+        public String nomeMarca;
+        public int page;
+        public int size;
+        public long total;
+        public int totalPages;
+        public String nextCursor;
+    }
+}
@@ -0,0 +1,46 @@
+package com.fipe.shared.formato;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+
+/**
+ * Serialização das respostas do catálogo em JSON, CBOR e Smile com a mesma configuração Jackson
+ * Os mapeadores binários são cópias do ObjectMapper da aplicação (módulos, mixins e inclusões iguais),
+ * de modo que os três formatos têm os mesmos campos; protobuf fica em CatalogoProtobuf
+ */
+public final class CodificadorCatalogo {
+
+    private final ObjectMapper json;
+    private final ObjectMapper cbor;
+    private final ObjectMapper smile;
+
+    public CodificadorCatalogo(ObjectMapper base) {
+        this.json = base;
+        this.cbor = base.copyWith(new CBORFactory());
+        this.smile = base.copyWith(new SmileFactory());
+    }
+
+    public byte[] codificar(FormatoResposta formato, Object valor) throws IOException {
+        return mapeador(formato).writeValueAsBytes(valor);
+    }
+
+    public <T> T decodificar(FormatoResposta formato, byte[] corpo, Class<T> tipo) throws IOException {
+        return mapeador(formato).readValue(corpo, tipo);
+    }
+
+    private ObjectMapper mapeador(FormatoResposta formato) {
+        switch (formato) {
+            case JSON:
+                return json;
+            case CBOR:
+                return cbor;
+            case SMILE:
+                return smile;
+            default:
+                throw new IllegalArgumentException("Formato sem mapeamento Jackson: " + formato);
+        }
+    }
+}
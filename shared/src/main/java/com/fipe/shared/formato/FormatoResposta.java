@@ -0,0 +1,57 @@
+package com.fipe.shared.formato;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Formatos de resposta das listagens do catálogo, escolhidos pelo cabeçalho Accept
+ * JSON continua sendo o padrão; os binários evitam o custo de texto para consumidores de alto volume
+ */
+public enum FormatoResposta {
+
+    JSON("application/json", "json"),
+    CBOR("application/cbor", "cbor"),
+    SMILE("application/x-jackson-smile", "smile"),
+    PROTOBUF("application/x-protobuf", "protobuf");
+
+    private final String mediaType;
+    private final String codigo;
+
+    FormatoResposta(String mediaType, String codigo) {
+        this.mediaType = mediaType;
+        this.codigo = codigo;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Código curto usado em chaves de cache e ETags
+     */
+    public String getCodigo() {
+        return codigo;
+    }
+
+    /**
+     * Primeiro formato suportado na ordem de preferência do cliente (tipo/subtipo, já ordenados por q)
+     * Curingas e Accept ausente resultam em JSON; retorna null se nenhum tipo aceito for suportado
+     */
+    public static FormatoResposta negociar(List<String> aceitos) {
+        if (aceitos == null || aceitos.isEmpty()) {
+            return JSON;
+        }
+        for (String aceito : aceitos) {
+            String tipo = aceito.toLowerCase(Locale.ROOT);
+            if (tipo.equals("*/*") || tipo.equals("application/*")) {
+                return JSON;
+            }
+            for (FormatoResposta formato : values()) {
+                if (formato.mediaType.equals(tipo)) {
+                    return formato;
+                }
+            }
+        }
+        return null;
+    }
+}
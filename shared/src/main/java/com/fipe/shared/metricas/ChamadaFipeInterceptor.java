@@ -0,0 +1,48 @@
+package com.fipe.shared.metricas;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede cada tentativa de chamada à API FIPE
+ * Fica por dentro do @Retry/@Timeout (prioridade maior que a do fault tolerance): cada tentativa
+ * é uma amostra, com o status HTTP devolvido ou "sem-resposta" quando a chamada não chegou a ter resposta
+ */
+@ChamadaFipe
+@Interceptor
+@Priority(Interceptor.Priority.PLATFORM_AFTER + 100)
+public class ChamadaFipeInterceptor {
+
+    @Inject
+    MeterRegistry registry;
+
+    @AroundInvoke
+    Object medir(InvocationContext ctx) throws Exception {
+        long inicio = System.nanoTime();
+        String status = "sem-resposta";
+        try {
+            Object resultado = ctx.proceed();
+            status = resultado instanceof Response resposta ? Integer.toString(resposta.getStatus()) : "200";
+            return resultado;
+        } catch (WebApplicationException e) {
+            status = Integer.toString(e.getResponse().getStatus());
+            throw e;
+        } finally {
+            Timer.builder("fipe.api.chamadas")
+                .description("Chamadas à API FIPE por operação e status")
+                .tags("operacao", ctx.getMethod().getName(), "status", status)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.fipe.shared.rastreamento;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exportador de spans sem coletor: guarda os últimos spans em memória e, se houver arquivo,
+ * grava cada um como uma linha JSON. Permite ver a decomposição de latência em dev e nos testes
+ */
+public class ExportadorSpansLocal implements SpanExporter {
+
+    private static final AttributeKey<String> SERVICO = AttributeKey.stringKey("service.name");
+
+    private final int capacidade;
+    private final Path arquivo;
+    private final Deque<SpanData> spans = new ArrayDeque<>();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * @param arquivo JSON lines acrescentado a cada exportação; null mantém só a memória
+     */
+    public ExportadorSpansLocal(int capacidade, Path arquivo) {
+        this.capacidade = capacidade;
+        this.arquivo = arquivo;
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> lote) {
+        for (SpanData span : lote) {
+            spans.addLast(span);
+            if (spans.size() > capacidade) {
+                spans.removeFirst();
+            }
+        }
+        if (arquivo == null) {
+            return CompletableResultCode.ofSuccess();
+        }
+        try (BufferedWriter saida = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (SpanData span : lote) {
+                saida.write(mapper.writeValueAsString(linha(span)));
+                saida.newLine();
+            }
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    public synchronized List<SpanData> getSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    /**
+     * Spans de um trace em ordem de início
+     */
+    public synchronized List<SpanData> getSpans(String traceId) {
+        List<SpanData> doTrace = new ArrayList<>();
+        for (SpanData span : spans) {
+            if (span.getTraceId().equals(traceId)) {
+                doTrace.add(span);
+            }
+        }
+        doTrace.sort(Comparator.comparingLong(SpanData::getStartEpochNanos));
+        return doTrace;
+    }
+
+    public synchronized void limpar() {
+        spans.clear();
+    }
+
+    private static Map<String, Object> linha(SpanData span) {
+        Map<String, Object> linha = new LinkedHashMap<>();
+        linha.put("servico", span.getResource().getAttribute(SERVICO));
+        linha.put("traceId", span.getTraceId());
+        linha.put("spanId", span.getSpanId());
+        linha.put("parentSpanId", span.getParentSpanContext().isValid() ? span.getParentSpanId() : null);
+        linha.put("nome", span.getName());
+        linha.put("tipo", span.getKind().name());
+        linha.put("inicio", Instant.ofEpochSecond(0, span.getStartEpochNanos()).toString());
+        linha.put("duracaoMs", (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1_000_000.0);
+        linha.put("status", span.getStatus().getStatusCode().name());
+        Map<String, Object> atributos = new LinkedHashMap<>();
+        span.getAttributes().forEach((chave, valor) -> atributos.put(chave.getKey(), valor));
+        linha.put("atributos", atributos);
+        return linha;
+    }
+}
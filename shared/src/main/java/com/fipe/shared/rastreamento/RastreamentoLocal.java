@@ -0,0 +1,27 @@
+package com.fipe.shared.rastreamento;
+
+import io.quarkus.arc.Unremovable;
+import io.quarkus.arc.properties.IfBuildProperty;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Exportador local de spans (fipe.tracing.local.enabled, decidido no build), somado ao OTLP
+ * O OpenTelemetry do Quarkus exporta para todo SpanExporter registrado como bean
+ */
+public class RastreamentoLocal {
+
+    @Produces
+    @Singleton
+    @Unremovable
+    @IfBuildProperty(name = "fipe.tracing.local.enabled", stringValue = "true")
+    ExportadorSpansLocal exportadorSpansLocal(
+            @ConfigProperty(name = "fipe.tracing.local.capacidade", defaultValue = "2000") int capacidade,
+            @ConfigProperty(name = "fipe.tracing.local.arquivo") Optional<String> arquivo) {
+        return new ExportadorSpansLocal(capacidade, arquivo.map(Path::of).orElse(null));
+    }
+}
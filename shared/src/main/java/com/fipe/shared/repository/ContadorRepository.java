@@ -0,0 +1,121 @@
+package com.fipe.shared.repository;
+
+import com.fipe.shared.entity.Contador;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Totais e versões de dados do catálogo (tabela contadores), usado pelas duas APIs
+ */
+@ApplicationScoped
+public class ContadorRepository {
+
+    // Soma atômica no PostgreSQL: a chave é criada ou somada em um único statement, sem corrida entre transações
+    private static final String UPSERT_POSTGRESQL = "INSERT INTO contadores (chave, total, data_atualizacao) "
+        + "VALUES (:chave, :delta, :agora) ON CONFLICT (chave) DO UPDATE "
+        + "SET total = contadores.total + EXCLUDED.total, data_atualizacao = EXCLUDED.data_atualizacao";
+
+    private static final String CRIAR_H2 = "INSERT INTO contadores (chave, total, data_atualizacao) "
+        + "SELECT ?, 0, ? WHERE NOT EXISTS (SELECT 1 FROM contadores WHERE chave = ?)";
+
+    @Inject
+    EntityManager entityManager;
+
+    @ConfigProperty(name = "quarkus.datasource.db-kind")
+    String dbKind;
+
+    /**
+     * Soma delta ao total da chave (criando-a se preciso), na transação corrente
+     * No H2 o MERGE não é atômico entre transações (duas inserem a mesma chave nova e uma falha): a chave é
+     * criada com total zero em uma transação própria e a soma é um UPDATE, que espera o bloqueio da linha
+     */
+    @Transactional
+    public void incrementar(String chave, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        if ("postgresql".equals(dbKind)) {
+            entityManager.createNativeQuery(UPSERT_POSTGRESQL)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Contador.class)
+                .setParameter("chave", chave)
+                .setParameter("delta", delta)
+                .setParameter("agora", LocalDateTime.now())
+                .executeUpdate();
+            return;
+        }
+        if (somar(chave, delta) == 0) {
+            criar(chave);
+            somar(chave, delta);
+        }
+    }
+
+    private int somar(String chave, long delta) {
+        return entityManager.createQuery(
+                "UPDATE Contador c SET c.total = c.total + ?1, c.dataAtualizacao = ?2 WHERE c.chave = ?3")
+            .setParameter(1, delta)
+            .setParameter(2, LocalDateTime.now())
+            .setParameter(3, chave)
+            .executeUpdate();
+    }
+
+    /**
+     * Cria a chave com total zero e confirma na hora; em JDBC direto para a chave duplicada não virar erro de sessão
+     */
+    private void criar(String chave) {
+        QuarkusTransaction.requiringNew().run(() -> entityManager.unwrap(Session.class).doWork(conexao -> {
+            try (PreparedStatement insert = conexao.prepareStatement(CRIAR_H2)) {
+                insert.setString(1, chave);
+                insert.setObject(2, LocalDateTime.now());
+                insert.setString(3, chave);
+                insert.executeUpdate();
+            } catch (SQLException e) {
+                // Outra transação criou a mesma chave ao mesmo tempo: a soma segue na linha dela
+            }
+        }));
+    }
+
+    public Optional<Long> findTotal(String chave) {
+        return entityManager.createQuery("SELECT c.total FROM Contador c WHERE c.chave = ?1", Long.class)
+            .setParameter(1, chave)
+            .getResultStream()
+            .findFirst();
+    }
+
+    /**
+     * Todas as versões de dados (chave -> versão)
+     */
+    public Map<String, Long> findVersoes() {
+        // Projeção em tupla: campos de entidade lidos fora dos módulos das APIs não passam pelos acessores
+        Map<String, Long> versoes = new HashMap<>();
+        for (Object[] linha : entityManager.createQuery(
+                "SELECT c.chave, c.total FROM Contador c WHERE c.chave LIKE ?1", Object[].class)
+                .setParameter(1, Contador.VERSAO_PREFIX + "%")
+                .getResultList()) {
+            versoes.put((String) linha[0], (Long) linha[1]);
+        }
+        return versoes;
+    }
+
+    /**
+     * Soma das versões de dados: como só crescem, muda sempre que qualquer escopo é alterado
+     */
+    public long somaVersoes() {
+        return entityManager.createQuery(
+                "SELECT COALESCE(SUM(c.total), 0) FROM Contador c WHERE c.chave LIKE ?1", Long.class)
+            .setParameter(1, Contador.VERSAO_PREFIX + "%")
+            .getSingleResult();
+    }
+}
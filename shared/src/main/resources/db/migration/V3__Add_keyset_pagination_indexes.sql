@@ -0,0 +1,10 @@
+-- Índices compostos para paginação por chave (seek) sobre (nome, id)
+
+-- Listagem de marcas filtrada por tipo: WHERE tipo_veiculo = ? AND (nome, id) > (?, ?) ORDER BY nome, id
+CREATE INDEX idx_marcas_tipo_nome_id ON marcas(tipo_veiculo, nome, id);
+
+-- Listagem de marcas sem filtro: WHERE (nome, id) > (?, ?) ORDER BY nome, id
+CREATE INDEX idx_marcas_nome_id ON marcas(nome, id);
+
+-- Listagem de modelos por marca: WHERE marca_id = ? AND (nome, id) > (?, ?) ORDER BY nome, id
+CREATE INDEX idx_modelos_marca_nome_id ON modelos(marca_id, nome, id);
@@ -0,0 +1,34 @@
+-- Criação da tabela de totais pré-calculados do catálogo
+CREATE TABLE contadores (
+    chave VARCHAR(60) PRIMARY KEY,
+    total BIGINT NOT NULL DEFAULT 0,
+    data_atualizacao TIMESTAMP
+);
+
+-- Carga inicial a partir dos dados existentes
+INSERT INTO contadores (chave, total, data_atualizacao)
+SELECT 'marcas:todos', COUNT(*), CURRENT_TIMESTAMP FROM marcas;
+
+INSERT INTO contadores (chave, total, data_atualizacao)
+SELECT 'marcas:tipo:' || LOWER(tipo_veiculo), COUNT(*), CURRENT_TIMESTAMP
+FROM marcas
+WHERE tipo_veiculo IS NOT NULL
+GROUP BY LOWER(tipo_veiculo);
+
+INSERT INTO contadores (chave, total, data_atualizacao)
+SELECT 'modelos:marca:' || ma.codigo_fipe, COUNT(*), CURRENT_TIMESTAMP
+FROM modelos mo
+JOIN marcas ma ON ma.id = mo.marca_id
+GROUP BY ma.codigo_fipe;
+
+-- Linhas dos tipos conhecidos sempre existem, a ingestão só precisa de UPDATE
+INSERT INTO contadores (chave, total, data_atualizacao)
+SELECT t.chave, 0, CURRENT_TIMESTAMP
+FROM (VALUES ('marcas:tipo:carros'), ('marcas:tipo:motos'), ('marcas:tipo:caminhoes')) AS t(chave)
+WHERE NOT EXISTS (SELECT 1 FROM contadores c WHERE c.chave = t.chave);
+
+-- Comentários para documentação
+COMMENT ON TABLE contadores IS 'Totais do catálogo mantidos incrementalmente pela ingestão';
+COMMENT ON COLUMN contadores.chave IS 'Escopo do total: marcas:todos, marcas:tipo:<tipo> ou modelos:marca:<codigo>';
+COMMENT ON COLUMN contadores.total IS 'Quantidade de registros no escopo';
+COMMENT ON COLUMN contadores.data_atualizacao IS 'Data da última atualização do total';
@@ -0,0 +1,46 @@
+-- Dimensão de tipos de veículo (ids espelham o enum TipoVeiculo)
+CREATE TABLE tipos_veiculo (
+    id SMALLINT PRIMARY KEY,
+    codigo VARCHAR(20) NOT NULL UNIQUE,
+    descricao VARCHAR(50) NOT NULL
+);
+
+INSERT INTO tipos_veiculo (id, codigo, descricao) VALUES
+(1, 'carros', 'Carros'),
+(2, 'motos', 'Motos'),
+(3, 'caminhoes', 'Caminhões');
+
+-- Substitui o texto livre por referência SMALLINT
+ALTER TABLE marcas ADD COLUMN tipo_veiculo_id SMALLINT;
+
+UPDATE marcas m
+SET tipo_veiculo_id = t.id
+FROM tipos_veiculo t
+WHERE t.codigo = TRANSLATE(LOWER(TRIM(m.tipo_veiculo)), 'õ', 'o');
+
+-- Tipo que não casou com a dimensão fica nulo: NOT NULL faz a migração falhar em vez de perder a marca dos filtros
+ALTER TABLE marcas ALTER COLUMN tipo_veiculo_id SET NOT NULL;
+
+ALTER TABLE marcas
+    ADD CONSTRAINT fk_marcas_tipo_veiculo FOREIGN KEY (tipo_veiculo_id) REFERENCES tipos_veiculo(id);
+
+-- Totais por tipo refeitos sobre o tipo normalizado (V4 agrupou por LOWER do texto antigo, ex.: 'caminhões')
+DELETE FROM contadores WHERE chave LIKE 'marcas:tipo:%';
+
+INSERT INTO contadores (chave, total, data_atualizacao)
+SELECT 'marcas:tipo:' || t.codigo, COUNT(m.id), CURRENT_TIMESTAMP
+FROM tipos_veiculo t
+LEFT JOIN marcas m ON m.tipo_veiculo_id = t.id
+GROUP BY t.codigo;
+
+-- Remove a coluna antiga (e idx_marcas_tipo_veiculo / idx_marcas_tipo_nome_id junto)
+ALTER TABLE marcas DROP COLUMN tipo_veiculo;
+
+-- Índices recriados sobre a nova coluna: filtros por tipo viram range scan por igualdade
+CREATE INDEX idx_marcas_tipo_veiculo ON marcas(tipo_veiculo_id);
+CREATE INDEX idx_marcas_tipo_nome_id ON marcas(tipo_veiculo_id, nome, id);
+
+-- Comentários para documentação
+COMMENT ON TABLE tipos_veiculo IS 'Dimensão dos tipos de veículo da API FIPE';
+COMMENT ON COLUMN tipos_veiculo.codigo IS 'Código do tipo na API FIPE: carros, motos, caminhoes';
+COMMENT ON COLUMN marcas.tipo_veiculo_id IS 'Referência para o tipo do veículo';
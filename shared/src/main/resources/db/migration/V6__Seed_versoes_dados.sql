@@ -0,0 +1,18 @@
+-- Versões de dados para GET condicional (ETag) nas listagens do catálogo
+-- Reaproveita a tabela de contadores: a versão é incrementada a cada alteração do escopo
+
+INSERT INTO contadores (chave, total, data_atualizacao)
+SELECT t.chave, 1, CURRENT_TIMESTAMP
+FROM (VALUES ('versao:marcas:todos'),
+             ('versao:marcas:tipo:carros'),
+             ('versao:marcas:tipo:motos'),
+             ('versao:marcas:tipo:caminhoes')) AS t(chave)
+WHERE NOT EXISTS (SELECT 1 FROM contadores c WHERE c.chave = t.chave);
+
+-- Uma linha por marca existente, a ingestão só precisa de UPDATE
+INSERT INTO contadores (chave, total, data_atualizacao)
+SELECT 'versao:modelos:marca:' || ma.codigo_fipe, 1, CURRENT_TIMESTAMP
+FROM marcas ma
+WHERE NOT EXISTS (SELECT 1 FROM contadores c WHERE c.chave = 'versao:modelos:marca:' || ma.codigo_fipe);
+
+COMMENT ON COLUMN contadores.chave IS 'Escopo do total: marcas:todos, marcas:tipo:<tipo>, modelos:marca:<codigo> ou versao:<escopo>';
@@ -0,0 +1,4 @@
+-- Versão do modelo para concorrência otimista na edição (UPDATE ... WHERE codigo_fipe = ? AND versao = ?)
+ALTER TABLE modelos ADD COLUMN versao BIGINT NOT NULL DEFAULT 0;
+
+COMMENT ON COLUMN modelos.versao IS 'Versão do registro, incrementada a cada edição (concorrência otimista)';
@@ -0,0 +1,125 @@
+package com.fipe.shared.formato;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fipe.shared.dto.ModeloResumo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Comparação dos formatos de resposta: tamanho do corpo e custo de codificar/decodificar uma página de modelos
+ *
+ * Fica nas fontes de teste para não ir no jar do shared. Uso (após mvn -pl shared test-compile):
+ *   java -cp shared/target/test-classes:shared/target/classes:$(mvn -q -pl shared dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *       com.fipe.shared.formato.FormatosBenchmark [tamanhos da página...]
+ *
+ * Medição simples (aquecimento + janela fixa por formato), suficiente para comparar ordens de grandeza
+ */
+public final class FormatosBenchmark {
+
+    private static final long AQUECIMENTO_NANOS = 2_000_000_000L;
+    private static final long MEDICAO_NANOS = 2_000_000_000L;
+
+    private static final String[] NOMES = {
+        "Gol 1.0 Mi Total Flex 8V 4p", "Onix HATCH LT 1.0 12V TB Flex 5p Aut.", "HB20 Comfort 1.0 Flex 12V Mec.",
+        "Corolla XEi 2.0 Flex 16V Aut.", "Strada Freedom 1.3 Flex 8V CD", "Civic Sedan EXL 2.0 Flex 16V Aut. 4p"
+    };
+
+    private static volatile Object sumidouro;
+
+    private FormatosBenchmark() {}
+
+    public static void main(String[] args) throws IOException {
+        int[] tamanhos = args.length == 0 ? new int[] {50, 500, 5000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            tamanhos[i] = Integer.parseInt(args[i]);
+        }
+        CodificadorCatalogo codificador = new CodificadorCatalogo(new ObjectMapper());
+
+        for (int tamanho : tamanhos) {
+            PaginaModelos pagina = gerar(tamanho);
+            System.out.printf(Locale.ROOT, "%nPágina com %d modelos%n", tamanho);
+            System.out.printf(Locale.ROOT, "%-9s %10s %10s %14s %14s%n", "formato", "bytes", "gzip", "codificar µs", "decodificar µs");
+            for (FormatoResposta formato : FormatoResposta.values()) {
+                Operacao codificar = formato == FormatoResposta.PROTOBUF
+                    ? () -> CatalogoProtobuf.paginaModelos(pagina.modelos, pagina.codigoMarca, pagina.nomeMarca,
+                        pagina.page, pagina.size, pagina.total, pagina.totalPages, pagina.nextCursor)
+                    : () -> codificador.codificar(formato, pagina);
+                byte[] corpo = (byte[]) codificar.executar();
+                Operacao decodificar = formato == FormatoResposta.PROTOBUF
+                    ? () -> CatalogoProtobuf.lerPaginaModelos(corpo)
+                    : () -> codificador.decodificar(formato, corpo, PaginaModelos.class);
+                System.out.printf(Locale.ROOT, "%-9s %10d %10d %14.1f %14.1f%n", formato.getCodigo(),
+                    corpo.length, gzip(corpo).length, medir(codificar) / 1000, medir(decodificar) / 1000);
+            }
+        }
+    }
+
+    /**
+     * Tempo médio por operação (ns) após o aquecimento
+     */
+    private static double medir(Operacao operacao) throws IOException {
+        long fim = System.nanoTime() + AQUECIMENTO_NANOS;
+        while (System.nanoTime() < fim) {
+            sumidouro = operacao.executar();
+        }
+        long operacoes = 0;
+        long inicio = System.nanoTime();
+        fim = inicio + MEDICAO_NANOS;
+        long agora;
+        do {
+            sumidouro = operacao.executar();
+            operacoes++;
+            agora = System.nanoTime();
+        } while (agora < fim);
+        return (double) (agora - inicio) / operacoes;
+    }
+
+    private static PaginaModelos gerar(int tamanho) {
+        PaginaModelos pagina = new PaginaModelos();
+        pagina.modelos = new ArrayList<>(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            pagina.modelos.add(new ModeloResumo(100_000L + i, String.valueOf(5_000 + i),
+                NOMES[i % NOMES.length] + " " + (2000 + i % 25), i % 4 == 0 ? "Revisado em " + (i % 12 + 1) + "/2024" : null,
+                "59", "VW - VolksWagen"));
+        }
+        pagina.codigoMarca = "59";
+        pagina.nomeMarca = "VW - VolksWagen";
+        pagina.size = tamanho;
+        pagina.total = tamanho * 10L;
+        pagina.totalPages = 10;
+        pagina.nextCursor = "R29sIDEuMHwxMDAwNDk";
+        return pagina;
+    }
+
+    private static byte[] gzip(byte[] corpo) throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(saida)) {
+            gzip.write(corpo);
+        }
+        return saida.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface Operacao {
+        Object executar() throws IOException;
+    }
+
+    /**
+     * Mesmos campos da página de modelos do API-1 (ModelosPageResponse)
+     */
+    public static class PaginaModelos {
+        public List<ModeloResumo> modelos;
+        public String codigoMarca;
+        public String nomeMarca;
+        public int page;
+        public int size;
+        public long total;
+        public int totalPages;
+        public String nextCursor;
+    }
+}
@@ -0,0 +1,123 @@
+package com.fipe.shared.inicializacao;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tempo de subida até a prontidão e memória residente (RSS) de um serviço, em várias execuções
+ *
+ * Fica nas fontes de teste para não ir no jar do shared. Uso (após mvn package e mvn -pl shared test-compile):
+ *   java -cp shared/target/test-classes com.fipe.shared.inicializacao.InicializacaoBenchmark \
+ *       <url de prontidão> <execuções> <comando...>
+ *
+ * Exemplos:
+ *   ... http://localhost:8081/api/v2/monitoring/ping 5 java -jar api-2/target/quarkus-app/quarkus-run.jar
+ *   ... http://localhost:8081/api/v2/monitoring/ping 5 java -XX:SharedArchiveFile=api-2/target/quarkus-app/app-cds.jsa \
+ *       -jar api-2/target/quarkus-app/quarkus-run.jar
+ *   ... http://localhost:8080/api/v1/fipe/health/ready 5 api-1/target/api-1-1.0.0-SNAPSHOT-runner
+ *
+ * O tempo conta do lançamento do processo até a primeira resposta 200 da URL; o RSS é lido de
+ * /proc/<pid>/status logo depois (só Linux). A saída do serviço vai para target/inicializacao.log
+ */
+public final class InicializacaoBenchmark {
+
+    private static final Duration LIMITE = Duration.ofSeconds(120);
+    private static final long INTERVALO_MS = 10;
+
+    private InicializacaoBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Uso: InicializacaoBenchmark <url de prontidão> <execuções> <comando...>");
+            System.exit(2);
+        }
+        URI prontidao = URI.create(args[0]);
+        int execucoes = Integer.parseInt(args[1]);
+        List<String> comando = Arrays.asList(args).subList(2, args.length);
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(500)).build();
+        File log = new File("target/inicializacao.log");
+        log.getParentFile().mkdirs();
+
+        long[] tempos = new long[execucoes];
+        long[] rss = new long[execucoes];
+        System.out.printf(Locale.ROOT, "%-8s %14s %10s%n", "execução", "pronto ms", "RSS MB");
+        for (int i = 0; i < execucoes; i++) {
+            long inicio = System.nanoTime();
+            Process processo = new ProcessBuilder(comando)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                .start();
+            try {
+                if (!aguardarPronto(http, prontidao, processo, inicio)) {
+                    System.err.printf("Execução %d: serviço não ficou pronto (ver %s)%n", i + 1, log);
+                    System.exit(1);
+                }
+                tempos[i] = (System.nanoTime() - inicio) / 1_000_000;
+                rss[i] = rssKb(processo.pid());
+            } finally {
+                encerrar(processo);
+            }
+            System.out.printf(Locale.ROOT, "%-8d %14d %10.1f%n", i + 1, tempos[i], rss[i] / 1024.0);
+        }
+        System.out.printf(Locale.ROOT, "%-8s %14d %10.1f%n", "mediana", mediana(tempos), mediana(rss) / 1024.0);
+    }
+
+    private static boolean aguardarPronto(HttpClient http, URI prontidao, Process processo, long inicio)
+            throws InterruptedException {
+        HttpRequest requisicao = HttpRequest.newBuilder(prontidao).timeout(Duration.ofSeconds(1)).GET().build();
+        while (System.nanoTime() - inicio < LIMITE.toNanos()) {
+            if (!processo.isAlive()) {
+                return false;
+            }
+            try {
+                if (http.send(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return true;
+                }
+            } catch (IOException e) {
+                // Porta ainda fechada
+            }
+            Thread.sleep(INTERVALO_MS);
+        }
+        return false;
+    }
+
+    /**
+     * VmRSS do processo em KB, ou -1 fora do Linux
+     */
+    private static long rssKb(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        for (String linha : Files.readAllLines(status)) {
+            if (linha.startsWith("VmRSS:")) {
+                return Long.parseLong(linha.replaceAll("\\D", ""));
+            }
+        }
+        return -1;
+    }
+
+    private static void encerrar(Process processo) throws InterruptedException {
+        processo.destroy();
+        if (!processo.waitFor(10, TimeUnit.SECONDS)) {
+            processo.destroyForcibly().waitFor();
+        }
+    }
+
+    private static long mediana(long[] valores) {
+        long[] ordenados = valores.clone();
+        Arrays.sort(ordenados);
+        return ordenados[ordenados.length / 2];
+    }
+}